@@ -31,9 +31,12 @@ import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.jetbrains.cidr.cpp.cmake.workspace.CMakeWorkspace;
 import de.wieselbau.clion.clangtidy.tidy.FixCompileCommandsUtil;
+import de.wieselbau.clion.clangtidy.tidy.FixFileEntry;
 import de.wieselbau.clion.clangtidy.tidy.ScannerExecutionException;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * Helper class to create notifications for several events.
  */
@@ -140,6 +143,45 @@ public class NotificationFactory {
 	}
 
 
+	public static void notifyScanTimedOut(@NotNull Project project, @NotNull List<VirtualFile> files) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("clang-tidy exceeded the timeout on ").append(files.size()).append(" files:");
+
+		for(VirtualFile file : files) {
+			sb.append("<br/><code>").append(file.getPath()).append("</code>");
+		}
+
+		Notification notification = new Notification(
+				GroupId,
+				"clang-tidy timed out",
+				sb.toString(),
+				NotificationType.WARNING
+		);
+
+		notification.notify(project);
+	}
+
+
+	public static void notifyFixesConflicting(@NotNull Project project, @NotNull List<FixFileEntry> entries) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Some fixes could not be applied, because the code has changed or they were overlapping:");
+
+		for(FixFileEntry entry : entries) {
+			sb.append("<br/><code>").append(entry.getFile().getPath()).append("</code>");
+			sb.append(" (").append(entry.getConflicts().size()).append(" changes)");
+		}
+
+		Notification notification = new Notification(
+				GroupId,
+				"clang-tidy fixes not applied",
+				sb.toString(),
+				NotificationType.WARNING
+		);
+
+		notification.notify(project);
+	}
+
+
 	public static void notifyResultNoFixesFound(@NotNull Project project) {
 		Notification notification = new Notification(
 				GroupId,
@@ -34,6 +34,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
+import javax.swing.event.ChangeEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.event.ActionEvent;
 
@@ -44,6 +45,13 @@ public class OptionTab implements Configurable {
 
 	private JTextField txtCLangTidyPath;
 	private JButton btCLangTidySelect;
+	private JSpinner spScanThreads;
+	private JSpinner spScanBatchSize;
+	private JSpinner spScanTimeout;
+	private JSpinner spResultCacheSize;
+	private JCheckBox cbProjectIndex;
+	private JTextField txtHeaderIncludeDirectories;
+	private JTextField txtHeaderExcludeDirectories;
 	private JPanel contentPane;
 	private boolean modified = false;
 
@@ -51,6 +59,23 @@ public class OptionTab implements Configurable {
 	public OptionTab() {
 		btCLangTidySelect.addActionListener(this::onBtCLangTidySelectClicked);
 		txtCLangTidyPath.getDocument().addDocumentListener(onDocumentChangedListener);
+
+		spScanThreads.setModel(new SpinnerNumberModel(Options.getDefaultScanThreadCount(), 1, 256, 1));
+		spScanThreads.addChangeListener((ChangeEvent e) -> setModified());
+
+		spScanBatchSize.setModel(new SpinnerNumberModel(1, 1, 1000, 1));
+		spScanBatchSize.addChangeListener((ChangeEvent e) -> setModified());
+
+		spScanTimeout.setModel(new SpinnerNumberModel(0, 0, 86400, 10));
+		spScanTimeout.addChangeListener((ChangeEvent e) -> setModified());
+
+		spResultCacheSize.setModel(new SpinnerNumberModel(0, 0, 65536, 64));
+		spResultCacheSize.addChangeListener((ChangeEvent e) -> setModified());
+
+		cbProjectIndex.addActionListener((ActionEvent e) -> setModified());
+
+		txtHeaderIncludeDirectories.getDocument().addDocumentListener(onDocumentChangedListener);
+		txtHeaderExcludeDirectories.getDocument().addDocumentListener(onDocumentChangedListener);
 	}
 
 
@@ -86,17 +111,33 @@ public class OptionTab implements Configurable {
 	@Override
 	public void apply() throws ConfigurationException {
 		Options.setCLangTidyExe(txtCLangTidyPath.getText());
+		Options.setScanThreadCount((Integer)spScanThreads.getValue());
+		Options.setScanBatchSize((Integer)spScanBatchSize.getValue());
+		Options.setScanTimeoutPerFile((Integer)spScanTimeout.getValue());
+		Options.setResultCacheSize((Integer)spResultCacheSize.getValue());
+		Options.setProjectIndexEnabled(cbProjectIndex.isSelected());
+		Options.setHeaderIncludeDirectories(Options.splitDirectories(txtHeaderIncludeDirectories.getText()));
+		Options.setHeaderExcludeDirectories(Options.splitDirectories(txtHeaderExcludeDirectories.getText()));
 		modified = false;
 	}
 
 	@Override
 	public void reset() {
 		txtCLangTidyPath.setText(Options.getCLangTidyExe());
+		spScanThreads.setValue(Options.getScanThreadCount());
+		spScanBatchSize.setValue(Options.getScanBatchSize());
+		spScanTimeout.setValue(Options.getScanTimeoutPerFile());
+		spResultCacheSize.setValue(Options.getResultCacheSize());
+		cbProjectIndex.setSelected(Options.isProjectIndexEnabled());
+		txtHeaderIncludeDirectories.setText(String.join(Options.DIRECTORIES_SEPARATOR, Options.getHeaderIncludeDirectories()));
+		txtHeaderExcludeDirectories.setText(String.join(Options.DIRECTORIES_SEPARATOR, Options.getHeaderExcludeDirectories()));
 	}
 
 	@Override
 	public void disposeUIResources() {
 		txtCLangTidyPath.getDocument().removeDocumentListener(onDocumentChangedListener);
+		txtHeaderIncludeDirectories.getDocument().removeDocumentListener(onDocumentChangedListener);
+		txtHeaderExcludeDirectories.getDocument().removeDocumentListener(onDocumentChangedListener);
 	}
 
 
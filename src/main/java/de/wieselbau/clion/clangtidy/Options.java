@@ -24,9 +24,12 @@ package de.wieselbau.clion.clangtidy;
 
 import com.intellij.ide.util.PropertiesComponent;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.jetbrains.cidr.lang.daemon.clang.tidy.ClangTidyAnnotator;
+import de.wieselbau.clion.clangtidy.tidy.ProjectDiagnosticsIndex;
 import de.wieselbau.clion.clangtidy.tidy.ToolCollection;
 import de.wieselbau.clion.clangtidy.tidy.ToolController;
 import de.wieselbau.util.properties.TypeConverter;
@@ -34,6 +37,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -41,6 +46,21 @@ import java.util.Objects;
  */
 public class Options {
 	public final static String OPTION_KEY_CLANGTIDY_EXE		= "clangtidy.exe";
+	public final static String OPTION_KEY_SCAN_THREADS		= "clangtidy.scan.threads";
+	public final static String OPTION_KEY_SCAN_BATCH_SIZE	= "clangtidy.scan.batchsize";
+	public final static String OPTION_KEY_SCAN_TIMEOUT		= "clangtidy.scan.timeout";
+	public final static String OPTION_KEY_CACHE_SIZE		= "clangtidy.cache.size";
+	public final static String OPTION_KEY_PROJECT_INDEX		= "clangtidy.index.enabled";
+	public final static String OPTION_KEY_HEADERS_INCLUDE	= "clangtidy.headers.include";
+	public final static String OPTION_KEY_HEADERS_EXCLUDE	= "clangtidy.headers.exclude";
+
+	/**
+	 * Separates multiple directories within a single option.
+	 */
+	public final static String DIRECTORIES_SEPARATOR		= ";";
+
+	private final static int DEFAULT_SCAN_TIMEOUT			= 300;
+	private final static int DEFAULT_CACHE_SIZE				= 256;
 
 	private final static PropertiesComponent properties = PropertiesComponent.getInstance();
 
@@ -67,6 +87,143 @@ public class Options {
 	}
 
 
+	/**
+	 * The number of clang-tidy processes which will be run in parallel when scanning the project.
+	 * Defaults to the number of available processors.
+	 */
+	public static int getScanThreadCount() {
+		return Math.max(1, properties.getInt(OPTION_KEY_SCAN_THREADS, getDefaultScanThreadCount()));
+	}
+
+	public static int getDefaultScanThreadCount() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	public static void setScanThreadCount(int threads) {
+		properties.setValue(OPTION_KEY_SCAN_THREADS, Math.max(1, threads), getDefaultScanThreadCount());
+	}
+
+
+	/**
+	 * The number of files which will be passed to a single clang-tidy process when scanning the project.
+	 * Passing multiple files saves the time to start clang-tidy and to load the compile commands for each file.
+	 */
+	public static int getScanBatchSize() {
+		return Math.max(1, properties.getInt(OPTION_KEY_SCAN_BATCH_SIZE, 1));
+	}
+
+	public static void setScanBatchSize(int files) {
+		properties.setValue(OPTION_KEY_SCAN_BATCH_SIZE, Math.max(1, files), 1);
+	}
+
+
+	/**
+	 * The time in seconds clang-tidy may spend on a single file, before it will be killed.
+	 * Zero disables the timeout.
+	 */
+	public static int getScanTimeoutPerFile() {
+		return Math.max(0, properties.getInt(OPTION_KEY_SCAN_TIMEOUT, DEFAULT_SCAN_TIMEOUT));
+	}
+
+	public static void setScanTimeoutPerFile(int seconds) {
+		properties.setValue(OPTION_KEY_SCAN_TIMEOUT, Math.max(0, seconds), DEFAULT_SCAN_TIMEOUT);
+	}
+
+
+	/**
+	 * The maximum size in megabytes of the scanner results stored on disk.
+	 * Zero disables the cache.
+	 */
+	public static int getResultCacheSize() {
+		return Math.max(0, properties.getInt(OPTION_KEY_CACHE_SIZE, DEFAULT_CACHE_SIZE));
+	}
+
+	public static void setResultCacheSize(int megabytes) {
+		properties.setValue(OPTION_KEY_CACHE_SIZE, Math.max(0, megabytes), DEFAULT_CACHE_SIZE);
+	}
+
+
+	/**
+	 * Determines if all files of a project will be scanned in background,
+	 * to keep the issues of the whole project available.
+	 */
+	public static boolean isProjectIndexEnabled() {
+		return properties.getBoolean(OPTION_KEY_PROJECT_INDEX, false);
+	}
+
+	public static void setProjectIndexEnabled(boolean enabled) {
+		if (enabled != isProjectIndexEnabled()) {
+			properties.setValue(OPTION_KEY_PROJECT_INDEX, enabled, false);
+
+			for(Project project : ProjectManager.getInstance().getOpenProjects()) {
+				if (enabled) {
+					ProjectDiagnosticsIndex.getInstance(project).start();
+				}
+				else {
+					ProjectDiagnosticsIndex.getInstance(project).stop();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Directories outside of the project's content roots, which headers should be scanned as well.
+	 * Relative paths refer to the project's directory.
+	 */
+	public static @NotNull List<String> getHeaderIncludeDirectories() {
+		return getDirectories(OPTION_KEY_HEADERS_INCLUDE);
+	}
+
+	public static void setHeaderIncludeDirectories(@NotNull List<String> directories) {
+		setDirectories(OPTION_KEY_HEADERS_INCLUDE, directories);
+	}
+
+
+	/**
+	 * Directories, which headers should never be scanned, even when inside the project's content roots.
+	 * Relative paths refer to the project's directory.
+	 */
+	public static @NotNull List<String> getHeaderExcludeDirectories() {
+		return getDirectories(OPTION_KEY_HEADERS_EXCLUDE);
+	}
+
+	public static void setHeaderExcludeDirectories(@NotNull List<String> directories) {
+		setDirectories(OPTION_KEY_HEADERS_EXCLUDE, directories);
+	}
+
+
+	/**
+	 * Splits a list of directories separated by {@link #DIRECTORIES_SEPARATOR}.
+	 */
+	public static @NotNull List<String> splitDirectories(@NotNull String value) {
+		List<String> directories = new ArrayList<>();
+
+		for(String directory : value.split(DIRECTORIES_SEPARATOR)) {
+			if (!directory.trim().isEmpty()) {
+				directories.add(directory.trim());
+			}
+		}
+
+		return directories;
+	}
+
+	private static @NotNull List<String> getDirectories(@NotNull String key) {
+		return splitDirectories(properties.getValue(key, ""));
+	}
+
+	private static void setDirectories(@NotNull String key, @NotNull List<String> directories) {
+		String value = String.join(DIRECTORIES_SEPARATOR, directories);
+
+		if (value.isEmpty()) {
+			properties.unsetValue(key);
+		}
+		else {
+			properties.setValue(key, value);
+		}
+	}
+
+
 	/**
 	 * Checks if the path to the clang-tidy executable is configured and the file exists.
 	 */
@@ -108,6 +108,15 @@ public class ApplyResultsDialog extends DialogWrapper {
 						break;
 					}
 
+					case Partial: {
+						renderer.append(file.getName(), SimpleTextAttributes.GRAYED_ITALIC_ATTRIBUTES);
+						renderer.append(
+								" (" + getEntry().getConflicts().size() + " conflicting Changes skipped)",
+								SimpleTextAttributes.ERROR_ATTRIBUTES
+						);
+						break;
+					}
+
 					case Failed: {
 						renderer.append(file.getName(), SimpleTextAttributes.ERROR_ATTRIBUTES);
 						break;
@@ -101,12 +101,15 @@ public class MergeFixesHelper {
 			DocumentContent documentContent = DiffContentFactory.getInstance().create(helper.getProject(), document);
 			DocumentContent patchedContent  = new PatchedDocumentContent(entry);
 
+			// patch the document now, so the title can tell about changes which could not be applied
+			patchedContent.getDocument();
+
 			SimpleDiffRequest request = new SimpleDiffRequest(
 					DiffRequestFactory.getInstance().getTitle(file),
 					documentContent,
 					patchedContent,
 					"Current file",
-					"Result of clang-tidy"
+					getPatchedContentTitle(entry)
 			);
 
 			request.putUserData(DiffUserDataKeys.MASTER_SIDE,          Side.LEFT);
@@ -137,7 +140,7 @@ public class MergeFixesHelper {
 				List<String> titles = new ArrayList<>();
 				titles.add(title);
 				titles.add("Merge Result");
-				titles.add("Result of clang-tidy");
+				titles.add(getPatchedContentTitle(entry));
 
 				FileType fileType = entry.getFile().getFileType();
 
@@ -164,6 +167,19 @@ public class MergeFixesHelper {
 	}
 
 
+	/**
+	 * Get the title of the patched content, including the number of changes which could not be applied.
+	 */
+	private static @NotNull String getPatchedContentTitle(@NotNull FixFileEntry entry) {
+		int conflicts = entry.getConflicts().size();
+		if (conflicts == 0) {
+			return "Result of clang-tidy";
+		}
+
+		return "Result of clang-tidy (" + conflicts + " conflicting changes skipped)";
+	}
+
+
 	public static DiffRequestChain createDiffRequestChain(@NotNull FixProjectHelper helper, @NotNull List<FixFileEntry> entries) {
 		return new MyDiffRequestChain(helper, entries);
 	}
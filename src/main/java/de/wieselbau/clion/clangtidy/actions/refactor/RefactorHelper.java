@@ -135,6 +135,10 @@ public class RefactorHelper {
 
 
 	private void onScannerFinished(Scanner scanner, ScannerResult result) {
+		if (result.hasTimedOutFiles()) {
+			NotificationFactory.notifyScanTimedOut(project, result.getTimedOutFiles());
+		}
+
 		if (result.hasFailedFiles()) {
 			final String FilesFailedTitle = "Error Reading Files";
 
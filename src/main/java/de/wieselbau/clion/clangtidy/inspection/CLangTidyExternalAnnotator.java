@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.inspection;
+
+import com.intellij.codeInsight.daemon.HighlightDisplayKey;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.lang.annotation.AnnotationHolder;
+import com.intellij.lang.annotation.ExternalAnnotator;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.profile.codeInspection.InspectionProjectProfileManager;
+import com.intellij.psi.PsiFile;
+import de.wieselbau.clion.clangtidy.Options;
+import de.wieselbau.clion.clangtidy.tidy.Issue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Provides the issues found by clang-tidy for files opened in an editor.
+ * clang-tidy will not be executed within the highlighting pass, instead the scan
+ * is delegated to {@link OnTheFlyScanService}, which restarts the highlighting
+ * once the results are available.
+ */
+public class CLangTidyExternalAnnotator extends ExternalAnnotator<CLangTidyExternalAnnotator.Input, List<Issue>> {
+	/**
+	 * The state of a file collected within the highlighting pass.
+	 */
+	static class Input {
+		final Project		project;
+		final VirtualFile	file;
+		final long			modificationStamp;
+
+		Input(@NotNull Project project, @NotNull VirtualFile file, long modificationStamp) {
+			this.project			= project;
+			this.file				= file;
+			this.modificationStamp	= modificationStamp;
+		}
+	}
+
+
+	private static boolean isInspectionEnabled(@NotNull PsiFile file) {
+		HighlightDisplayKey key = HighlightDisplayKey.find(CLangTidyLocalInspection.SHORT_NAME);
+
+		return
+				key != null
+			&&	InspectionProjectProfileManager.getInstance(file.getProject()).getCurrentProfile().isToolEnabled(key, file)
+		;
+	}
+
+
+	@Nullable
+	@Override
+	public Input collectInformation(@NotNull PsiFile file, @NotNull Editor editor, boolean hasErrors) {
+		VirtualFile virtualFile = file.getVirtualFile();
+
+		if (
+				virtualFile != null
+			&&	CLangTidyLocalInspection.isCppFile(file)
+			&&	isInspectionEnabled(file)
+			&&	Options.isCLangTidyReady()
+		) {
+			return new Input(file.getProject(), virtualFile, editor.getDocument().getModificationStamp());
+		}
+
+		return null;
+	}
+
+
+	@Nullable
+	@Override
+	public List<Issue> doAnnotate(Input input) {
+		return OnTheFlyScanService.getInstance(input.project).getIssues(input.file, input.modificationStamp);
+	}
+
+
+	@Override
+	public void apply(@NotNull PsiFile file, List<Issue> issues, @NotNull AnnotationHolder holder) {
+		if (issues == null) {
+			return;
+		}
+
+		Document document = FileDocumentManager.getInstance().getDocument(file.getVirtualFile());
+		if (document == null) {
+			return;
+		}
+
+		for(Issue issue : issues) {
+			TextRange range = CLangTidyLocalInspection.getIssueRange(document, issue);
+			if (range == null) {
+				continue;
+			}
+
+			if (issue.getType() == ProblemHighlightType.ERROR) {
+				holder.createErrorAnnotation(range, issue.getMessage());
+			}
+			else {
+				holder.createWarningAnnotation(range, issue.getMessage());
+			}
+		}
+	}
+}
@@ -50,8 +50,13 @@ import java.util.List;
 
 /**
  * Runs clang-tidy on a given file and provides the issues found by the tool via inspection UI.
+ * While editing, the issues are provided by {@link CLangTidyExternalAnnotator} instead,
+ * so this inspection only runs clang-tidy when invoked in batch mode.
  */
 public class CLangTidyLocalInspection extends LocalInspectionTool {
+	public final static String SHORT_NAME	= "CLangTidyLocalInspection";
+
+
 	protected static boolean isCppFile(@NotNull PsiFile file) {
 		if (file instanceof OCFileImpl) {
 			OCFileImpl ocfile = (OCFileImpl)file;
@@ -90,6 +95,29 @@ public class CLangTidyLocalInspection extends LocalInspectionTool {
 	}
 
 
+	/**
+	 * Get the text range to be highlighted for an issue,
+	 * which starts at the issue's location and ends at the end of its line.
+	 * @return The text range, or {@code null} if the issue's location is not within the document.
+	 */
+	protected static @Nullable TextRange getIssueRange(@NotNull Document document, @NotNull Issue issue) {
+		int lineNumber = issue.getLineNumber() - 1;
+		int lineColumn = issue.getLineColumn() - 1;
+
+		if (lineNumber < 0 || lineNumber >= document.getLineCount()) {
+			return null;
+		}
+
+		int lineStart  = document.getLineStartOffset(lineNumber);
+		int lineEnd    = document.getLineEndOffset(lineNumber);
+
+		return TextRange.create(
+				Math.min(lineEnd, Math.max(lineStart, lineStart + lineColumn)),
+				lineEnd
+		);
+	}
+
+
 	@Nullable
 	@Override
 	public ProblemDescriptor[] checkFile(@NotNull PsiFile file, @NotNull InspectionManager manager, boolean isOnTheFly) {
@@ -97,6 +125,7 @@ public class CLangTidyLocalInspection extends LocalInspectionTool {
 
 		if (
 				isCppFile(file)
+			&&	!isOnTheFly
 		//	&&	isSaved(file)
 		) {
 			problems = checkCppFile(file, manager, isOnTheFly);
@@ -108,11 +137,12 @@ public class CLangTidyLocalInspection extends LocalInspectionTool {
 
 	private ProblemDescriptor[] checkCppFile(@NotNull PsiFile file, @NotNull InspectionManager manager, boolean isOnTheFly) {
 		ProblemDescriptor[] problems = null;
+		Scanner runner = null;
 
 		try {
 			VirtualFile vfile = file.getVirtualFile();
 
-			Scanner runner = new Scanner(file.getProject());
+			runner = new Scanner(file.getProject());
 			ScannerResult result = new ScannerResult();
 			boolean success = runner.runOnFiles(vfile, result);
 
@@ -126,21 +156,12 @@ public class CLangTidyLocalInspection extends LocalInspectionTool {
 						Document document = FileDocumentManager.getInstance().getDocument(issueFile);
 
 						if (document != null) {
-							int lineNumber = issue.getLineNumber() - 1;
-							int lineColumn = issue.getLineColumn() - 1;
+							TextRange range = getIssueRange(document, issue);
 
-							if (lineNumber >= document.getLineCount()) {
+							if (range == null) {
 								continue;
 							}
 
-							int lineStart  = document.getLineStartOffset(lineNumber);
-							int lineEnd    = document.getLineEndOffset(lineNumber);
-
-							TextRange range = TextRange.create(
-									Math.max(lineStart, lineStart + lineColumn),
-									lineEnd
-							);
-
 							ProblemDescriptor problem = manager.createProblemDescriptor(
 									file,
 									range,
@@ -165,6 +186,11 @@ public class CLangTidyLocalInspection extends LocalInspectionTool {
 		catch (IOException e) {
 			Logger.getInstance(this.getClass()).error(e);
 		}
+		finally {
+			if (runner != null) {
+				runner.dispose();
+			}
+		}
 
 		return problems;
 	}
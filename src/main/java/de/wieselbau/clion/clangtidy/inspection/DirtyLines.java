@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.inspection;
+
+import com.intellij.openapi.util.Pair;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the lines of a document modified since the document was scanned completely.
+ * Lines are counted from 0, each range includes its first and last line.
+ * Ranges after a modification will be moved, when lines were inserted or removed,
+ * so all ranges always refer to the current content of the document.
+ */
+class DirtyLines {
+	private final List<int[]>	ranges		= new ArrayList<>();
+
+
+	/**
+	 * Get the line of a document after a modification.
+	 * @param line			The line before the modification.
+	 * @param startLine		The first line modified.
+	 * @param oldEndLine	The last line modified, before the modification.
+	 * @param newEndLine	The last line modified, after the modification.
+	 * @return The line after the modification, or {@code -1} if the line itself was modified.
+	 */
+	static int translate(int line, int startLine, int oldEndLine, int newEndLine) {
+		if (line < startLine) {
+			return line;
+		}
+
+		if (line > oldEndLine) {
+			return line + (newEndLine - oldEndLine);
+		}
+
+		return -1;
+	}
+
+
+	/**
+	 * Records a modification of the document.
+	 * @param startLine		The first line modified.
+	 * @param oldEndLine	The last line modified, before the modification.
+	 * @param newEndLine	The last line modified, after the modification.
+	 */
+	void onChange(int startLine, int oldEndLine, int newEndLine) {
+		int delta	= newEndLine - oldEndLine;
+		int start	= startLine;
+		int end		= newEndLine;
+		int index	= 0;
+
+		List<int[]> updated = new ArrayList<>(ranges.size() + 1);
+
+		for(int[] range : ranges) {
+			if (range[1] < startLine) {
+				updated.add(range);
+				++index;
+			}
+			else if (range[0] > oldEndLine) {
+				updated.add(new int[] { range[0] + delta, range[1] + delta });
+			}
+			else {
+				// overlapping ranges will be merged with the modified lines
+				start	= Math.min(start, range[0]);
+				end		= Math.max(end,   range[1] + delta);
+			}
+		}
+
+		updated.add(index, new int[] { start, end });
+
+		ranges.clear();
+		ranges.addAll(updated);
+	}
+
+
+	boolean isEmpty() {
+		return ranges.isEmpty();
+	}
+
+
+	void clear() {
+		ranges.clear();
+	}
+
+
+	/**
+	 * Get the number of lines within all ranges.
+	 */
+	int getLineCount() {
+		int count = 0;
+
+		for(int[] range : ranges) {
+			count += range[1] - range[0] + 1;
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Get all ranges as expected by clang-tidy's -line-filter, which counts lines from 1.
+	 */
+	@NotNull List<Pair<Integer,Integer>> toLineFilter() {
+		List<Pair<Integer,Integer>> lines = new ArrayList<>(ranges.size());
+
+		for(int[] range : ranges) {
+			lines.add(Pair.create(range[0] + 1, range[1] + 1));
+		}
+
+		return lines;
+	}
+}
@@ -0,0 +1,620 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.inspection;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import de.wieselbau.clion.clangtidy.NotificationFactory;
+import de.wieselbau.clion.clangtidy.tidy.CompileCommandsNotFoundException;
+import de.wieselbau.clion.clangtidy.tidy.IncludeGraph;
+import de.wieselbau.clion.clangtidy.tidy.Issue;
+import de.wieselbau.clion.clangtidy.tidy.Log;
+import de.wieselbau.clion.clangtidy.tidy.ProjectDiagnosticsIndex;
+import de.wieselbau.clion.clangtidy.tidy.Scanner;
+import de.wieselbau.clion.clangtidy.tidy.ScannerExecutionException;
+import de.wieselbau.clion.clangtidy.tidy.ScannerResult;
+import de.wieselbau.clion.clangtidy.tidy.ScannerResultCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs clang-tidy in background on files opened in an editor.
+ * Scans will be started after the document was not changed for a short delay,
+ * and a running scan will be cancelled as soon as its document gets changed again,
+ * so there is at most one clang-tidy process per file at any time.
+ * When a scan has finished, the file's highlighting will be restarted
+ * to publish the results via {@link CLangTidyExternalAnnotator}.
+ *
+ * While a document has unsaved changes, only the lines modified since the previous
+ * scan will be scanned, using clang-tidy's -line-filter. Those results will be merged
+ * with the previous results of all other lines. Once the document was saved,
+ * its results are outdated and the whole file will be scanned again, so issues
+ * caused by modifications on other lines will be found. When clang-tidy can't scan unsaved documents,
+ * the lines modified don't match the file on disk, so the whole file will be scanned.
+ * Results are dropped once their file was closed or deleted.
+ *
+ * When a header was changed, the translation units including it, as known by {@link IncludeGraph},
+ * will be scanned again. Files opened in an editor get their results replaced, while other
+ * files will be scanned one after another in background, to update their cached results.
+ */
+public class OnTheFlyScanService implements Disposable {
+	/**
+	 * Time in milliseconds a document must remain unchanged, until it will be scanned.
+	 */
+	private final static int DEBOUNCE_DELAY	= 500;
+
+	/**
+	 * When more lines were modified, the whole file will be scanned.
+	 */
+	private final static int MAX_DIRTY_LINES	= 200;
+
+	private final Project						project;
+	private final Map<VirtualFile,PendingScan>	pendingScans	= new HashMap<>();
+	private final Map<VirtualFile,ScanResult>	results			= new HashMap<>();
+	private final Set<String>					changedUnits	= new HashSet<>();
+	private final Set<VirtualFile>				pendingUnits	= new LinkedHashSet<>();
+	private final ExecutorService				unitsExecutor;
+	private volatile Scanner					unitsScanner;
+
+
+	/**
+	 * The issues found in a file, moved along with modifications of the document.
+	 */
+	private static class ScanResult {
+		final long			modificationStamp;
+		List<Issue>			issues;
+		final DirtyLines	dirtyLines		= new DirtyLines();
+		boolean				outdated;
+
+		ScanResult(long modificationStamp, @NotNull List<Issue> issues) {
+			this.modificationStamp	= modificationStamp;
+			this.issues				= issues;
+		}
+
+		void onChange(int startLine, int oldEndLine, int newEndLine) {
+			List<Issue> movedIssues = new ArrayList<>(issues.size());
+
+			for(Issue issue : issues) {
+				int line = DirtyLines.translate(issue.getLineNumber() - 1, startLine, oldEndLine, newEndLine);
+
+				if (line == issue.getLineNumber() - 1) {
+					movedIssues.add(issue);
+				}
+				else if (line != -1) {
+					movedIssues.add(issue.moveToLine(line + 1));
+				}
+			}
+
+			issues = movedIssues;
+			dirtyLines.onChange(startLine, oldEndLine, newEndLine);
+		}
+	}
+
+
+	/**
+	 * A scan either waiting for its delay to expire or currently running.
+	 */
+	private static class PendingScan {
+		final VirtualFile			file;
+		final long					modificationStamp;
+		ScheduledFuture<?>			timer;
+		volatile Scanner			scanner;
+		volatile boolean			cancelled;
+
+		PendingScan(@NotNull VirtualFile file, long modificationStamp) {
+			this.file				= file;
+			this.modificationStamp	= modificationStamp;
+		}
+
+		void cancel() {
+			cancelled = true;
+
+			if (timer != null) {
+				timer.cancel(false);
+			}
+
+			Scanner scanner = this.scanner;
+			if (scanner != null) {
+				scanner.cancelRunningProcesses();
+			}
+		}
+	}
+
+
+	public static @NotNull OnTheFlyScanService getInstance(@NotNull Project project) {
+		return ServiceManager.getService(project, OnTheFlyScanService.class);
+	}
+
+
+	public OnTheFlyScanService(@NotNull Project project) {
+		this.project		= project;
+		this.unitsExecutor	= AppExecutorUtil.createBoundedApplicationPoolExecutor("clang-tidy dependent units", 1);
+
+		EditorFactory.getInstance().getEventMulticaster().addDocumentListener(
+				new DocumentListener() {
+					@Override
+					public void documentChanged(DocumentEvent event) {
+						VirtualFile file = FileDocumentManager.getInstance().getFile(event.getDocument());
+
+						if (file != null) {
+							onDocumentChanged(file, event);
+						}
+					}
+				},
+				this
+		);
+
+		project.getMessageBus().connect(this).subscribe(
+				FileEditorManagerListener.FILE_EDITOR_MANAGER,
+				new FileEditorManagerListener() {
+					@Override
+					public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+						// the file may still be open in another editor
+						if (!source.isFileOpen(file)) {
+							remove(file);
+						}
+					}
+				}
+		);
+
+		project.getMessageBus().connect(this).subscribe(
+				VirtualFileManager.VFS_CHANGES,
+				new BulkFileListener() {
+					@Override
+					public void before(@NotNull List<? extends VFileEvent> events) {
+						for(VFileEvent event : events) {
+							if (event instanceof VFileDeleteEvent) {
+								removeDeleted(((VFileDeleteEvent)event).getFile());
+							}
+						}
+
+						collectDependentUnits(events);
+					}
+
+					@Override
+					public void after(@NotNull List<? extends VFileEvent> events) {
+						for(VFileEvent event : events) {
+							if (event instanceof VFileContentChangeEvent) {
+								onFileSaved(((VFileContentChangeEvent)event).getFile());
+							}
+						}
+
+						scheduleDependentUnits();
+					}
+				}
+		);
+	}
+
+
+	@Override
+	public synchronized void dispose() {
+		for(PendingScan pendingScan : pendingScans.values()) {
+			pendingScan.cancel();
+		}
+
+		pendingScans.clear();
+		results.clear();
+		pendingUnits.clear();
+		unitsExecutor.shutdownNow();
+
+		Scanner scanner = unitsScanner;
+		if (scanner != null) {
+			scanner.cancelRunningProcesses();
+		}
+	}
+
+
+	/**
+	 * Get the issues found in a file.
+	 * When there are no results for the given modification of the file yet,
+	 * a new scan will be scheduled, while the results of the previous scan will be returned.
+	 * Until the file was scanned for the first time, the issues found by the
+	 * {@link ProjectDiagnosticsIndex} will be returned, as long as the file was not modified.
+	 * @param file					The file to get the issues for.
+	 * @param modificationStamp		The modification stamp of the file's document.
+	 * @return The issues of the most recent scan, or {@code null} if the file was not scanned yet.
+	 */
+	public @Nullable List<Issue> getIssues(@NotNull VirtualFile file, long modificationStamp) {
+		synchronized(this) {
+			ScanResult result = results.get(file);
+
+			if (result == null || result.modificationStamp != modificationStamp || result.outdated) {
+				schedule(file, modificationStamp);
+			}
+
+			if (result != null) {
+				return result.issues;
+			}
+		}
+
+		ProjectDiagnosticsIndex index = ProjectDiagnosticsIndex.getInstance(project);
+		if (index.isRunning() && !FileDocumentManager.getInstance().isFileModified(file)) {
+			return index.getIssues(file);
+		}
+
+		return null;
+	}
+
+
+	private synchronized void schedule(@NotNull VirtualFile file, long modificationStamp) {
+		PendingScan pendingScan = pendingScans.get(file);
+
+		if (pendingScan != null) {
+			if (pendingScan.modificationStamp == modificationStamp) {
+				// this modification is already being scanned
+				return;
+			}
+
+			pendingScan.cancel();
+		}
+
+		PendingScan newScan = new PendingScan(file, modificationStamp);
+		pendingScans.put(file, newScan);
+
+		newScan.timer = AppExecutorUtil.getAppScheduledExecutorService().schedule(
+				() -> run(newScan),
+				DEBOUNCE_DELAY,
+				TimeUnit.MILLISECONDS
+		);
+	}
+
+
+	/**
+	 * Drops the results of a file and cancels its scan, when no longer needed.
+	 */
+	private synchronized void remove(@NotNull VirtualFile file) {
+		PendingScan pendingScan = pendingScans.remove(file);
+		if (pendingScan != null) {
+			pendingScan.cancel();
+		}
+
+		results.remove(file);
+	}
+
+
+	/**
+	 * Drops the results of a deleted file, or of all files within a deleted directory.
+	 */
+	private synchronized void removeDeleted(@NotNull VirtualFile deleted) {
+		Set<VirtualFile> files = new HashSet<>(results.keySet());
+		files.addAll(pendingScans.keySet());
+
+		for(VirtualFile file : files) {
+			if (VfsUtilCore.isAncestor(deleted, file, false)) {
+				remove(file);
+			}
+		}
+	}
+
+
+	private synchronized void onDocumentChanged(@NotNull VirtualFile file, @NotNull DocumentEvent event) {
+		PendingScan pendingScan = pendingScans.remove(file);
+		if (pendingScan != null) {
+			pendingScan.cancel();
+		}
+
+		ScanResult result = results.get(file);
+		if (result != null) {
+			int startLine = event.getDocument().getLineNumber(event.getOffset());
+
+			result.onChange(
+					startLine,
+					startLine + countLineBreaks(event.getOldFragment()),
+					startLine + countLineBreaks(event.getNewFragment())
+			);
+		}
+	}
+
+
+	/**
+	 * Scans a file completely, once its document was saved or it was changed on disk,
+	 * replacing the results merged from scans of modified lines only.
+	 */
+	private void onFileSaved(@NotNull VirtualFile file) {
+		synchronized(this) {
+			if (!results.containsKey(file)) {
+				return;
+			}
+		}
+
+		invalidate(file);
+		restartHighlighting(file);
+	}
+
+
+	private static int countLineBreaks(@NotNull CharSequence text) {
+		int count = 0;
+
+		for(int i=0; i<text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				++count;
+			}
+		}
+
+		return count;
+	}
+
+
+	private void run(@NotNull PendingScan pendingScan) {
+		Scanner scanner = null;
+
+		try {
+			if (pendingScan.cancelled || project.isDisposed()) {
+				return;
+			}
+
+			scanner = new Scanner(project);
+			scanner.setScanUnsavedDocuments(true);
+
+			// scan only the lines modified, as long as the document is not saved;
+			// without scanning the document, the modified lines would be applied to the file on disk
+			List<Issue> previousIssues = null;
+			boolean isModified =
+					FileDocumentManager.getInstance().isFileModified(pendingScan.file)
+				&&	scanner.isScanningUnsavedDocuments()
+			;
+
+			synchronized(this) {
+				ScanResult previousResult = results.get(pendingScan.file);
+
+				if (
+						isModified
+					&&	previousResult != null
+					&&	!previousResult.outdated
+					&&	!previousResult.dirtyLines.isEmpty()
+					&&	previousResult.dirtyLines.getLineCount() <= MAX_DIRTY_LINES
+				) {
+					previousIssues = previousResult.issues;
+					scanner.addLineFilter(pendingScan.file, previousResult.dirtyLines.toLineFilter());
+				}
+			}
+
+			pendingScan.scanner = scanner;
+
+			// the scan may have been cancelled before the scanner was assigned
+			if (pendingScan.cancelled) {
+				return;
+			}
+
+			ScannerResult result = new ScannerResult();
+			boolean success = scanner.runOnFiles(pendingScan.file, result);
+
+			if (!success) {
+				return;
+			}
+
+			List<Issue> issues = new ArrayList<>();
+			if (previousIssues != null) {
+				// issues on modified lines were already removed
+				issues.addAll(previousIssues);
+			}
+
+			issues.addAll(result.getIssues(pendingScan.file));
+
+			synchronized(this) {
+				// the document may have been changed since the scan has finished
+				if (pendingScan.cancelled) {
+					return;
+				}
+
+				results.put(pendingScan.file, new ScanResult(pendingScan.modificationStamp, issues));
+			}
+
+			Log.clangtidy.debug(
+					"Scanned " + pendingScan.file.getPath()
+				+	(previousIssues != null ? " (modified lines only)" : "")
+			);
+
+			restartHighlighting(pendingScan.file);
+		}
+		catch(CompileCommandsNotFoundException e) {
+			NotificationFactory.notifyCompileCommandsNotFound(project, e.getCMakeWorkspace());
+		}
+		catch(ScannerExecutionException e) {
+			// happens frequently while typing, so no need to report it as an error
+			Log.clangtidy.warn("clang-tidy failed on " + pendingScan.file.getPath() + ":\n" + e.getLog());
+		}
+		catch(IOException e) {
+			Logger.getInstance(this.getClass()).error(e);
+		}
+		finally {
+			synchronized(this) {
+				pendingScans.remove(pendingScan.file, pendingScan);
+			}
+
+			if (scanner != null) {
+				scanner.dispose();
+			}
+		}
+	}
+
+
+	/**
+	 * Collects the translation units depending on changed files, before the changes are applied,
+	 * while the dependencies of changed headers are still known.
+	 */
+	private void collectDependentUnits(@NotNull List<? extends VFileEvent> events) {
+		IncludeGraph includeGraph = IncludeGraph.getInstance(project);
+		Set<String> units = new HashSet<>();
+
+		for(VFileEvent event : events) {
+			units.addAll(includeGraph.getDependentUnits(event.getPath()));
+		}
+
+		synchronized(this) {
+			changedUnits.addAll(units);
+		}
+	}
+
+
+	private void scheduleDependentUnits() {
+		Set<String> units;
+
+		synchronized(this) {
+			units = new HashSet<>(changedUnits);
+			changedUnits.clear();
+		}
+
+		if (units.isEmpty() || project.isDisposed()) {
+			return;
+		}
+
+		// the project index scans all affected units on its own; without a cache,
+		// results of files not opened would just be dropped
+		boolean scanClosedUnits =
+				ScannerResultCache.getInstance().isEnabled()
+			&&	!ProjectDiagnosticsIndex.getInstance(project).isRunning()
+		;
+
+		Log.clangtidy.debug("Changed files affect " + units.size() + " translation units");
+
+		for(String unit : units) {
+			VirtualFile file = LocalFileSystem.getInstance().findFileByPath(unit);
+			if (file == null || !file.isValid()) {
+				continue;
+			}
+
+			if (FileEditorManager.getInstance(project).isFileOpen(file)) {
+				invalidate(file);
+				restartHighlighting(file);
+			}
+			else if (scanClosedUnits) {
+				scheduleUnit(file);
+			}
+		}
+	}
+
+
+	/**
+	 * Marks the results of a file as outdated, so it will be scanned again completely,
+	 * even if its document was not changed.
+	 */
+	private synchronized void invalidate(@NotNull VirtualFile file) {
+		PendingScan pendingScan = pendingScans.remove(file);
+		if (pendingScan != null) {
+			pendingScan.cancel();
+		}
+
+		ScanResult result = results.get(file);
+		if (result != null) {
+			result.outdated = true;
+		}
+	}
+
+
+	private synchronized void scheduleUnit(@NotNull VirtualFile file) {
+		if (pendingUnits.add(file)) {
+			unitsExecutor.execute(() -> runUnit(file));
+		}
+	}
+
+
+	/**
+	 * Scans a file not opened in any editor, which updates its result in the cache.
+	 */
+	private void runUnit(@NotNull VirtualFile file) {
+		synchronized(this) {
+			if (!pendingUnits.remove(file)) {
+				return;
+			}
+		}
+
+		if (project.isDisposed() || !file.isValid() || FileEditorManager.getInstance(project).isFileOpen(file)) {
+			return;
+		}
+
+		Scanner scanner = null;
+
+		try {
+			scanner = new Scanner(project);
+			unitsScanner = scanner;
+
+			scanner.runOnFiles(file, null);
+
+			Log.clangtidy.debug("Scanned " + file.getPath() + " (included header changed)");
+		}
+		catch(CompileCommandsNotFoundException e) {
+			Log.clangtidy.debug("Not scanning " + file.getPath() + ", no compile commands found");
+		}
+		catch(ScannerExecutionException e) {
+			Log.clangtidy.warn("clang-tidy failed on " + file.getPath() + ":\n" + e.getLog());
+		}
+		catch(IOException e) {
+			Logger.getInstance(this.getClass()).error(e);
+		}
+		finally {
+			unitsScanner = null;
+
+			if (scanner != null) {
+				scanner.dispose();
+			}
+		}
+	}
+
+
+	private void restartHighlighting(@NotNull VirtualFile file) {
+		ApplicationManager.getApplication().runReadAction(() -> {
+			if (project.isDisposed() || !file.isValid()) {
+				return;
+			}
+
+			PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+			if (psiFile != null) {
+				DaemonCodeAnalyzer.getInstance(project).restart(psiFile);
+			}
+		});
+	}
+}
@@ -22,18 +22,28 @@
 
 package de.wieselbau.clion.clangtidy.tidy;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.DocumentUtil;
+import de.wieselbau.clion.clangtidy.NotificationFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Background task to apply any fixes found by clang-tidy to the current project.
+ * All files are read on the task's thread first. The changes are then applied in short slices
+ * on the UI thread, which are merged into a single command, so they can be undone at once.
+ * When cancelled, all entries not applied yet will be left without a result.
  */
 public class ApplyFixesBackgroundTask extends Task.Modal {
 	public final static String TITLE	= "clang-tidy: applying fixes";
@@ -45,10 +55,25 @@ public class ApplyFixesBackgroundTask extends Task.Modal {
 		void onApplied(@NotNull FixFileEntry entry, @Nullable FixFileEntry.Result result);
 	}
 
+	/**
+	 * Maximum time to keep the UI thread busy with applying fixes, before giving it back to process other events.
+	 */
+	private final static long TIME_SLICE_MILLIS		= 50;
+
+	/**
+	 * Documents with at least this number of changes will be modified in bulk mode,
+	 * which defers updating editors and highlighting until all changes were applied.
+	 */
+	private final static int BULK_MODE_MIN_CHANGES	= 100;
+
 	private Project				project;
 	private List<FixFileEntry>	entriesToApply;
 	private OnAppliedCallback	onAppliedCallback;
 
+	// progress, only modified by the task's thread and within slices running while it waits
+	private int					entriesApplied;
+	private long				unitsDone;
+
 
 
 	public static void start(@NotNull Project project, @NotNull List<FixFileEntry> entriesToApply) {
@@ -62,7 +87,7 @@ public class ApplyFixesBackgroundTask extends Task.Modal {
 
 
 	public ApplyFixesBackgroundTask(@NotNull Project project, @NotNull List<FixFileEntry> entriesToApply, @Nullable OnAppliedCallback callback) {
-		super(project, TITLE, false);
+		super(project, TITLE, true);
 		this.project				= project;
 		this.entriesToApply			= Collections.unmodifiableList(entriesToApply);
 		this.onAppliedCallback		= callback;
@@ -71,38 +96,129 @@ public class ApplyFixesBackgroundTask extends Task.Modal {
 
 	@Override
 	public void run(@NotNull ProgressIndicator indicator) {
+		indicator.setIndeterminate(false);
 		indicator.setFraction(0.0);
 		indicator.setText("preparing");
 
-		int filesTotal   = entriesToApply.size();
-		int filesApplied = 0;
+		// reading each file and applying each change counts as a single unit of work
+		List<FixFileEntry> entries = new ArrayList<>();
+		long unitsTotal = 0;
 
 		for(FixFileEntry entry : entriesToApply) {
-			indicator.setText(entry.getFile().getPath());
-			FixFileEntry.Result result = entry.apply(project);
-			++filesApplied;
-
-			if (onAppliedCallback != null) {
-				onAppliedCallback.onApplied(entry, result);
+			if (entry.getResult() != null) {
+				notifyApplied(entry, null);
+				continue;
 			}
 
-			try {
-				Thread.sleep(10);
+			entries.add(entry);
+			unitsTotal += 1 + entry.getChanges().size();
+		}
+
+		final long unitsTotalFinal = Math.max(1, unitsTotal);
+
+		// read all files on this thread, so applying the changes won't block the UI thread for too long
+		for(FixFileEntry entry : entries) {
+			if (indicator.isCanceled()) {
+				Log.clangtidy.info("Cancelled applying fixes while reading files");
+				return;
 			}
-			catch (InterruptedException e) {
-				e.printStackTrace();
+
+			indicator.setText(entry.getFile().getPath());
+			entry.prepare();
+
+			++unitsDone;
+			indicator.setFraction(1.0 * unitsDone / unitsTotalFinal);
+		}
+
+		// all slices will be merged into a single command, which can be undone at once
+		final Object commandGroup = new Object();
+		entriesApplied = 0;
+
+		while(entriesApplied < entries.size() && !indicator.isCanceled()) {
+			ApplicationManager.getApplication().invokeAndWait(
+					() -> CommandProcessor.getInstance().executeCommand(
+							project,
+							() -> ApplicationManager.getApplication().runWriteAction(
+									() -> applySlice(entries, indicator, unitsTotalFinal)
+							),
+							TITLE,
+							commandGroup
+					),
+					indicator.getModalityState()
+			);
+		}
+
+		List<FixFileEntry> conflicting = new ArrayList<>();
+		int conflictsTotal = 0;
+
+		for(FixFileEntry entry : entries.subList(0, entriesApplied)) {
+			if (entry.getResult() == FixFileEntry.Result.Partial) {
+				conflicting.add(entry);
+				conflictsTotal += entry.getConflicts().size();
 			}
+		}
+
+		Log.clangtidy.info(
+				"Applied fixes of " + entriesApplied + " of " + entries.size() + " files"
+			+	" (" + conflictsTotal + " conflicting changes skipped in " + conflicting.size() + " files)"
+		);
 
-			indicator.setFraction(1.0 * filesApplied / filesTotal);
+		if (!conflicting.isEmpty()) {
+			NotificationFactory.notifyFixesConflicting(project, conflicting);
 		}
 
+		indicator.setFraction(1.0);
 		indicator.setText("Done");
+	}
+
+
+	/**
+	 * Applies entries until the time slice is used up. Invoked within a write action on the UI thread.
+	 */
+	private void applySlice(@NotNull List<FixFileEntry> entries, @NotNull ProgressIndicator indicator, long unitsTotal) {
+		// the task may have been cancelled while this slice was waiting for the UI thread
+		if (indicator.isCanceled()) {
+			return;
+		}
+
+		long deadline = System.currentTimeMillis() + TIME_SLICE_MILLIS;
+
+		do {
+			FixFileEntry entry = entries.get(entriesApplied++);
+			FixFileEntry.Result result;
 
-		try {
-			Thread.sleep(1000);
+			indicator.setText(entry.getFile().getPath());
+
+			Document document = FileDocumentManager.getInstance().getDocument(entry.getFile());
+			if (document == null) {
+				entry.setResult(FixFileEntry.Result.Failed);
+				result = FixFileEntry.Result.Failed;
+			}
+			else if (entry.getChanges().size() >= BULK_MODE_MIN_CHANGES) {
+				FixFileEntry.Result[] bulkResult = new FixFileEntry.Result[1];
+				DocumentUtil.executeInBulk(document, true, () -> bulkResult[0] = entry.applyToDocument(document));
+				result = bulkResult[0];
+			}
+			else {
+				result = entry.applyToDocument(document);
+			}
+
+			notifyApplied(entry, result);
+
+			unitsDone += entry.getChanges().size();
+			indicator.setFraction(1.0 * unitsDone / unitsTotal);
 		}
-		catch (InterruptedException e) {
-			e.printStackTrace();
+		while(
+				entriesApplied < entries.size()
+			&&	System.currentTimeMillis() < deadline
+			&&	!indicator.isCanceled()
+		);
+	}
+
+
+	private void notifyApplied(@NotNull FixFileEntry entry, @Nullable FixFileEntry.Result result) {
+		if (onAppliedCallback != null) {
+			onAppliedCallback.onApplied(entry, result);
 		}
 	}
 }
@@ -0,0 +1,550 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.util.SystemInfo;
+import de.wieselbau.util.json.JsonReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides access to the entries of a compile_commands.json file.
+ * Instead of keeping all entries in memory, the file will be read once to create
+ * an index of the byte offset of each file's entry. Entries will be read from
+ * this offset on demand. The index will be kept until the file gets modified.
+ */
+public class CompileCommandsDatabase {
+	private final static int MAX_CACHED_ENTRIES = 1024;
+
+	private final static Map<String,CompileCommandsDatabase> instances = new ConcurrentHashMap<>();
+
+	private final File					file;
+	private final long					lastModified;
+	private final long					length;
+	private final Map<String,Location>	locations		= new HashMap<>();
+
+	private final Map<String,Entry>		cachedEntries	= new LinkedHashMap<String,Entry>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+			return size() > MAX_CACHED_ENTRIES;
+		}
+	};
+
+
+	/**
+	 * The location of an entry within the file.
+	 */
+	private static class Location {
+		final String	path;
+		final long		offset;
+		final int		length;
+
+		Location(@NotNull String path, long offset, int length) {
+			this.path	= path;
+			this.offset	= offset;
+			this.length	= length;
+		}
+	}
+
+
+	/**
+	 * A single compile command of the database.
+	 */
+	public static class Entry {
+		private final File			directory;
+		private final File			file;
+		private final List<String>	arguments;
+
+		private List<File>			quoteIncludePaths;
+		private List<File>			angledIncludePaths;
+		private List<File>			systemIncludePaths;
+
+
+		public Entry(@NotNull File directory, @NotNull File file, @NotNull List<String> arguments) {
+			this.directory	= directory;
+			this.file		= file;
+			this.arguments	= arguments;
+		}
+
+
+		public @NotNull File getDirectory() {
+			return directory;
+		}
+
+		public @NotNull File getFile() {
+			return file;
+		}
+
+		public @NotNull List<String> getArguments() {
+			return Collections.unmodifiableList(arguments);
+		}
+
+
+		/**
+		 * Get the directories searched for files included with quotes,
+		 * not including the directory of the including file.
+		 */
+		public synchronized @NotNull List<File> getQuoteIncludePaths() {
+			if (quoteIncludePaths == null) {
+				collectIncludePaths();
+			}
+
+			return quoteIncludePaths;
+		}
+
+
+		/**
+		 * Get the directories searched for files included with angle brackets.
+		 */
+		public synchronized @NotNull List<File> getAngledIncludePaths() {
+			if (angledIncludePaths == null) {
+				collectIncludePaths();
+			}
+
+			return angledIncludePaths;
+		}
+
+
+		/**
+		 * Get the directories of system headers, given by -isystem or -idirafter.
+		 */
+		public synchronized @NotNull List<File> getSystemIncludePaths() {
+			if (systemIncludePaths == null) {
+				collectIncludePaths();
+			}
+
+			return systemIncludePaths;
+		}
+
+
+		private void collectIncludePaths() {
+			List<File> quote		= new ArrayList<>();
+			List<File> user			= new ArrayList<>();
+			List<File> system		= new ArrayList<>();
+			List<File> after		= new ArrayList<>();
+
+			for(int i=0; i<arguments.size(); i++) {
+				String argument = arguments.get(i);
+				List<File> target;
+				String option;
+
+				if (argument.startsWith("-iquote")) {
+					option = "-iquote";
+					target = quote;
+				}
+				else if (argument.startsWith("-isystem")) {
+					option = "-isystem";
+					target = system;
+				}
+				else if (argument.startsWith("-idirafter")) {
+					option = "-idirafter";
+					target = after;
+				}
+				else if (argument.startsWith("-I") || argument.startsWith("/I")) {
+					option = argument.substring(0, 2);
+					target = user;
+				}
+				else {
+					continue;
+				}
+
+				String path = argument.substring(option.length());
+				if (path.isEmpty() && i + 1 < arguments.size()) {
+					path = arguments.get(++i);
+				}
+
+				if (!path.isEmpty()) {
+					File dir = new File(path);
+					target.add(dir.isAbsolute() ? dir : new File(directory, path));
+				}
+			}
+
+			// search order of gcc and clang: -iquote, -I, -isystem, -idirafter
+			angledIncludePaths = new ArrayList<>();
+			angledIncludePaths.addAll(user);
+			angledIncludePaths.addAll(system);
+			angledIncludePaths.addAll(after);
+
+			quoteIncludePaths = new ArrayList<>(quote);
+			quoteIncludePaths.addAll(angledIncludePaths);
+
+			systemIncludePaths = new ArrayList<>(system);
+			systemIncludePaths.addAll(after);
+		}
+	}
+
+
+	private CompileCommandsDatabase(@NotNull File file) {
+		this.file			= file;
+		this.lastModified	= file.lastModified();
+		this.length			= file.length();
+	}
+
+
+	/**
+	 * Get the database of a compile_commands.json file.
+	 * The file will be indexed again, when it was modified since it was indexed the last time.
+	 */
+	public static @NotNull CompileCommandsDatabase getInstance(@NotNull File file) throws IOException {
+		String key = file.getAbsolutePath();
+		CompileCommandsDatabase database = instances.get(key);
+
+		if (database == null || !database.isUpToDate()) {
+			synchronized(CompileCommandsDatabase.class) {
+				database = instances.get(key);
+
+				if (database == null || !database.isUpToDate()) {
+					long startTime = System.currentTimeMillis();
+
+					database = new CompileCommandsDatabase(file);
+					database.createIndex();
+
+					instances.put(key, database);
+
+					Log.clangtidy.info(
+							"Indexed " + database.size() + " compile commands of " + file
+						+	" in " + (System.currentTimeMillis() - startTime) + "ms"
+					);
+				}
+			}
+		}
+
+		return database;
+	}
+
+
+	/**
+	 * Checks whether there's an index of a compile_commands.json file, which is up to date.
+	 */
+	public static boolean isIndexed(@NotNull File file) {
+		CompileCommandsDatabase database = instances.get(file.getAbsolutePath());
+		return database != null && database.isUpToDate();
+	}
+
+
+	public @NotNull File getFile() {
+		return file;
+	}
+
+
+	/**
+	 * Checks whether the file was not modified since the database was loaded.
+	 */
+	public boolean isUpToDate() {
+		return file.lastModified() == lastModified && file.length() == length;
+	}
+
+
+	/**
+	 * Checks whether the database contains a compile command for a source file,
+	 * without reading the entry.
+	 */
+	public boolean contains(@NotNull String path) {
+		return locations.containsKey(normalizePath(path));
+	}
+
+
+	/**
+	 * Find the compile command of a source file.
+	 * @return The entry of the file, or {@code null} if the database contains no command for this file.
+	 */
+	public @Nullable Entry findEntry(@NotNull String path) throws IOException {
+		String key = normalizePath(path);
+		Location location = locations.get(key);
+
+		if (location == null) {
+			return null;
+		}
+
+		synchronized(cachedEntries) {
+			Entry entry = cachedEntries.get(key);
+			if (entry != null) {
+				return entry;
+			}
+		}
+
+		Entry entry;
+		try(JsonReader reader = JsonReader.open(file, location.offset)) {
+			entry = readEntry(reader);
+		}
+
+		if (entry == null) {
+			throw new IOException("No valid compile command found at offset " + location.offset + " of " + file);
+		}
+
+		synchronized(cachedEntries) {
+			cachedEntries.put(key, entry);
+		}
+
+		return entry;
+	}
+
+
+	public int size() {
+		return locations.size();
+	}
+
+
+	/**
+	 * Get the paths of all source files with a compile command.
+	 * @return The paths as found in the database, which may be used to find the files.
+	 *          Use {@link #normalizePath(String)} to compare them.
+	 */
+	public @NotNull List<String> getPaths() {
+		List<String> paths = new ArrayList<>(locations.size());
+		for(Location location : locations.values()) {
+			paths.add(location.path);
+		}
+
+		return paths;
+	}
+
+
+	/**
+	 * Writes a new compile_commands.json containing only the entries of the given files.
+	 * The entries will be copied unmodified from the original file.
+	 * @param paths			The files whose entries should be written.
+	 * @param targetFile	The file to be written.
+	 * @return The number of entries written.
+	 */
+	public int writeSubset(@NotNull Collection<String> paths, @NotNull File targetFile) throws IOException {
+		int count = 0;
+
+		try(
+				RandomAccessFile in = new RandomAccessFile(file, "r");
+				OutputStream out = new BufferedOutputStream(new FileOutputStream(targetFile))
+		) {
+			out.write('[');
+
+			for(String path : paths) {
+				Location location = locations.get(normalizePath(path));
+				if (location == null) {
+					continue;
+				}
+
+				byte[] data = new byte[location.length];
+				in.seek(location.offset);
+				in.readFully(data);
+
+				out.write(count == 0 ? '\n' : ',');
+				if (count != 0) {
+					out.write('\n');
+				}
+
+				out.write(data);
+				++count;
+			}
+
+			out.write('\n');
+			out.write(']');
+			out.write('\n');
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Reads the whole file once, storing the offset of each file's entry.
+	 * Only the file names will be decoded, all other values will be skipped.
+	 */
+	private void createIndex() throws IOException {
+		try(JsonReader reader = new JsonReader(new FileInputStream(file))) {
+			reader.beginArray();
+
+			while(reader.hasNext()) {
+				long offset = reader.getTokenOffset();
+				File sourceFile = readEntryFile(reader);
+				long length = reader.getOffset() - offset;
+
+				// like clang-tidy, use the first command of a file, if there are multiple ones
+				if (sourceFile != null && length <= Integer.MAX_VALUE) {
+					locations.putIfAbsent(normalizePath(sourceFile.getPath()), new Location(sourceFile.getPath(), offset, (int)length));
+				}
+			}
+
+			reader.endArray();
+		}
+	}
+
+
+	private static @Nullable File readEntryFile(@NotNull JsonReader reader) throws IOException {
+		String directory	= null;
+		String file			= null;
+
+		reader.beginObject();
+
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+
+			if ("directory".equals(name) && reader.peek() == JsonReader.Token.String) {
+				directory = reader.nextString();
+			}
+			else if ("file".equals(name) && reader.peek() == JsonReader.Token.String) {
+				file = reader.nextString();
+			}
+			else {
+				reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		if (directory == null || file == null) {
+			return null;
+		}
+
+		File sourceFile = new File(file);
+		return sourceFile.isAbsolute() ? sourceFile : new File(directory, file);
+	}
+
+
+	static @Nullable Entry readEntry(@NotNull JsonReader reader) throws IOException {
+		String directory		= null;
+		String file				= null;
+		String command			= null;
+		List<String> arguments	= null;
+
+		reader.beginObject();
+
+		while(reader.hasNext()) {
+			String name = reader.nextName();
+
+			if ("directory".equals(name) && reader.peek() == JsonReader.Token.String) {
+				directory = reader.nextString();
+			}
+			else if ("file".equals(name) && reader.peek() == JsonReader.Token.String) {
+				file = reader.nextString();
+			}
+			else if ("command".equals(name) && reader.peek() == JsonReader.Token.String) {
+				command = reader.nextString();
+			}
+			else if ("arguments".equals(name) && reader.peek() == JsonReader.Token.BeginArray) {
+				arguments = new ArrayList<>();
+				reader.beginArray();
+
+				while(reader.hasNext()) {
+					if (reader.peek() == JsonReader.Token.String) {
+						arguments.add(reader.nextString());
+					}
+					else {
+						reader.skipValue();
+					}
+				}
+
+				reader.endArray();
+			}
+			else {
+				reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		if (directory == null || file == null) {
+			return null;
+		}
+
+		if (arguments == null) {
+			arguments = command != null ? splitCommandLine(command) : Collections.emptyList();
+		}
+
+		File sourceFile = new File(file);
+		if (!sourceFile.isAbsolute()) {
+			sourceFile = new File(directory, file);
+		}
+
+		return new Entry(new File(directory), sourceFile, arguments);
+	}
+
+
+	/**
+	 * Splits a command line into its arguments, respecting quotes and backslash escapes.
+	 */
+	static @NotNull List<String> splitCommandLine(@NotNull String command) {
+		List<String> arguments = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		boolean inArgument = false;
+		char quote = 0;
+
+		for(int i=0; i<command.length(); i++) {
+			char c = command.charAt(i);
+
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+				else if (c == '\\' && quote == '"' && i + 1 < command.length() && isEscapable(command.charAt(i + 1))) {
+					current.append(command.charAt(++i));
+				}
+				else {
+					current.append(c);
+				}
+			}
+			else if (c == '"' || c == '\'') {
+				quote = c;
+				inArgument = true;
+			}
+			else if (c == '\\' && i + 1 < command.length() && isEscapable(command.charAt(i + 1))) {
+				current.append(command.charAt(++i));
+				inArgument = true;
+			}
+			else if (Character.isWhitespace(c)) {
+				if (inArgument) {
+					arguments.add(current.toString());
+					current.setLength(0);
+					inArgument = false;
+				}
+			}
+			else {
+				current.append(c);
+				inArgument = true;
+			}
+		}
+
+		if (inArgument) {
+			arguments.add(current.toString());
+		}
+
+		return arguments;
+	}
+
+
+	private static boolean isEscapable(char c) {
+		// backslashes followed by other characters are kept, like windows path separators
+		return c == '"' || c == '\\' || c == '\'' || c == ' ';
+	}
+
+
+	/**
+	 * Normalizes a path to be used as a key to lookup files.
+	 */
+	public static @NotNull String normalizePath(@NotNull String path) {
+		String normalized = new File(path).toPath().normalize().toString().replace('\\', '/');
+		return SystemInfo.isFileSystemCaseSensitive ? normalized : normalized.toLowerCase(Locale.ROOT);
+	}
+}
@@ -28,6 +28,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -55,6 +56,17 @@ public class Fix {
 		}
 
 
+		/**
+		 * Creates a copy of this change, whose range may be modified independently.
+		 */
+		public @NotNull Change copy() {
+			Change copy = new Change(file, range, replacement);
+			copy.original = original;
+
+			return copy;
+		}
+
+
 		public File getFile() {
 			return file;
 		}
@@ -103,6 +115,13 @@ public class Fix {
 		}
 
 
+		@Override
+		public int hashCode() {
+			// the range is not included, because it may be moved after the change was stored
+			return Objects.hash(file, replacement);
+		}
+
+
 		@Override
 		public String toString() {
 			return
@@ -135,6 +154,27 @@ public class Fix {
 	}
 
 
+	/**
+	 * Creates a copy of this fix with copies of all its changes,
+	 * so the ranges of both may be translated independently before applying them.
+	 */
+	public @NotNull Fix copy() {
+		List<Change> copiedChanges = new ArrayList<>(changes.size());
+		for(Change change : changes) {
+			copiedChanges.add(change.copy());
+		}
+
+		Fix copy = diagnosticName != null
+				? new Fix(diagnosticName, copiedChanges)
+				: new Fix(copiedChanges.get(0))
+		;
+
+		copy.issue = issue;
+
+		return copy;
+	}
+
+
 	public String getDiagnosticName() {
 		return diagnosticName;
 	}
@@ -192,6 +232,12 @@ public class Fix {
 	}
 
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(diagnosticName, issue, changes);
+	}
+
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
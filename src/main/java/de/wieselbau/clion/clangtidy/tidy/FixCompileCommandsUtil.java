@@ -130,7 +130,7 @@ public class FixCompileCommandsUtil {
 
 	public static boolean needsToFixWindowsPaths(@NotNull File compileCommandsFile) {
 		if (SystemInfo.isWindows) {
-			try(InputStream in = new FileInputStream(compileCommandsFile)) {
+			try(InputStream in = new BufferedInputStream(new FileInputStream(compileCommandsFile))) {
 				int c;
 
 				while((c = in.read()) != -1) {
@@ -33,8 +33,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -55,6 +53,10 @@ public class FixFileEntry {
 
 	public enum Result {
 		Successful,
+
+		/** Some changes could not be applied, see {@link FixFileEntry#getConflicts()}. */
+		Partial,
+
 		Failed,
 	}
 
@@ -65,6 +67,7 @@ public class FixFileEntry {
 	private Result				result;
 	private boolean				selected;
 	private boolean				prepared;
+	private List<Fix.Change>	conflicts;
 
 
 	public FixFileEntry(@NotNull VirtualFile file) {
@@ -73,6 +76,7 @@ public class FixFileEntry {
 		this.changes	= new ArrayList<>();
 		this.selected	= false;
 		this.prepared	= false;
+		this.conflicts	= Collections.emptyList();
 	}
 
 
@@ -124,95 +128,45 @@ public class FixFileEntry {
 
 
 
-	private static boolean areSequencesEqual(CharSequence s1, CharSequence s2) {
-		int length1 = s1.length();
-		int length2 = s2.length();
-
-		if (length1 != length2) {
-			return false;
-		}
-
-		for(int i=0; i<length1; i++) {
-			if (s1.charAt(i) != s2.charAt(i)) {
-				return false;
-			}
-		}
-
-		return true;
-	}
-
-
+	/**
+	 * Passes all applicable changes to a consumer, which applies them to the content.
+	 * The range of each change is relative to the content after all previous changes were applied.
+	 */
 	public void patch(@NotNull CharSequence content, @NotNull BiConsumer<TextRange,String> consumer) {
 		prepare();
 
-		int offset = 0;
-
-		for(Fix.Change change : changes) {
-			int startOffset          = offset + change.getTextRange().getStartOffset();
-			int endOffsetOriginal    = offset + change.getTextRange().getEndOffset();
-			int endOffsetReplacement = offset + change.getTextRange().getStartOffset() + change.getReplacement().length();
-
-			if ((startOffset >= content.length()) || (endOffsetOriginal >= content.length())) {
-				throw new IndexOutOfBoundsException("Cannot apply fix " + change.toString());
-			}
-
-			boolean hasOriginalContent = (
-					(endOffsetOriginal < content.length())
-				&&	(areSequencesEqual(CharBuffer.wrap(content, startOffset, endOffsetOriginal), change.getOriginal()))
-			);
-
-			boolean hasReplacementContent = (
-					(endOffsetReplacement < content.length())
-				&&	(areSequencesEqual(CharBuffer.wrap(content, startOffset, endOffsetReplacement), change.getReplacement()))
-			);
-
-			boolean canBeApplied = false;
+		FixPatcher patcher = new FixPatcher(changes);
+		patcher.patch(content, consumer);
+		reportConflicts(patcher);
+	}
 
-			if (startOffset < endOffsetOriginal && hasOriginalContent) {
-				canBeApplied = true;
-			}
 
-			if (startOffset < endOffsetReplacement && !hasReplacementContent) {
-				canBeApplied = true;
-			}
+	public String createPatchedContent(@NotNull CharSequence original) {
+		prepare();
 
-			if (canBeApplied) {
-				consumer.accept(
-						TextRange.create(startOffset, endOffsetOriginal),
-						change.getReplacement()
-				);
-
-				// check if change is within the content char sequence
-				assert areSequencesEqual(
-						CharBuffer.wrap(content, startOffset, endOffsetReplacement),
-						change.getReplacement()
-				);
-			}
+		FixPatcher patcher = new FixPatcher(changes);
+		String patched = patcher.createPatchedContent(original);
+		reportConflicts(patcher);
 
-			// offsets will have changed after applying other changes
-			offset -= change.getTextRange().getLength();
-			offset += change.getReplacement().length();
-		}
+		return patched;
 	}
 
 
-	public String createPatchedContent(@NotNull CharSequence original) {
-		prepare();
+	/**
+	 * Get the changes, which could not be applied during the last patch,
+	 * because their original text was not found or they were overlapping other changes.
+	 */
+	public List<Fix.Change> getConflicts() {
+		return Collections.unmodifiableList(conflicts);
+	}
 
-		final StringBuilder content = new StringBuilder(original);
 
-		patch(
-				content,
-				(TextRange range, String replacement) -> {
-					content.replace(
-							range.getStartOffset(),
-							range.getEndOffset(),
-							replacement
-					);
-				}
-		);
+	private void reportConflicts(@NotNull FixPatcher patcher) {
+		conflicts = patcher.getConflicts();
 
-		return content.toString();
+		for(Fix.Change change : conflicts) {
+			Log.clangtidy.warn("Cannot apply fix " + change.toString());
+		}
 	}
 
 
@@ -223,6 +177,8 @@ public class FixFileEntry {
 	 * If the entry already has a result assigned, it will be skipped and apply will return {@code null}.
 	 * @param project    The current project.
 	 * @return {@link Result#Successful} when applied all changes successfully.
+	 *         {@link Result#Partial} when some changes were conflicting and have been skipped.
+	 *         {@link Result#Failed} when the file's document could not be loaded.
 	 *         {@code null} if this entry was skipped.
 	 */
 	public @Nullable Result apply(@NotNull Project project) {
@@ -239,30 +195,59 @@ public class FixFileEntry {
 				() -> {
 					Document document = FileDocumentManager.getInstance().getDocument(file);
 					if (document == null) {
+						setResult(Result.Failed);
 						return;
 					}
 
-					patch(
-							document.getCharsSequence(),
-							(TextRange range, String replacement) -> {
-								document.replaceString(
-										range.getStartOffset(),
-										range.getEndOffset(),
-										replacement
-								);
-							}
+					applyToDocument(document);
+				}
+		);
+
+		return getResult();
+	}
+
+
+	/**
+	 * Applies this entries fixes to the document of it's file.
+	 * Unlike {@link #apply(Project)}, this needs to be invoked within a command and a write action,
+	 * so multiple entries may be applied within a single command.
+	 * @param document   The document of this entry's file.
+	 * @return {@link Result#Successful} when applied all changes successfully.
+	 *         {@link Result#Partial} when some changes were conflicting and have been skipped.
+	 *         {@code null} if this entry was skipped.
+	 */
+	public @Nullable Result applyToDocument(@NotNull Document document) {
+		if (getResult() != null) {
+			return null;
+		}
+
+		prepare();
+
+		patch(
+				document.getCharsSequence(),
+				(TextRange range, String replacement) -> {
+					document.replaceString(
+							range.getStartOffset(),
+							range.getEndOffset(),
+							replacement
 					);
 				}
 		);
 
-		setResult(Result.Successful);
+		Result result = conflicts.isEmpty() ? Result.Successful : Result.Partial;
+		setResult(result);
 
-		return Result.Successful;
+		return result;
 	}
 
 
 
-	private void prepare() {
+	/**
+	 * Reads the file's content to translate the offsets of all changes.
+	 * Will be done automatically before applying the changes, but may be invoked
+	 * ahead on a background thread, to keep this work away from the UI thread.
+	 */
+	public void prepare() {
 		if (prepared) {
 			return;
 		}
@@ -270,65 +255,18 @@ public class FixFileEntry {
 		// ensure, all fixes are sorted in ascending order
 		changes.sort(Comparator.comparingInt(change -> change.getTextRange().getStartOffset()));
 
-		// since Intellij uses only \n for linebreaks, but clang-tidy is using the file's native
-		// linebreak style for it's offsets, we have to convert them into \n linebreak offsets
-		try(InputStream in = file.getInputStream()) {
-			List<Integer> ignorableLineFeeds = new ArrayList<>();
-			List<Integer> lineOffsets        = new ArrayList<>();
-			StringBuilder content            = new StringBuilder();
-
-			{
-				int currentOffset = 0;
-				int lastByte      = -1;
-				int b;
-
-				lineOffsets.add(0);
-
-				while((b = in.read()) != -1) {
-					content.append((char)b);
-					++currentOffset;
-
-					if (b == '\n') {
-						lineOffsets.add(currentOffset);
-
-						// after a combination of \r and \n, the \r has to be ignored
-						if (lastByte == '\r') {
-							ignorableLineFeeds.add(currentOffset);
-						}
-					}
-
-					lastByte = b;
-				}
-			}
+		// clang-tidy uses byte offsets based on the file's native linebreak style,
+		// which have to be converted into char offsets of the document using \n linebreaks
+		try {
+			OffsetTranslationIndex index = OffsetTranslationIndex.create(file);
+			String content = index.getText();
 
 			for(Fix.Change change : changes) {
-				final int startOffset = change.getTextRange().getStartOffset();
-				final int endOffset   = change.getTextRange().getEndOffset();
-
-				long startOffsetCorrection = ignorableLineFeeds.stream().filter((Integer i) -> (i <= startOffset)).count();
-				long endOffsetCorrection   = ignorableLineFeeds.stream().filter((Integer i) -> (i <= endOffset)).count();
-
-				change.setTextRange(TextRange.create(
-						(int)(startOffset - startOffsetCorrection),
-						(int)(endOffset   - endOffsetCorrection)
-				));
-
-				change.setOriginal(content.substring(startOffset, endOffset).replace("\r\n", "\n").replace('\r', '\n'));
-				assert(change.getOriginal().length() == change.getTextRange().getLength());
-
-				/*
-				// try to assign issues to each fix
-				for(Issue issue : issues) {
-					if (lineOffsets.size() >= issue.getLineNumber()) {
-						int lineOffset = lineOffsets.get(issue.getLineNumber() - 1);
-						int offset     = lineOffset + issue.getLineColumn() - 1;
-
-						if (change.getTextRange().getStartOffset() == offset) {
-							change.setIssue(issue);
-						}
-					}
-				}
-				*/
+				int startOffset = index.toCharOffset(change.getTextRange().getStartOffset());
+				int endOffset   = index.toCharOffset(change.getTextRange().getEndOffset());
+
+				change.setTextRange(TextRange.create(startOffset, endOffset));
+				change.setOriginal(content.substring(startOffset, endOffset));
 			}
 
 			prepared = true;
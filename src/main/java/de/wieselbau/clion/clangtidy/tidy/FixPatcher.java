@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.util.TextRange;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Applies the changes of a single file to its content in a single forward pass.
+ *
+ * The changes have to be sorted by their offsets, which refer to the content before any
+ * change was applied, and need to know their original text.
+ * Each change will be applied, if its original text is found at its offset. Changes,
+ * which replacement is found there instead, are considered to be applied already.
+ * Any other change, as well as changes overlapping a previous one, will be reported
+ * as conflict and skipped.
+ */
+public class FixPatcher {
+	private final List<Fix.Change>	changes;
+	private final List<Fix.Change>	conflicts		= new ArrayList<>();
+
+
+	/**
+	 * @param changes	The changes to be applied, sorted by their start offset.
+	 */
+	public FixPatcher(@NotNull List<Fix.Change> changes) {
+		this.changes = changes;
+	}
+
+
+	/**
+	 * Get the changes, which could not be applied during the last pass.
+	 */
+	public @NotNull List<Fix.Change> getConflicts() {
+		return Collections.unmodifiableList(conflicts);
+	}
+
+
+	/**
+	 * Creates a copy of the content with all applicable changes.
+	 */
+	public @NotNull String createPatchedContent(@NotNull CharSequence content) {
+		List<Fix.Change> applicable = new ArrayList<>(changes.size());
+		int[] startOffsets = new int[changes.size()];
+		int growth = findApplicableChanges(content, applicable, startOffsets);
+
+		StringBuilder sb = new StringBuilder(Math.max(0, content.length() + growth));
+		int position = 0;
+
+		for(int i=0; i<applicable.size(); i++) {
+			Fix.Change change = applicable.get(i);
+			int startOffset = startOffsets[i];
+
+			sb.append(content, position, startOffset);
+			sb.append(change.getReplacement());
+
+			position = startOffset + change.getTextRange().getLength();
+		}
+
+		sb.append(content, position, content.length());
+
+		return sb.toString();
+	}
+
+
+	/**
+	 * Passes all applicable changes to a consumer, which applies them to the content.
+	 * The range of each change is relative to the content after all previous changes were applied.
+	 * All changes are checked before passing the first one to the consumer,
+	 * so the consumer may modify the content.
+	 */
+	public void patch(@NotNull CharSequence content, @NotNull BiConsumer<TextRange,String> consumer) {
+		List<Fix.Change> applicable = new ArrayList<>(changes.size());
+		int[] startOffsets = new int[changes.size()];
+		findApplicableChanges(content, applicable, startOffsets);
+
+		int shift = 0;
+
+		for(int i=0; i<applicable.size(); i++) {
+			Fix.Change change = applicable.get(i);
+			int startOffset = startOffsets[i] + shift;
+			int length = change.getTextRange().getLength();
+
+			consumer.accept(TextRange.create(startOffset, startOffset + length), change.getReplacement());
+
+			shift += change.getReplacement().length() - length;
+		}
+	}
+
+
+	/**
+	 * Checks which changes can be applied to the content, without modifying it.
+	 * @param applicable	Receives all changes to be applied.
+	 * @param startOffsets	Receives the start offset within the content of each applicable change.
+	 * @return The difference in length between the patched and the original content.
+	 */
+	private int findApplicableChanges(
+			@NotNull CharSequence content,
+			@NotNull List<Fix.Change> applicable,
+			@NotNull int[] startOffsets
+	) {
+		conflicts.clear();
+
+		// changes found already applied will have moved all following text
+		int shift = 0;
+		int growth = 0;
+		int previousEnd = 0;
+
+		for(Fix.Change change : changes) {
+			int startOffset			= change.getTextRange().getStartOffset() + shift;
+			int length				= change.getTextRange().getLength();
+			String original			= change.getOriginal() != null ? change.getOriginal() : "";
+			String replacement		= change.getReplacement();
+
+			if (startOffset < previousEnd || startOffset + length > content.length()) {
+				conflicts.add(change);
+				continue;
+			}
+
+			boolean hasOriginal		= original.length() == length && regionMatches(content, startOffset, original);
+			boolean hasReplacement	= regionMatches(content, startOffset, replacement);
+
+			if (length == 0 ? !hasReplacement : hasOriginal) {
+				startOffsets[applicable.size()] = startOffset;
+				applicable.add(change);
+
+				growth += replacement.length() - length;
+				previousEnd = startOffset + length;
+			}
+			else if (hasReplacement) {
+				shift += replacement.length() - length;
+				previousEnd = startOffset + replacement.length();
+			}
+			else {
+				conflicts.add(change);
+			}
+		}
+
+		return growth;
+	}
+
+
+	/**
+	 * Compares a part of the content with the expected text, without copying it.
+	 */
+	private static boolean regionMatches(@NotNull CharSequence content, int offset, @NotNull CharSequence expected) {
+		int length = expected.length();
+
+		if (offset < 0 || offset + length > content.length()) {
+			return false;
+		}
+
+		for(int i=0; i<length; i++) {
+			if (content.charAt(offset + i) != expected.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -28,6 +28,7 @@ import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -47,9 +48,12 @@ public class FixProjectHelper {
 		ProjectFileIndex projectFileIndex = ProjectFileIndex.SERVICE.getInstance(project);
 		Map<VirtualFile,FixFileEntry> fixesPerFile = new HashMap<>();
 
+		// most changes refer to the same few files, so each of them will be looked up only once
+		Map<File,VirtualFile> virtualFiles = new HashMap<>();
+
 		for(Fix fix : scannerResult.getFixes()) {
 			for(Fix.Change change : fix.getChanges()) {
-				VirtualFile file = change.findVirtualFile();
+				VirtualFile file = virtualFiles.computeIfAbsent(change.getFile(), f -> change.findVirtualFile());
 				FixFileEntry target;
 
 				assert file != null;
@@ -66,13 +70,9 @@ public class FixProjectHelper {
 			}
 		}
 
-		for(Issue issue : scannerResult.getIssues()) {
-			VirtualFile file = issue.getSourceFile();
-			FixFileEntry target;
-
-			if (fixesPerFile.containsKey(file)) {
-				target = fixesPerFile.get(file);
-				target.addIssue(issue);
+		for(FixFileEntry entry : fixesPerFile.values()) {
+			for(Issue issue : scannerResult.getIssues(entry.getFile())) {
+				entry.addIssue(issue);
 			}
 		}
 
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import de.wieselbau.clion.clangtidy.Options;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Selects the headers, which clang-tidy should report diagnostics for.
+ *
+ * By default, these are all headers within the content roots of the project,
+ * so clang-tidy doesn't produce any output for system or third party headers.
+ * Additional directories to be included or excluded may be configured in the options.
+ *
+ * clang-tidy names headers by the path they were found with, which is relative when
+ * found via a relative include directory. Those can't be matched against the directories,
+ * so headers with relative paths will always be reported, even within excluded directories.
+ * Content roots reached via symbolic links are included with their resolved path as well.
+ */
+public class HeaderFilter {
+	/**
+	 * The first version of clang-tidy supporting -exclude-header-filter.
+	 * Older versions will report headers of excluded directories,
+	 * which will be dropped while parsing the output instead.
+	 */
+	public final static int MIN_EXCLUDE_HEADER_FILTER_VERSION	= 19;
+
+	/**
+	 * Characters with a special meaning in regular expressions used by clang-tidy.
+	 */
+	private final static String REGEX_SPECIAL_CHARS		= ".[]{}()\\*+?^$|";
+
+	/**
+	 * Matches relative paths, which neither start with a separator nor a drive letter.
+	 * Regular expressions of clang-tidy don't support lookahead, so the first path
+	 * segment must not contain a colon.
+	 */
+	private final static String RELATIVE_PATH_REGEX		= "^[^/\\\\:]+([/\\\\]|$)";
+
+	private final List<String>		includeDirectories;
+	private final List<String>		excludeDirectories;
+
+
+	/**
+	 * Creates the header filter for a project, including its content roots and
+	 * all directories configured in the options.
+	 * Needs to be called within a read action.
+	 */
+	public static @NotNull HeaderFilter create(@NotNull Project project) {
+		List<String> includeDirectories = new ArrayList<>();
+
+		for(VirtualFile root : ProjectRootManager.getInstance(project).getContentRoots()) {
+			includeDirectories.add(root.getPath());
+
+			// clang-tidy reports the resolved path of symbolic links
+			try {
+				includeDirectories.add(new File(root.getPath()).getCanonicalPath());
+			}
+			catch(IOException e) {
+				Log.clangtidy.debug("Failed to resolve " + root.getPath() + ": " + e.getMessage());
+			}
+		}
+
+		includeDirectories.addAll(resolve(project, Options.getHeaderIncludeDirectories()));
+
+		return new HeaderFilter(
+				includeDirectories,
+				resolve(project, Options.getHeaderExcludeDirectories())
+		);
+	}
+
+
+	/**
+	 * @param includeDirectories	Directories, which headers should be reported. Reports all headers, if empty.
+	 * @param excludeDirectories	Directories, which headers should never be reported.
+	 */
+	public HeaderFilter(@NotNull Collection<String> includeDirectories, @NotNull Collection<String> excludeDirectories) {
+		this.includeDirectories = normalize(includeDirectories);
+		this.excludeDirectories = normalize(excludeDirectories);
+	}
+
+
+	public @NotNull List<String> getIncludeDirectories() {
+		return Collections.unmodifiableList(includeDirectories);
+	}
+
+
+	public @NotNull List<String> getExcludeDirectories() {
+		return Collections.unmodifiableList(excludeDirectories);
+	}
+
+
+	/**
+	 * Get the regular expression to be passed via -header-filter.
+	 * Besides the included directories, this matches all headers named by a relative path.
+	 */
+	public @NotNull String getHeaderFilterRegex() {
+		if (includeDirectories.isEmpty()) {
+			return ".*";
+		}
+
+		return "(" + createRegex(includeDirectories) + "|" + RELATIVE_PATH_REGEX + ")";
+	}
+
+
+	/**
+	 * Get the regular expression to be passed via -exclude-header-filter,
+	 * or {@code null} if no directories are excluded.
+	 */
+	public @Nullable String getExcludeHeaderFilterRegex() {
+		if (excludeDirectories.isEmpty()) {
+			return null;
+		}
+
+		return createRegex(excludeDirectories);
+	}
+
+
+	/**
+	 * Checks whether a file is located within any of the excluded directories.
+	 */
+	public boolean isExcluded(@NotNull String path) {
+		String normalized = path.replace('\\', '/');
+
+		for(String directory : excludeDirectories) {
+			if (normalized.startsWith(directory.endsWith("/") ? directory : directory + '/')) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	private static @NotNull List<String> resolve(@NotNull Project project, @NotNull List<String> directories) {
+		List<String> resolved = new ArrayList<>(directories.size());
+		String basePath = project.getBasePath();
+
+		for(String directory : directories) {
+			File file = new File(directory);
+
+			// relative paths refer to the project's directory
+			if (!file.isAbsolute() && basePath != null) {
+				file = new File(basePath, directory);
+			}
+
+			resolved.add(file.getPath());
+		}
+
+		return resolved;
+	}
+
+
+	private static @NotNull List<String> normalize(@NotNull Collection<String> directories) {
+		List<String> normalized = new ArrayList<>(directories.size());
+
+		for(String directory : directories) {
+			String path = directory.trim().replace('\\', '/');
+
+			while(path.length() > 1 && path.endsWith("/")) {
+				path = path.substring(0, path.length() - 1);
+			}
+
+			if (!path.isEmpty() && !normalized.contains(path)) {
+				normalized.add(path);
+			}
+		}
+
+		return normalized;
+	}
+
+
+	/**
+	 * Creates a regular expression matching all files within any of the given directories.
+	 * Each directory is anchored at the start of the path, so it won't match a directory
+	 * with the same name somewhere else. Directory separators will match both slashes
+	 * and backslashes, as clang-tidy may report either of them on windows.
+	 */
+	private static @NotNull String createRegex(@NotNull List<String> directories) {
+		StringBuilder sb = new StringBuilder();
+		sb.append('(');
+
+		for(int i=0; i<directories.size(); i++) {
+			if (i > 0) {
+				sb.append('|');
+			}
+
+			String directory = directories.get(i);
+			sb.append('^');
+
+			// match the directory's separator, unless it's a root directory ending with one
+			if (!directory.endsWith("/")) {
+				directory += '/';
+			}
+
+			for(int c=0; c<directory.length(); c++) {
+				char ch = directory.charAt(c);
+
+				if (ch == '/') {
+					sb.append("[/\\\\]");
+				}
+				else {
+					if (REGEX_SPECIAL_CHARS.indexOf(ch) != -1) {
+						sb.append('\\');
+					}
+
+					sb.append(ch);
+				}
+			}
+		}
+
+		sb.append(')');
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps track of the headers included by each translation unit of a project.
+ * The headers are found by scanning the #include directives of each file,
+ * resolved by the include paths of the file's compile command. Conditional
+ * compilation is not evaluated, so a translation unit may depend on more
+ * headers than actually used, but never less.
+ * Headers found in system include paths are recorded, but not scanned any further.
+ * Includes of headers given by a macro, or quoted includes not found in any include path,
+ * can't be resolved, so the dependencies of those translation units remain unknown.
+ *
+ * When a header is changed, all translation units including it will be invalidated.
+ * Scanning those again is up to the services using their results.
+ */
+public class IncludeGraph implements Disposable {
+	//language=RegExp
+	private final static Pattern INCLUDE_PATTERN
+			= Pattern.compile("^\\s*#\\s*(?:include|import|include_next)\\b\\s*(?:([<\"])([^>\"]+)[>\"])?");
+
+	private final Map<String,Directives>		directives			= new ConcurrentHashMap<>();
+	private final Map<String,UnitHeaders>		headersOfUnit		= new HashMap<>();
+	private final Map<String,Set<String>>		unitsOfHeader		= new HashMap<>();
+
+
+	/**
+	 * The #include directives of a single file.
+	 */
+	private static class Directives {
+		final long				lastModified;
+		final List<String>		quoted		= new ArrayList<>();
+		final List<String>		angled		= new ArrayList<>();
+		boolean					computed;
+
+		Directives(long lastModified) {
+			this.lastModified = lastModified;
+		}
+	}
+
+
+	/**
+	 * The headers included by a single translation unit.
+	 */
+	private static class UnitHeaders {
+		final String			path;
+		final List<File>		headers;
+		final boolean			complete;
+
+		UnitHeaders(@NotNull String path, @NotNull List<File> headers, boolean complete) {
+			this.path		= path;
+			this.headers	= headers;
+			this.complete	= complete;
+		}
+	}
+
+
+	public static @NotNull IncludeGraph getInstance(@NotNull Project project) {
+		return ServiceManager.getService(project, IncludeGraph.class);
+	}
+
+
+	/**
+	 * Creates a graph not listening to changed files, which need to be invalidated explicitly.
+	 */
+	IncludeGraph() {
+	}
+
+
+	public IncludeGraph(@NotNull Project project) {
+		project.getMessageBus().connect(this).subscribe(
+				VirtualFileManager.VFS_CHANGES,
+				new BulkFileListener() {
+					@Override
+					public void after(@NotNull List<? extends VFileEvent> events) {
+						onFilesChanged(events);
+					}
+				}
+		);
+	}
+
+
+	@Override
+	public void dispose() {
+		directives.clear();
+
+		synchronized(this) {
+			headersOfUnit.clear();
+			unitsOfHeader.clear();
+		}
+	}
+
+
+	/**
+	 * Get all headers included by a translation unit, directly or indirectly.
+	 * @param unit		The source file of the translation unit.
+	 * @param database	The compile commands, providing the include paths of the translation unit.
+	 * @return A list of headers, sorted by their path, or {@code null} if any include could not be
+	 *          resolved, so the translation unit may depend on more headers than known.
+	 */
+	public @Nullable List<File> getHeaders(@NotNull VirtualFile unit, @NotNull CompileCommandsDatabase database) throws IOException {
+		return getHeaders(unit.getPath(), database);
+	}
+
+
+	@Nullable List<File> getHeaders(@NotNull String unitPath, @NotNull CompileCommandsDatabase database) throws IOException {
+		String unitKey = CompileCommandsDatabase.normalizePath(unitPath);
+
+		synchronized(this) {
+			UnitHeaders unitHeaders = headersOfUnit.get(unitKey);
+			if (unitHeaders != null) {
+				return unitHeaders.complete ? unitHeaders.headers : null;
+			}
+		}
+
+		CompileCommandsDatabase.Entry entry = database.findEntry(unitPath);
+		List<File> headers = new ArrayList<>();
+		boolean complete = collectHeaders(
+				new File(unitPath),
+				entry != null ? entry.getQuoteIncludePaths()  : Collections.emptyList(),
+				entry != null ? entry.getAngledIncludePaths() : Collections.emptyList(),
+				entry != null ? new HashSet<>(entry.getSystemIncludePaths()) : Collections.emptySet(),
+				headers
+		);
+
+		if (!complete) {
+			Log.clangtidy.debug("Unresolved includes in " + unitPath + ", dependencies are incomplete");
+		}
+
+		headers = Collections.unmodifiableList(headers);
+
+		synchronized(this) {
+			removeUnit(unitKey);
+			headersOfUnit.put(unitKey, new UnitHeaders(unitPath, headers, complete));
+
+			for(File header : headers) {
+				unitsOfHeader
+						.computeIfAbsent(CompileCommandsDatabase.normalizePath(header.getPath()), k -> new HashSet<>())
+						.add(unitKey)
+				;
+			}
+		}
+
+		return complete ? headers : null;
+	}
+
+
+	/**
+	 * Get all translation units known to include a header.
+	 * @return The paths of all translation units, as passed to {@link #getHeaders}.
+	 */
+	public synchronized @NotNull Set<String> getDependentUnits(@NotNull String headerPath) {
+		Set<String> units = unitsOfHeader.get(CompileCommandsDatabase.normalizePath(headerPath));
+		if (units == null) {
+			return Collections.emptySet();
+		}
+
+		Set<String> paths = new HashSet<>();
+		for(String unitKey : units) {
+			UnitHeaders unitHeaders = headersOfUnit.get(unitKey);
+			if (unitHeaders != null) {
+				paths.add(unitHeaders.path);
+			}
+		}
+
+		return paths;
+	}
+
+
+	/**
+	 * Drops all information about a file, which may be a header or a translation unit.
+	 * @return The normalized paths of all translation units affected.
+	 */
+	public @NotNull Set<String> invalidate(@NotNull String path) {
+		String key = CompileCommandsDatabase.normalizePath(path);
+		directives.remove(key);
+
+		synchronized(this) {
+			Set<String> affected = new HashSet<>();
+
+			Set<String> units = unitsOfHeader.get(key);
+			if (units != null) {
+				affected.addAll(units);
+			}
+
+			if (headersOfUnit.containsKey(key)) {
+				affected.add(key);
+			}
+
+			// the includes of the file may have changed, so all dependencies need to be collected again
+			for(String unit : affected) {
+				removeUnit(unit);
+			}
+
+			return affected;
+		}
+	}
+
+
+	private void removeUnit(@NotNull String unitKey) {
+		UnitHeaders unitHeaders = headersOfUnit.remove(unitKey);
+
+		if (unitHeaders != null) {
+			for(File header : unitHeaders.headers) {
+				String headerKey = CompileCommandsDatabase.normalizePath(header.getPath());
+				Set<String> units = unitsOfHeader.get(headerKey);
+
+				if (units != null) {
+					units.remove(unitKey);
+
+					if (units.isEmpty()) {
+						unitsOfHeader.remove(headerKey);
+					}
+				}
+			}
+		}
+	}
+
+
+	private void onFilesChanged(@NotNull List<? extends VFileEvent> events) {
+		Set<String> affected = new HashSet<>();
+
+		for(VFileEvent event : events) {
+			affected.addAll(invalidate(event.getPath()));
+		}
+
+		if (!affected.isEmpty()) {
+			Log.clangtidy.debug("Changed files affect " + affected.size() + " translation units");
+		}
+	}
+
+
+	/**
+	 * Collects all headers included by a translation unit.
+	 * Angled includes not found in any include path are expected to be found
+	 * in the compiler's builtin include paths, so they will not be recorded.
+	 * @param headers	Receives all headers found, sorted by their path.
+	 * @return {@code false} if any include given by a macro or any quoted include could not be resolved.
+	 */
+	private boolean collectHeaders(
+			@NotNull File unit,
+			@NotNull List<File> quotePaths,
+			@NotNull List<File> angledPaths,
+			@NotNull Set<File> systemPaths,
+			@NotNull List<File> headers
+	) {
+		Set<String> visited = new HashSet<>();
+		Deque<File> pending = new ArrayDeque<>();
+		boolean complete = true;
+
+		visited.add(CompileCommandsDatabase.normalizePath(unit.getPath()));
+		pending.add(unit);
+
+		while(!pending.isEmpty()) {
+			File current = pending.poll();
+			Directives currentDirectives = getDirectives(current);
+
+			if (currentDirectives == null) {
+				continue;
+			}
+
+			List<File> resolved = new ArrayList<>();
+
+			if (currentDirectives.computed) {
+				complete = false;
+			}
+
+			for(String name : currentDirectives.quoted) {
+				File header = resolve(name, current.getParentFile(), quotePaths);
+				if (header != null) {
+					resolved.add(header);
+				}
+				else {
+					complete = false;
+				}
+			}
+
+			for(String name : currentDirectives.angled) {
+				File header = resolve(name, null, angledPaths);
+				if (header != null) {
+					resolved.add(header);
+				}
+			}
+
+			for(File header : resolved) {
+				if (visited.add(CompileCommandsDatabase.normalizePath(header.getPath()))) {
+					headers.add(header);
+
+					if (!isInSystemPath(header, systemPaths)) {
+						pending.add(header);
+					}
+				}
+			}
+		}
+
+		headers.sort(Comparator.comparing(File::getPath));
+
+		return complete;
+	}
+
+
+	private static @Nullable File resolve(@NotNull String name, @Nullable File currentDir, @NotNull List<File> searchPaths) {
+		File file = new File(name);
+		if (file.isAbsolute()) {
+			return file.isFile() ? file : null;
+		}
+
+		if (currentDir != null) {
+			File candidate = new File(currentDir, name);
+			if (candidate.isFile()) {
+				return candidate;
+			}
+		}
+
+		for(File dir : searchPaths) {
+			File candidate = new File(dir, name);
+			if (candidate.isFile()) {
+				return candidate;
+			}
+		}
+
+		return null;
+	}
+
+
+	private static boolean isInSystemPath(@NotNull File header, @NotNull Set<File> systemPaths) {
+		for(File dir = header.getParentFile(); dir != null; dir = dir.getParentFile()) {
+			if (systemPaths.contains(dir)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	private @Nullable Directives getDirectives(@NotNull File file) {
+		String key = CompileCommandsDatabase.normalizePath(file.getPath());
+		long lastModified = file.lastModified();
+		Directives cached = directives.get(key);
+
+		if (cached != null && cached.lastModified == lastModified) {
+			return cached;
+		}
+
+		Directives parsed = new Directives(lastModified);
+
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+
+			while((line = reader.readLine()) != null) {
+				if (line.indexOf('#') < 0) {
+					continue;
+				}
+
+				Matcher m = INCLUDE_PATTERN.matcher(line);
+				if (m.find()) {
+					if (m.group(1) == null) {
+						// like #include MACRO, which can't be resolved without the preprocessor
+						parsed.computed = true;
+					}
+					else if ("<".equals(m.group(1))) {
+						parsed.angled.add(m.group(2));
+					}
+					else {
+						parsed.quoted.add(m.group(2));
+					}
+				}
+			}
+		}
+		catch(IOException e) {
+			Log.clangtidy.debug("Failed to read includes of " + file + ": " + e.getMessage());
+			return null;
+		}
+
+		directives.put(key, parsed);
+
+		return parsed;
+	}
+}
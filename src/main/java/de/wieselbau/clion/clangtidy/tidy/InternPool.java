@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Shares equal strings and files within the results of a single scan.
+ *
+ * A scan of many files produces lots of fixes, which mostly refer to the same few
+ * headers and diagnostics. Without this pool, each of them would keep its own copy
+ * of the path and the diagnostic's name.
+ *
+ * The pool is shared by all invocations of a scan, which may run in parallel,
+ * and should only live as long as the scan is running.
+ */
+public class InternPool {
+	/**
+	 * Estimated size of an empty string, including its character array.
+	 */
+	private final static int STRING_OVERHEAD	= 24 + 16;
+
+	/**
+	 * Estimated size of a file object, without its path.
+	 */
+	private final static int FILE_OVERHEAD		= 24;
+
+	private final Map<String,String>	strings			= new ConcurrentHashMap<>();
+	private final Map<String,File>		files			= new ConcurrentHashMap<>();
+	private final AtomicLong			savedBytes		= new AtomicLong();
+	private final AtomicInteger			hits			= new AtomicInteger();
+
+
+	/**
+	 * Get the shared instance of a string.
+	 */
+	public @NotNull String intern(@NotNull String string) {
+		String shared = strings.putIfAbsent(string, string);
+		if (shared == null) {
+			return string;
+		}
+
+		hits.incrementAndGet();
+		savedBytes.addAndGet(getStringSize(string));
+
+		return shared;
+	}
+
+
+	/**
+	 * Get the shared file object for a path.
+	 */
+	public @NotNull File internFile(@NotNull String path) {
+		File shared = files.get(path);
+		if (shared == null) {
+			File file = new File(intern(path));
+
+			shared = files.putIfAbsent(path, file);
+			if (shared == null) {
+				return file;
+			}
+		}
+
+		hits.incrementAndGet();
+		savedBytes.addAndGet(FILE_OVERHEAD + getStringSize(path));
+
+		return shared;
+	}
+
+
+	/**
+	 * Get the number of requests, which were served by a shared instance.
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+
+	/**
+	 * Get the estimated number of bytes saved by sharing instances.
+	 */
+	public long getSavedBytes() {
+		return savedBytes.get();
+	}
+
+
+	private static long getStringSize(@NotNull String string) {
+		return STRING_OVERHEAD + 2L * string.length();
+	}
+}
@@ -24,6 +24,7 @@ package de.wieselbau.clion.clangtidy.tidy;
 
 import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
 
 import java.util.Objects;
 
@@ -66,6 +67,23 @@ public class Issue {
 	}
 
 
+	/**
+	 * Creates a copy of this issue located at another line,
+	 * like when lines were inserted or removed above the issue.
+	 */
+	public @NotNull Issue moveToLine(int lineNumber) {
+		Issue issue = new Issue();
+		issue.type			= this.type;
+		issue.sourceFile	= this.sourceFile;
+		issue.lineNumber	= lineNumber;
+		issue.lineColumn	= this.lineColumn;
+		issue.group			= this.group;
+		issue.message		= this.message;
+
+		return issue;
+	}
+
+
 	@Override
 	public boolean equals(Object obj) {
 		if (obj instanceof Issue) {
@@ -87,6 +105,12 @@ public class Issue {
 	}
 
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(type, sourceFile, group, message, lineNumber, lineColumn);
+	}
+
+
 	@Override
 	public String toString() {
 		return
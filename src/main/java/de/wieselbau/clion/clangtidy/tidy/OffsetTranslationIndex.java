@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * Translates the byte offsets used by clang-tidy into char offsets of IntelliJ documents.
+ *
+ * Both differ after each \r\n line break, since IntelliJ uses only \n for line breaks,
+ * and after each multi-byte UTF-8 sequence. The index stores only the byte offsets,
+ * where this difference changes, so each offset can be translated by a binary search.
+ *
+ * An index keeps the file's text, so it should only live while the changes of a single
+ * file are being prepared. All changes of a file are collected within a single
+ * {@link FixFileEntry}, so there's no need to share indexes between entries.
+ */
+public class OffsetTranslationIndex {
+	private final static int[] UTF8_BOM		= { 0xEF, 0xBB, 0xBF };
+
+	private final String	text;
+	private final int[]		byteOffsets;
+	private final int[]		deltas;
+
+
+	/**
+	 * Creates an index of a file's current content on disk.
+	 */
+	public static @NotNull OffsetTranslationIndex create(@NotNull VirtualFile file) throws IOException {
+		return new OffsetTranslationIndex(file.contentsToByteArray(), file.getCharset());
+	}
+
+
+	/**
+	 * Creates an index of a file's content.
+	 * @param content	The file's content, as read by clang-tidy.
+	 * @param charset	The charset of the file. Any charset other than UTF-8 is expected to use a single byte per char.
+	 */
+	public static @NotNull OffsetTranslationIndex create(@NotNull byte[] content, @NotNull Charset charset) {
+		return new OffsetTranslationIndex(content, charset);
+	}
+
+
+	private OffsetTranslationIndex(@NotNull byte[] content, @NotNull Charset charset) {
+		boolean utf8 = StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset);
+		String decoded = utf8 ? null : new String(content, charset);
+
+		if (decoded != null && decoded.length() != content.length) {
+			// not a single byte charset, so the best guess is to keep each byte as a char
+			decoded = new String(content, StandardCharsets.ISO_8859_1);
+		}
+
+		StringBuilder sb		= new StringBuilder(content.length);
+		int[] offsets			= new int[16];
+		int[] offsetDeltas		= new int[16];
+		int count				= 0;
+		int delta				= 0;
+		int i					= 0;
+
+		// IntelliJ doesn't keep the BOM in its documents
+		if (utf8 && startsWith(content, UTF8_BOM)) {
+			i = delta = UTF8_BOM.length;
+			offsets[0] = i;
+			offsetDeltas[0] = delta;
+			count = 1;
+		}
+
+		while(i < content.length) {
+			int b = content[i] & 0xFF;
+			int length = 1;
+			int chars = 1;
+
+			if (b == '\r') {
+				sb.append('\n');
+
+				if (i + 1 < content.length && content[i + 1] == '\n') {
+					length = 2;
+				}
+			}
+			else if (!utf8) {
+				sb.append(decoded.charAt(i));
+			}
+			else if (b < 0x80) {
+				sb.append((char)b);
+			}
+			else {
+				int codePoint = decodeUtf8(content, i);
+
+				if (codePoint < 0) {
+					// invalid sequences are replaced byte by byte
+					sb.append('\uFFFD');
+				}
+				else {
+					sb.appendCodePoint(codePoint);
+					length = getUtf8Length(b);
+					chars = Character.charCount(codePoint);
+				}
+			}
+
+			i += length;
+
+			if (length != chars) {
+				delta += length - chars;
+
+				if (count == offsets.length) {
+					offsets = Arrays.copyOf(offsets, count * 2);
+					offsetDeltas = Arrays.copyOf(offsetDeltas, count * 2);
+				}
+
+				offsets[count] = i;
+				offsetDeltas[count] = delta;
+				++count;
+			}
+		}
+
+		this.text			= sb.toString();
+		this.byteOffsets	= Arrays.copyOf(offsets, count);
+		this.deltas			= Arrays.copyOf(offsetDeltas, count);
+	}
+
+
+	/**
+	 * Get the file's content as it would be seen in an IntelliJ document.
+	 */
+	public @NotNull String getText() {
+		return text;
+	}
+
+
+	/**
+	 * Translates a byte offset of clang-tidy into a char offset of the file's document.
+	 */
+	public int toCharOffset(int byteOffset) {
+		int index = Arrays.binarySearch(byteOffsets, byteOffset);
+
+		// not found: get the last offset before the requested one
+		if (index < 0) {
+			index = -index - 2;
+		}
+
+		int charOffset = index >= 0 ? byteOffset - deltas[index] : byteOffset;
+
+		return Math.max(0, Math.min(charOffset, text.length()));
+	}
+
+
+	private static boolean startsWith(@NotNull byte[] content, @NotNull int[] prefix) {
+		if (content.length < prefix.length) {
+			return false;
+		}
+
+		for(int i=0; i<prefix.length; i++) {
+			if ((content[i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+	private static int getUtf8Length(int leadByte) {
+		if (leadByte >= 0xF0) {
+			return 4;
+		}
+
+		if (leadByte >= 0xE0) {
+			return 3;
+		}
+
+		return 2;
+	}
+
+
+	/**
+	 * Decodes a multi-byte UTF-8 sequence.
+	 * @return The decoded code point or -1 if the sequence is invalid.
+	 */
+	private static int decodeUtf8(@NotNull byte[] content, int offset) {
+		int leadByte = content[offset] & 0xFF;
+		if (leadByte < 0xC2 || leadByte > 0xF4) {
+			return -1;
+		}
+
+		int length = getUtf8Length(leadByte);
+		if (offset + length > content.length) {
+			return -1;
+		}
+
+		int codePoint = leadByte & (0xFF >> (length + 1));
+
+		for(int i=1; i<length; i++) {
+			int b = content[offset + i] & 0xFF;
+			if ((b & 0xC0) != 0x80) {
+				return -1;
+			}
+
+			codePoint = (codePoint << 6) | (b & 0x3F);
+		}
+
+		return codePoint <= Character.MAX_CODE_POINT ? codePoint : -1;
+	}
+}
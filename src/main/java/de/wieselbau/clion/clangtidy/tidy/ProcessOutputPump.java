@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Reads the output of running processes using a bounded pool of threads,
+ * shared by all processes, instead of creating a new thread for each stream.
+ * Each stream is read with blocking reads by one of the pool threads until its end,
+ * delivering all complete lines read at once to the stream's consumer.
+ * The output of clang-tidy is decoded as UTF-8.
+ * Streams registered while all threads are busy will wait until a thread becomes available,
+ * so a process may be blocked on a full pipe until then. Callers measuring the time
+ * of a process should start once its stream is being read.
+ * Pool threads are created on demand and will terminate after being idle for a while.
+ *
+ * Each process should register only one of its streams, because a process blocked on a full
+ * pipe of a waiting stream could otherwise block the thread reading its other stream forever.
+ */
+public class ProcessOutputPump {
+	private final static int	MAX_THREADS			= Math.max(4, Runtime.getRuntime().availableProcessors());
+	private final static int	BUFFER_SIZE			= 8192;
+	private final static long	KEEP_ALIVE_MS		= 1000;
+
+	private final static ProcessOutputPump instance = new ProcessOutputPump(MAX_THREADS);
+
+	private final ThreadPoolExecutor		executor;
+	private final AtomicInteger				streamCount			= new AtomicInteger(0);
+	private final AtomicInteger				activeThreads		= new AtomicInteger(0);
+	private final AtomicInteger				peakThreads			= new AtomicInteger(0);
+	private final AtomicInteger				threadNumber		= new AtomicInteger(0);
+
+
+	/**
+	 * Get the pump shared by all processes.
+	 */
+	public static @NotNull ProcessOutputPump getInstance() {
+		return instance;
+	}
+
+
+	ProcessOutputPump(int maxThreads) {
+		maxThreads = Math.max(1, maxThreads);
+
+		executor = new ThreadPoolExecutor(
+				maxThreads, maxThreads,
+				KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "clang-tidy output pump #" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+		);
+
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+
+	/**
+	 * Registers a stream of a process to be read by this pump.
+	 * @param in		The stream to be read.
+	 * @param handler	A consumer receiving all lines read, or {@code null} to discard the output.
+	 * @return A future which completes, when the stream was read completely.
+	 */
+	public @NotNull CompletableFuture<Void> pump(
+			@NotNull InputStream in,
+			@Nullable Consumer<List<String>> handler
+	) {
+		return pump(in, handler, null);
+	}
+
+
+	/**
+	 * Registers a stream of a process to be read by this pump.
+	 * @param in		The stream to be read.
+	 * @param handler	A consumer receiving all lines read, or {@code null} to discard the output.
+	 * @param onStarted	Invoked on the pump thread, once it starts reading the stream.
+	 * @return A future which completes, when the stream was read completely.
+	 */
+	public @NotNull CompletableFuture<Void> pump(
+			@NotNull InputStream in,
+			@Nullable Consumer<List<String>> handler,
+			@Nullable Runnable onStarted
+	) {
+		Stream stream = new Stream(in, handler, onStarted);
+
+		streamCount.incrementAndGet();
+		executor.execute(() -> runStream(stream));
+
+		return stream.finished;
+	}
+
+
+	/**
+	 * Get the number of pump threads currently reading a stream.
+	 */
+	public int getActiveThreadCount() {
+		return activeThreads.get();
+	}
+
+
+	/**
+	 * Get the maximum number of pump threads which were reading streams at the same time.
+	 */
+	public int getPeakThreadCount() {
+		return peakThreads.get();
+	}
+
+
+	/**
+	 * Get the number of streams currently being read or waiting to be read.
+	 */
+	public int getActiveStreamCount() {
+		return streamCount.get();
+	}
+
+
+	private void runStream(@NotNull Stream stream) {
+		peakThreads.accumulateAndGet(activeThreads.incrementAndGet(), Math::max);
+
+		try {
+			if (stream.onStarted != null) {
+				stream.onStarted.run();
+			}
+
+			stream.pumpAll();
+		}
+		finally {
+			activeThreads.decrementAndGet();
+			streamCount.decrementAndGet();
+			stream.finished.complete(null);
+		}
+	}
+
+
+	/**
+	 * A single stream being read, which keeps the incomplete line read so far.
+	 */
+	private static class Stream {
+		private final Reader						reader;
+		private final Consumer<List<String>>		handler;
+		private final Runnable						onStarted;
+		private final char[]						buffer			= new char[BUFFER_SIZE];
+		private final StringBuilder					currentLine		= new StringBuilder();
+		private final CompletableFuture<Void>		finished		= new CompletableFuture<>();
+
+
+		Stream(@NotNull InputStream in, @Nullable Consumer<List<String>> handler, @Nullable Runnable onStarted) {
+			this.reader		= new InputStreamReader(in, StandardCharsets.UTF_8);
+			this.handler	= handler;
+			this.onStarted	= onStarted;
+		}
+
+
+		/**
+		 * Reads this stream until its end, which is reached when the process
+		 * has terminated or was killed.
+		 */
+		void pumpAll() {
+			try {
+				for(;;) {
+					int length = reader.read(buffer);
+					if (length < 0) {
+						if (currentLine.length() != 0) {
+							deliver(splitLines(0, true));
+						}
+
+						break;
+					}
+
+					deliver(splitLines(length, false));
+				}
+			}
+			catch(IOException e) {
+				// streams get closed when the process was killed
+				Log.clangtidy.debug("Reading process output stopped: " + e.getMessage());
+			}
+			finally {
+				close();
+			}
+		}
+
+
+		private @NotNull List<String> splitLines(int length, boolean endOfStream) {
+			List<String> lines = new ArrayList<>();
+			int lineStart = 0;
+
+			for(int i=0; i<length; i++) {
+				if (buffer[i] == '\n') {
+					currentLine.append(buffer, lineStart, i - lineStart);
+					lines.add(takeCurrentLine());
+					lineStart = i + 1;
+				}
+			}
+
+			currentLine.append(buffer, lineStart, length - lineStart);
+
+			if (endOfStream) {
+				lines.add(takeCurrentLine());
+			}
+
+			return lines;
+		}
+
+
+		private @NotNull String takeCurrentLine() {
+			int length = currentLine.length();
+
+			if (length != 0 && currentLine.charAt(length - 1) == '\r') {
+				--length;
+			}
+
+			String line = currentLine.substring(0, length);
+			currentLine.setLength(0);
+
+			return line;
+		}
+
+
+		private void deliver(@NotNull List<String> lines) {
+			if (handler != null && !lines.isEmpty()) {
+				try {
+					handler.accept(lines);
+				}
+				catch(RuntimeException e) {
+					// don't let a failing consumer break the pump thread
+					Logger.getInstance(this.getClass()).error(e);
+				}
+			}
+		}
+
+
+		private void close() {
+			try {
+				reader.close();
+			}
+			catch(IOException e) {
+				Logger.getInstance(this.getClass()).warn(e);
+			}
+		}
+	}
+}
@@ -27,21 +27,37 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * A helper class to run the clang-tidy executable and parse it's output.
  */
 public class ProcessWrapper {
+	/**
+	 * Provides temporary files for processes not running as part of a scan.
+	 */
+	private final static TempFileAllocator defaultTempFiles = new TempFileAllocator("clang-tidy-process-");
+
 	private List<String>		command				= new ArrayList<>();
+	private TempFileAllocator	tempFiles			= defaultTempFiles;
 	private Consumer<String>	outputConsumer;
 	private Consumer<String>	errorConsumer;
+	private long				timeoutMillis		= 0;
+	private Process				process;
+	private boolean				cancelled;
+	private boolean				timedOut;
 
 
 	public ProcessWrapper(@NotNull String exe) {
@@ -81,80 +97,173 @@ public class ProcessWrapper {
 	}
 
 
+	/**
+	 * Set the allocator providing the temporary files of this process, like the file receiving its errors.
+	 */
+	public void setTempFiles(@NotNull TempFileAllocator tempFiles) {
+		this.tempFiles = tempFiles;
+	}
+
+
+	/**
+	 * Set the maximum time the process may run, until it will be killed.
+	 * The time starts once the shared pump has started reading the process' output,
+	 * because the process may be blocked writing its output until then.
+	 * @param timeoutMillis	The timeout in milliseconds, or zero to wait without limit.
+	 */
+	public void setTimeout(long timeoutMillis) {
+		this.timeoutMillis = Math.max(0, timeoutMillis);
+	}
+
+
+	/**
+	 * Kills the process immediately, if currently running, or prevents it from being started.
+	 * May be invoked from any thread.
+	 */
+	public void cancel() {
+		Process running;
+
+		synchronized(this) {
+			cancelled = true;
+			running   = process;
+		}
+
+		if (running != null) {
+			running.destroyForcibly();
+		}
+	}
+
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+
+	/**
+	 * Checks whether the process was killed, because it exceeded it's timeout.
+	 */
+	public synchronized boolean isTimedOut() {
+		return timedOut;
+	}
+
+
 	public boolean run() throws IOException {
+		// stderr is written into a file and read after the process has terminated, so only stdout
+		// needs to be read by the shared pump while the process is running
+		File errorFile = tempFiles.allocate(".log");
+
+		try {
+			return run(errorFile);
+		}
+		finally {
+			tempFiles.release(errorFile);
+		}
+	}
+
+
+	private boolean run(@NotNull File errorFile) throws IOException {
 		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.redirectError(errorFile);
+
 		boolean success = false;
-		Process process = pb.start();
+		Process process;
 
-		Thread outputHandler = OutputReader.fetch(
-				process.getInputStream(),
-				outputConsumer
-		);
+		synchronized(this) {
+			if (cancelled) {
+				return false;
+			}
 
-		Thread errorHandler = OutputReader.fetch(
-				process.getErrorStream(),
-				errorConsumer
+			process = pb.start();
+			this.process = process;
+		}
+
+		// the output will be read by the shared pump, to avoid creating new threads for each process
+		CountDownLatch outputStarted = new CountDownLatch(1);
+		CompletableFuture<Void> outputHandler = ProcessOutputPump.getInstance().pump(
+				process.getInputStream(),
+				forEachLine(outputConsumer),
+				outputStarted::countDown
 		);
 
 		try {
+			// while waiting for a pump thread, the process may be blocked on a full pipe
+			if (timeoutMillis > 0) {
+				outputStarted.await();
+			}
+
+			if (timeoutMillis > 0 && !process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				synchronized(this) {
+					timedOut = true;
+				}
+
+				process.destroyForcibly();
+			}
+
 			int returnCode = process.waitFor();
 
-			if (returnCode == 0) {
+			if (returnCode == 0 && !isTimedOut() && !isCancelled()) {
 				success = true;
 			}
 		}
 		catch(InterruptedException e) {
-			Logger.getInstance(this.getClass()).error(e);
-		}
-
-		try {
-			errorHandler.join();
+			// the calling thread was interrupted, so the process is no longer needed;
+			// the interrupt is kept, so the caller will notice it as well
+			cancel();
+			Thread.currentThread().interrupt();
 		}
-		catch(InterruptedException e) {
-			Logger.getInstance(this.getClass()).error(e);
+		finally {
+			synchronized(this) {
+				this.process = null;
+			}
 		}
 
-		try {
-			outputHandler.join();
-		}
-		catch(InterruptedException e) {
-			Logger.getInstance(this.getClass()).error(e);
+		awaitOutput(outputHandler);
+
+		if (errorConsumer != null) {
+			try(BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(errorFile), StandardCharsets.UTF_8))) {
+				reader.lines().forEach(errorConsumer);
+			}
 		}
 
 		return success;
 	}
 
 
-	private static class OutputReader implements Runnable {
-		private InputStream in;
-		private Consumer<String> handler;
+	/**
+	 * Waits until the output of the terminated process was read completely,
+	 * even if the calling thread was interrupted, which will be restored afterwards.
+	 */
+	private void awaitOutput(@NotNull CompletableFuture<Void> outputHandler) {
+		boolean interrupted = Thread.interrupted();
 
-		static @NotNull Thread fetch(@NotNull InputStream in, @Nullable Consumer<String> handler) {
-			Thread thread = new Thread(new OutputReader(in, handler));
-			thread.start();
-			return thread;
+		try {
+			while(true) {
+				try {
+					outputHandler.get();
+					break;
+				}
+				catch(InterruptedException e) {
+					interrupted = true;
+				}
+				catch(ExecutionException e) {
+					Logger.getInstance(this.getClass()).error(e.getCause());
+					break;
+				}
+			}
 		}
-
-		public OutputReader(@NotNull InputStream in, @Nullable Consumer<String> handler) {
-			this.in = in;
-			this.handler = handler;
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
 		}
+	}
 
-		@Override
-		public void run() {
-			try {
-				BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-				String line;
 
-				while((line = reader.readLine()) != null) {
-					if (handler != null) {
-						handler.accept(line);
-					}
-				}
-			}
-			catch(IOException e) {
-				Logger.getInstance(this.getClass()).error(e);
-			}
+	private static @Nullable Consumer<List<String>> forEachLine(@Nullable Consumer<String> consumer) {
+		if (consumer == null) {
+			return null;
 		}
+
+		return lines -> lines.forEach(consumer);
 	}
 }
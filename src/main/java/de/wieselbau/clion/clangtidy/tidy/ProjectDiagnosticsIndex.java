@@ -0,0 +1,490 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.Topic;
+import de.wieselbau.clion.clangtidy.Options;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Keeps the issues of all translation units of a project, so they are available
+ * without waiting for a scan. All translation units found in the compile commands will be
+ * scanned one after another by a single background thread. Afterwards, only the translation
+ * units affected by changed files will be scanned again, including those depending on
+ * a changed header, as known by {@link IncludeGraph}.
+ * Results of unchanged files will be taken from {@link ScannerResultCache}, so the index
+ * will be filled quickly after the project was opened again.
+ * The issues are shown for files opened in an editor, until their own scan has finished.
+ *
+ * Besides the issues of each unit, the index keeps the issues of each file, including headers,
+ * so the issues of a single file or the whole project are available without collecting them.
+ * Each scanner is used for a limited number of units only, so changed options and profiles
+ * will be applied to the following units.
+ */
+public class ProjectDiagnosticsIndex implements Disposable {
+	/**
+	 * Notified whenever the issues of any translation unit were updated.
+	 * Listeners will be invoked on the background thread.
+	 */
+	public interface Listener {
+		void onIndexUpdated(@NotNull ProjectDiagnosticsIndex index);
+	}
+
+	public final static Topic<Listener> TOPIC = Topic.create("clang-tidy diagnostics index", Listener.class);
+
+	/**
+	 * Number of units to be scanned, until a new scanner will be created.
+	 */
+	private final static int UNITS_PER_SCANNER		= 100;
+
+	private final Project						project;
+	private final ExecutorService				executor;
+	private final Map<String,Unit>				units				= new ConcurrentHashMap<>();
+	private final Map<String,String>			pendingUnits		= new LinkedHashMap<>();
+	private final Map<String,String>			changedUnits		= new HashMap<>();
+	private boolean								running;
+	private boolean								workerScheduled;
+	private volatile Scanner					scanner;
+
+	/**
+	 * The issues of each file, counting the units reporting them, since headers included
+	 * by multiple units will report the same issues. Guarded by itself.
+	 */
+	private final Map<VirtualFile,Map<Issue,Integer>>	issuesOfFile	= new HashMap<>();
+
+
+	/**
+	 * The issues found by scanning a single translation unit.
+	 * Units are stored by their normalized path, while the original path is kept to find the file.
+	 */
+	private static class Unit {
+		final String			path;
+		final List<Issue>		issues;
+
+		Unit(@NotNull String path, @NotNull List<Issue> issues) {
+			this.path	= path;
+			this.issues	= issues;
+		}
+	}
+
+
+	public static @NotNull ProjectDiagnosticsIndex getInstance(@NotNull Project project) {
+		return ServiceManager.getService(project, ProjectDiagnosticsIndex.class);
+	}
+
+
+	public ProjectDiagnosticsIndex(@NotNull Project project) {
+		this.project	= project;
+		this.executor	= AppExecutorUtil.createBoundedApplicationPoolExecutor("clang-tidy diagnostics index", 1);
+
+		project.getMessageBus().connect(this).subscribe(
+				VirtualFileManager.VFS_CHANGES,
+				new BulkFileListener() {
+					@Override
+					public void before(@NotNull List<? extends VFileEvent> events) {
+						collectChangedUnits(events);
+					}
+
+					@Override
+					public void after(@NotNull List<? extends VFileEvent> events) {
+						scheduleChangedUnits();
+					}
+				}
+		);
+	}
+
+
+	@Override
+	public void dispose() {
+		stop();
+		executor.shutdownNow();
+
+		synchronized(issuesOfFile) {
+			units.clear();
+			issuesOfFile.clear();
+		}
+	}
+
+
+	/**
+	 * Starts scanning all translation units of the project, if enabled in the options.
+	 */
+	public void start() {
+		if (!Options.isProjectIndexEnabled() || !Options.isCLangTidyReady()) {
+			return;
+		}
+
+		synchronized(this) {
+			if (running) {
+				return;
+			}
+
+			running = true;
+		}
+
+		executor.execute(() -> {
+			Scanner scanner = null;
+
+			try {
+				scanner = new Scanner(project);
+
+				Map<String,String> paths = new LinkedHashMap<>();
+				for(String path : scanner.getAllSourceFiles()) {
+					paths.putIfAbsent(CompileCommandsDatabase.normalizePath(path), path);
+				}
+
+				// remove units no longer part of the project
+				for(String key : new ArrayList<>(units.keySet())) {
+					if (!paths.containsKey(key)) {
+						removeUnit(key);
+					}
+				}
+
+				Log.clangtidy.info("Indexing " + paths.size() + " translation units of " + project.getName());
+				schedule(paths);
+			}
+			catch(CompileCommandsNotFoundException e) {
+				Log.clangtidy.info("Not indexing " + project.getName() + ", no compile commands found");
+				stop();
+			}
+			catch(IOException e) {
+				Log.clangtidy.warn("Failed to index " + project.getName() + ": " + e.getMessage());
+				stop();
+			}
+			finally {
+				if (scanner != null) {
+					scanner.dispose();
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Stops scanning, killing the clang-tidy process currently running.
+	 * The issues already found remain available.
+	 */
+	public void stop() {
+		Scanner scanner;
+
+		synchronized(this) {
+			running = false;
+			pendingUnits.clear();
+			changedUnits.clear();
+
+			scanner = this.scanner;
+			this.scanner = null;
+		}
+
+		// the scanner will be disposed by the worker using it
+		if (scanner != null) {
+			scanner.cancelRunningProcesses();
+		}
+	}
+
+
+	public synchronized boolean isRunning() {
+		return running;
+	}
+
+
+	/**
+	 * Get the issues of all files of the project, including headers,
+	 * found while scanning any of the translation units.
+	 */
+	public @NotNull Map<VirtualFile,List<Issue>> getAllIssues() {
+		synchronized(issuesOfFile) {
+			Map<VirtualFile,List<Issue>> allIssues = new HashMap<>(issuesOfFile.size());
+
+			for(Map.Entry<VirtualFile,Map<Issue,Integer>> entry : issuesOfFile.entrySet()) {
+				allIssues.put(entry.getKey(), new ArrayList<>(entry.getValue().keySet()));
+			}
+
+			return allIssues;
+		}
+	}
+
+
+	/**
+	 * Get the issues of a single file found while scanning any of the translation units.
+	 */
+	public @NotNull List<Issue> getIssues(@NotNull VirtualFile file) {
+		synchronized(issuesOfFile) {
+			Map<Issue,Integer> issues = issuesOfFile.get(file);
+			return issues != null ? new ArrayList<>(issues.keySet()) : Collections.emptyList();
+		}
+	}
+
+
+	/**
+	 * Stores the issues of a unit, replacing its previous issues.
+	 */
+	private void putUnit(@NotNull String key, @NotNull Unit unit) {
+		synchronized(issuesOfFile) {
+			Unit previous = units.put(key, unit);
+
+			if (previous != null) {
+				removeIssues(previous);
+			}
+
+			for(Issue issue : unit.issues) {
+				if (issue.getSourceFile() != null) {
+					issuesOfFile
+							.computeIfAbsent(issue.getSourceFile(), k -> new LinkedHashMap<>())
+							.merge(issue, 1, Integer::sum)
+					;
+				}
+			}
+		}
+
+		project.getMessageBus().syncPublisher(TOPIC).onIndexUpdated(this);
+	}
+
+
+	private void removeUnit(@NotNull String key) {
+		synchronized(issuesOfFile) {
+			Unit previous = units.remove(key);
+
+			if (previous == null) {
+				return;
+			}
+
+			removeIssues(previous);
+		}
+
+		project.getMessageBus().syncPublisher(TOPIC).onIndexUpdated(this);
+	}
+
+
+	private void removeIssues(@NotNull Unit unit) {
+		for(Issue issue : unit.issues) {
+			Map<Issue,Integer> issues = issue.getSourceFile() != null ? issuesOfFile.get(issue.getSourceFile()) : null;
+
+			if (issues != null) {
+				issues.computeIfPresent(issue, (k, count) -> count > 1 ? count - 1 : null);
+
+				if (issues.isEmpty()) {
+					issuesOfFile.remove(issue.getSourceFile());
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Creates the scanner for the next units to be scanned.
+	 * @return The scanner, or {@code null} if indexing was stopped.
+	 */
+	private synchronized @Nullable Scanner createScanner() throws IOException {
+		if (!running) {
+			return null;
+		}
+
+		scanner = new Scanner(project);
+
+		return scanner;
+	}
+
+
+	private void disposeScanner(@Nullable Scanner scanner) {
+		if (scanner == null) {
+			return;
+		}
+
+		synchronized(this) {
+			if (this.scanner == scanner) {
+				this.scanner = null;
+			}
+		}
+
+		scanner.dispose();
+	}
+
+
+	/**
+	 * Adds translation units to be scanned.
+	 * @param paths		The paths of the translation units by their normalized paths.
+	 */
+	private synchronized void schedule(@NotNull Map<String,String> paths) {
+		if (!running) {
+			return;
+		}
+
+		pendingUnits.putAll(paths);
+
+		if (!workerScheduled && !pendingUnits.isEmpty()) {
+			workerScheduled = true;
+			executor.execute(this::processPendingUnits);
+		}
+	}
+
+
+	private synchronized @Nullable Map.Entry<String,String> takePendingUnit() {
+		Iterator<Map.Entry<String,String>> it = pendingUnits.entrySet().iterator();
+
+		if (!running || !it.hasNext()) {
+			workerScheduled = false;
+			return null;
+		}
+
+		Map.Entry<String,String> unit = new AbstractMap.SimpleImmutableEntry<>(it.next());
+		it.remove();
+
+		return unit;
+	}
+
+
+	private void processPendingUnits() {
+		Map.Entry<String,String> unit;
+		Scanner scanner = null;
+		int unitsScanned = 0;
+
+		try {
+			while((unit = takePendingUnit()) != null) {
+				if (project.isDisposed()) {
+					return;
+				}
+
+				VirtualFile file = LocalFileSystem.getInstance().findFileByPath(unit.getValue());
+				if (file == null || !file.isValid()) {
+					removeUnit(unit.getKey());
+					continue;
+				}
+
+				// a new scanner applies options and profiles changed in the meantime
+				if (unitsScanned == UNITS_PER_SCANNER) {
+					disposeScanner(scanner);
+					scanner = null;
+					unitsScanned = 0;
+				}
+
+				scanner = processUnit(unit.getKey(), unit.getValue(), file, scanner);
+				++unitsScanned;
+			}
+		}
+		finally {
+			disposeScanner(scanner);
+		}
+	}
+
+
+	/**
+	 * Scans a single unit.
+	 * @param scanner	The scanner of the current batch, or {@code null} to create a new one.
+	 * @return The scanner to be used for the next unit, or {@code null} if there is none.
+	 */
+	private @Nullable Scanner processUnit(@NotNull String key, @NotNull String path, @NotNull VirtualFile file, @Nullable Scanner scanner) {
+		try {
+			if (scanner == null) {
+				scanner = createScanner();
+
+				// stopped in the meantime, so the next unit taken will end this batch
+				if (scanner == null) {
+					return null;
+				}
+			}
+
+			ScannerResult result = new ScannerResult();
+
+			if (scanner.runOnFiles(file, result)) {
+				putUnit(key, new Unit(path, result.getIssues()));
+			}
+		}
+		catch(CompileCommandsNotFoundException e) {
+			Log.clangtidy.info("Stopped indexing " + project.getName() + ", no compile commands found");
+			stop();
+		}
+		catch(ScannerExecutionException e) {
+			Log.clangtidy.warn("clang-tidy failed on " + file.getPath() + ":\n" + e.getLog());
+		}
+		catch(IOException e) {
+			Log.clangtidy.warn("Failed to index " + file.getPath() + ": " + e.getMessage());
+		}
+
+		return scanner;
+	}
+
+
+	/**
+	 * Collects the translation units affected by file changes, before the changes are applied,
+	 * while the dependencies of changed headers are still known.
+	 */
+	private void collectChangedUnits(@NotNull List<? extends VFileEvent> events) {
+		if (!isRunning()) {
+			return;
+		}
+
+		IncludeGraph includeGraph = IncludeGraph.getInstance(project);
+		Map<String,String> changed = new HashMap<>();
+
+		for(VFileEvent event : events) {
+			String key = CompileCommandsDatabase.normalizePath(event.getPath());
+
+			if (event instanceof VFileDeleteEvent) {
+				removeUnit(key);
+			}
+			else if (units.containsKey(key)) {
+				changed.put(key, event.getPath());
+			}
+
+			for(String path : includeGraph.getDependentUnits(event.getPath())) {
+				changed.put(CompileCommandsDatabase.normalizePath(path), path);
+			}
+		}
+
+		synchronized(this) {
+			changedUnits.putAll(changed);
+		}
+	}
+
+
+	private void scheduleChangedUnits() {
+		Map<String,String> changed;
+
+		synchronized(this) {
+			changed = new HashMap<>(changedUnits);
+			changedUnits.clear();
+		}
+
+		if (!changed.isEmpty()) {
+			Log.clangtidy.debug("Changed files affect " + changed.size() + " indexed translation units");
+			schedule(changed);
+		}
+	}
+}
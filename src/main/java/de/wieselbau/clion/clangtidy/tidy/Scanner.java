@@ -22,9 +22,13 @@
 
 package de.wieselbau.clion.clangtidy.tidy;
 
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.jetbrains.cidr.cpp.cmake.CMakeSettings;
 import com.jetbrains.cidr.cpp.cmake.workspace.CMakeWorkspace;
@@ -33,18 +37,31 @@ import de.wieselbau.clion.clangtidy.Options;
 import de.wieselbau.util.properties.PropertiesContainer;
 import de.wieselbau.util.properties.PropertyInstance;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
+import java.io.*;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * A helper class to run the clang-tidy executable and parse it's output.
+ * A single scanner may be used by multiple threads at once. Temporary files
+ * will be kept until the scanner gets disposed.
  */
-public class Scanner {
+public class Scanner implements Disposable {
+	/**
+	 * When the command line gets longer, arguments will be passed via a response file.
+	 */
+	private final static int MAX_COMMAND_LINE_LENGTH	= 8000;
+
 	/**
 	 * Determine if refactoring operations should be applied.
 	 */
@@ -61,11 +78,32 @@ public class Scanner {
 
 	protected Project				project;
 	protected CMakeWorkspace		cMakeWorkspace;
-	protected File					fixesTargetFile;
+	protected TempFileAllocator		tempFiles;
 	protected FixIssues				fixIssues = FixIssues.DontFix;
 	protected List<ToolController>	tools;
+	protected boolean				scanUnsavedDocuments = false;
 	private boolean					ready = false;
 
+	private List<Pair<String,File>>		compileCommandsFiles;
+	private HeaderFilter				headerFilter;
+
+	private final Map<String,List<Pair<Integer,Integer>>>	lineFilter	= new LinkedHashMap<>();
+
+	private final Set<ProcessWrapper>	runningProcesses	= ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Shares paths and names among the results of all invocations of this scanner.
+	 */
+	private final InternPool			internPool			= new InternPool();
+
+	/**
+	 * Scans currently running within any scanner, which can be shared by others.
+	 * Cancelled scans won't be shared, because another scanner may still need the results.
+	 */
+	private final static SingleFlight<Invocation> inFlightInvocations
+			= new SingleFlight<>(invocation -> !invocation.isCancelled());
+	private volatile boolean			cancelled			= false;
+
 
 	protected Scanner() {
 		tools		= new ArrayList<>();
@@ -98,44 +136,141 @@ public class Scanner {
 			throw new IllegalArgumentException("Parameter CMakeWorkspace is null");
 		}
 
-		// determine where to store fixes
-		fixesTargetFile = File.createTempFile("clang-tidy-", ".yaml");
-		Logger.getInstance(this.getClass()).info("Storing results in: " + fixesTargetFile);
+		// determine where to store fixes; each invocation will get its own file within this directory
+		tempFiles = new TempFileAllocator("clang-tidy-");
 
 		ready = true;
 	}
 
 
-	private File findCompileCommandsForFile(@NotNull VirtualFile file) throws CompileCommandsNotFoundException {
-		List<CMakeSettings.Profile> profiles = cMakeWorkspace.getSettings().getProfiles();
+	/**
+	 * Get the location of the compile_commands.json file of each CMake profile.
+	 * The locations will be resolved once, the files may not exist yet.
+	 */
+	private synchronized @NotNull List<Pair<String,File>> getCompileCommandsFiles() {
+		if (compileCommandsFiles == null) {
+			List<CMakeSettings.Profile> profiles = cMakeWorkspace.getSettings().getProfiles();
 
-		// select the first configuration in the list
-		// todo: find out, which is the active configuration for the current project
+			List<Pair<String,File>> generationDirParameters = new ArrayList<>(profiles.size());
+			for(CMakeSettings.Profile profile : profiles) {
+				generationDirParameters.add(new Pair<>(profile.getName(), null));
+			}
 
-		List<Pair<String,File>> generationDirParameters = new ArrayList<>(profiles.size());
-		for(CMakeSettings.Profile profile : profiles) {
-			generationDirParameters.add(new Pair<>(profile.getName(), null));
+			List<File> generationDirs = cMakeWorkspace.getEffectiveProfileGenerationDirs(generationDirParameters);
+			compileCommandsFiles = new ArrayList<>(generationDirs.size());
+
+			for(int i=0; i<generationDirs.size(); i++) {
+				compileCommandsFiles.add(new Pair<>(
+						i < profiles.size() ? profiles.get(i).getName() : null,
+						new File(generationDirs.get(i).getAbsolutePath() + "/compile_commands.json")
+				));
+			}
+		}
+
+		return compileCommandsFiles;
+	}
+
+
+	/**
+	 * Get the filter of headers to be reported, which will be created once for all invocations of this scanner.
+	 */
+	private synchronized @NotNull HeaderFilter getHeaderFilter() {
+		if (headerFilter == null) {
+			headerFilter = project != null
+					? ApplicationManager.getApplication().runReadAction((Computable<HeaderFilter>) () -> HeaderFilter.create(project))
+					: new HeaderFilter(Collections.emptyList(), Collections.emptyList())
+			;
 		}
 
-		// try all profiles to find any containing a compile_commands.json
-		for(File generationDir : cMakeWorkspace.getEffectiveProfileGenerationDirs(generationDirParameters)) {
-			if (!generationDir.exists()) {
+		return headerFilter;
+	}
+
+
+	/**
+	 * Find the compile commands database which contains a command for the given file.
+	 * Profiles will be searched in the order of their configuration.
+	 * @return The database containing the file, or {@code null} if no database contains the file.
+	 * @throws CompileCommandsNotFoundException if there's no compile_commands.json in any profile.
+	 */
+	private @Nullable CompileCommandsDatabase findCompileCommandsForFile(@NotNull VirtualFile file) throws
+			CompileCommandsNotFoundException,
+			IOException
+	{
+		boolean anyDatabaseFound = false;
+
+		// try all profiles to find any containing a compile_commands.json with this file
+		for(Pair<String,File> profile : getCompileCommandsFiles()) {
+			CompileCommandsDatabase database = openCompileCommands(profile.getSecond());
+
+			if (database == null) {
 				continue;
 			}
 
-			File compileCommandsFile = new File(generationDir.getAbsolutePath() + "/compile_commands.json");
-			if (!compileCommandsFile.exists()) {
-				continue;
+			anyDatabaseFound = true;
+
+			if (database.contains(file.getPath())) {
+				Log.clangtidy.debug("Found compile command of " + file.getPath() + " in profile " + profile.getFirst());
+				return database;
 			}
+		}
+
+		if (!anyDatabaseFound) {
+			throw new CompileCommandsNotFoundException(cMakeWorkspace);
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Get all source files with a compile command in the compile_commands.json of any profile.
+	 * @return The paths as found in the compile commands, see {@link CompileCommandsDatabase#getPaths()}.
+	 */
+	public @NotNull Set<String> getAllSourceFiles() throws
+			CompileCommandsNotFoundException,
+			IOException
+	{
+		boolean anyDatabaseFound = false;
+		Set<String> paths = new LinkedHashSet<>();
+
+		for(Pair<String,File> profile : getCompileCommandsFiles()) {
+			CompileCommandsDatabase database = openCompileCommands(profile.getSecond());
 
-			if (FixCompileCommandsUtil.needsToFixWindowsPaths(compileCommandsFile)) {
-				FixCompileCommandsUtil.fixWindowsPaths(compileCommandsFile);
+			if (database != null) {
+				anyDatabaseFound = true;
+				paths.addAll(database.getPaths());
 			}
+		}
 
-			return compileCommandsFile;
+		if (!anyDatabaseFound) {
+			throw new CompileCommandsNotFoundException(cMakeWorkspace);
 		}
 
-		throw new CompileCommandsNotFoundException(cMakeWorkspace);
+		return paths;
+	}
+
+
+	private @Nullable CompileCommandsDatabase openCompileCommands(@NotNull File compileCommandsFile) throws
+			IOException
+	{
+		if (!compileCommandsFile.isFile()) {
+			return null;
+		}
+
+		// the file only needs to be checked, when it was modified since indexed the last time
+		if (
+				!CompileCommandsDatabase.isIndexed(compileCommandsFile)
+			&&	FixCompileCommandsUtil.needsToFixWindowsPaths(compileCommandsFile)
+		) {
+			FixCompileCommandsUtil.fixWindowsPaths(compileCommandsFile);
+		}
+
+		CompileCommandsDatabase database = CompileCommandsDatabase.getInstance(compileCommandsFile);
+
+		// the compile commands were found, so on next fail, the notification will be shown again
+		NotificationFactory.resetCompileCommandsNotFoundNotification();
+
+		return database;
 	}
 
 
@@ -148,13 +283,104 @@ public class Scanner {
 	}
 
 
+	/**
+	 * Determine if clang-tidy should scan the content of documents not yet saved,
+	 * instead of the files on disk. Requires clang-tidy supporting -vfsoverlay,
+	 * otherwise the files on disk will be scanned. Has no effect when fixing issues immediately.
+	 */
+	public void setScanUnsavedDocuments(boolean scanUnsavedDocuments) {
+		this.scanUnsavedDocuments = scanUnsavedDocuments;
+	}
+
+	public boolean isScanUnsavedDocuments() {
+		return scanUnsavedDocuments;
+	}
+
+	/**
+	 * Checks whether the content of unsaved documents will actually be scanned,
+	 * which depends on the options of this scanner and the version of clang-tidy.
+	 * Otherwise the files on disk will be scanned, even if they have unsaved changes.
+	 */
+	public boolean isScanningUnsavedDocuments() {
+		return
+				scanUnsavedDocuments
+			&&	project != null
+			&&	fixIssues != FixIssues.FixImmediately
+			&&	ToolCollection.getCLangTidyMajorVersion() >= UnsavedFilesOverlay.MIN_CLANG_TIDY_VERSION
+		;
+	}
+
+
+	/**
+	 * Get the pool sharing paths and names among the results of all invocations of this scanner.
+	 */
+	public @NotNull InternPool getInternPool() {
+		return internPool;
+	}
+
+
+	/**
+	 * Get the number of scans which received the result of a concurrent scan of the same file,
+	 * instead of running clang-tidy on their own, since the IDE was started.
+	 */
+	public static int getSharedScansCount() {
+		return inFlightInvocations.getSharedCount();
+	}
+
+
+	/**
+	 * Restricts the diagnostics reported by clang-tidy to some lines of a file.
+	 * As soon as there is any line filter, diagnostics within files without
+	 * a line filter will not be reported, including all headers.
+	 * @param file		The file to report diagnostics for.
+	 * @param lines		Ranges of line numbers starting at 1, each including its first and last line.
+	 */
+	public void addLineFilter(@NotNull VirtualFile file, @NotNull List<Pair<Integer,Integer>> lines) {
+		lineFilter.computeIfAbsent(file.getPath(), k -> new ArrayList<>()).addAll(lines);
+	}
+
+
 	public void addTool(@NotNull ToolController tool) {
 		tools.add(tool);
 	}
 
 
+	/**
+	 * Kills all clang-tidy processes currently started by this scanner.
+	 * Any further invocation of this scanner will be cancelled immediately.
+	 * May be invoked from any thread.
+	 */
+	public void cancelRunningProcesses() {
+		cancelled = true;
+
+		for(ProcessWrapper process : runningProcesses) {
+			process.cancel();
+		}
+	}
+
+
+	/**
+	 * Checks whether this scanner was cancelled, or the current thread was interrupted,
+	 * like the worker threads of a scan being shut down.
+	 */
+	private boolean isCancelled() {
+		return cancelled || Thread.currentThread().isInterrupted();
+	}
+
+
+	/**
+	 * Removes all temporary files created by this scanner.
+	 */
+	@Override
+	public void dispose() {
+		if (tempFiles != null) {
+			tempFiles.dispose();
+		}
+	}
+
+
 
-	private void addToolsConfig(@NotNull ProcessWrapper process) {
+	private void addToolsConfig(@NotNull List<String> arguments) {
 		StringBuilder checksString = null;
 		StringBuilder configString = null;
 
@@ -197,47 +423,398 @@ public class Scanner {
 		}
 
 		if (checksString != null) {
-			process.addArgument("-checks=-*," + checksString.toString());
+			arguments.add("-checks=-*," + checksString.toString());
 		}
 		else {
-			process.addArgument("-checks=*");
+			arguments.add("-checks=*");
 		}
 
 		if (configString != null) {
-			process.addArgument("-config={CheckOptions: [ " + configString.toString() + " ]}");
+			arguments.add("-config={CheckOptions: [ " + configString.toString() + " ]}");
 		}
 
-	//	process.addArgument("-dump-config");
+	//	arguments.add("-dump-config");
 	}
 
 
+	/**
+	 * Runs clang-tidy on a single file.
+	 * @param file		The file to be scanned.
+	 * @param result	The result where to store all issues and fixes found.
+	 * @return {@code true} if clang-tidy was executed successfully.
+	 *          {@code false} if clang-tidy failed, was cancelled or exceeded the timeout.
+	 * @throws ScannerExecutionException when clang-tidy failed and printed any error messages.
+	 */
 	public boolean runOnFiles(@NotNull VirtualFile file, ScannerResult result) throws
 			CompileCommandsNotFoundException,
 			IOException
 	{
-		final ScannerResultUtil resultUtil = new ScannerResultUtil(result);
+		CompileCommandsDatabase database = findCompileCommandsForFile(file);
+
+		if (database == null) {
+			Log.clangtidy.info("Skipping " + file.getPath() + ", no compile command found");
+
+			if (result != null) {
+				result.addSkippedFile(file);
+			}
 
+			return false;
+		}
+
+		Invocation invocation = invoke(database, Collections.singletonList(file), result);
+
+		if (invocation.isTimedOut() || invocation.isCancelled()) {
+			if (invocation.isTimedOut() && result != null) {
+				result.addTimedOutFile(file);
+			}
+
+			return false;
+		}
+
+		if (!invocation.isProcessSuccessful() && invocation.hasErrorLog()) {
+			throw new ScannerExecutionException(
+					file,
+					invocation.getErrorLog(file)
+			);
+		}
+
+		return !invocation.hasFailed(file);
+	}
+
+
+	/**
+	 * Runs clang-tidy on multiple files within a single process.
+	 * Issues and fixes will be assigned to their files by the paths reported by clang-tidy.
+	 * When clang-tidy fails on any file, this file will be added to the result's failed files,
+	 * while the results of all other files will be kept.
+	 * When clang-tidy exceeds the timeout, each file of the batch will be scanned again on it's own,
+	 * so only the files exceeding the timeout will be added to the result's timed out files.
+	 * Files without any compile command will not be passed to clang-tidy, but added to the
+	 * result's skipped files.
+	 * @param files			The files to be scanned.
+	 * @param result		The result where to store all issues, fixes and failed files.
+	 * @param errorHandler	An optional handler to receive the error messages of each file failed.
+	 * @return {@code true} if clang-tidy was executed successfully on all files.
+	 */
+	public boolean runOnFiles(
+			@NotNull List<VirtualFile> files,
+			@NotNull ScannerResult result,
+			@Nullable Consumer<ScannerExecutionException> errorHandler
+	) throws
+			CompileCommandsNotFoundException,
+			IOException
+	{
+		Map<CompileCommandsDatabase,List<VirtualFile>> filesByDatabase = new LinkedHashMap<>();
+		boolean allSuccessful = true;
+
+		// each clang-tidy process can only use a single compile commands database
+		for(VirtualFile file : files) {
+			CompileCommandsDatabase database = findCompileCommandsForFile(file);
+
+			if (database != null) {
+				filesByDatabase.computeIfAbsent(database, d -> new ArrayList<>()).add(file);
+			}
+			else {
+				Log.clangtidy.info("Skipping " + file.getPath() + ", no compile command found");
+				result.addSkippedFile(file);
+			}
+		}
+
+		for(Map.Entry<CompileCommandsDatabase,List<VirtualFile>> entry : filesByDatabase.entrySet()) {
+			if (isCancelled()) {
+				return false;
+			}
+
+			allSuccessful &= runOnFiles(entry.getKey(), entry.getValue(), result, errorHandler);
+		}
+
+		return allSuccessful;
+	}
+
+
+	private boolean runOnFiles(
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<VirtualFile> files,
+			@NotNull ScannerResult result,
+			@Nullable Consumer<ScannerExecutionException> errorHandler
+	) throws
+			IOException
+	{
+		Invocation invocation = invoke(database, files, result);
+		boolean allSuccessful = true;
+
+		if (invocation.isCancelled()) {
+			return false;
+		}
+
+		if (invocation.isTimedOut()) {
+			if (files.size() == 1) {
+				result.addTimedOutFile(files.get(0));
+				return false;
+			}
+
+			// retry each file on its own, to find out which one caused the timeout
+			for(VirtualFile file : files) {
+				if (isCancelled()) {
+					return false;
+				}
+
+				allSuccessful &= runOnFiles(database, Collections.singletonList(file), result, errorHandler);
+			}
+
+			return allSuccessful;
+		}
+
+		for(VirtualFile file : files) {
+			if (invocation.hasFailed(file)) {
+				allSuccessful = false;
+				result.addFailedFile(file);
+
+				String errorLog = invocation.getErrorLog(file);
+				if (errorHandler != null && !errorLog.isEmpty()) {
+					errorHandler.accept(new ScannerExecutionException(file, errorLog));
+				}
+			}
+		}
+
+		return allSuccessful;
+	}
+
+
+	private @NotNull Invocation invoke(
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<VirtualFile> files,
+			ScannerResult result
+	) throws
+			IOException
+	{
 		if (!ready) {
 			throw new IllegalStateException("CLangTidy runner not properly configured");
 		}
 
-		if (!file.exists()) {
-			throw new FileNotFoundException();
+		if (files.isEmpty()) {
+			throw new IllegalArgumentException("No files to scan");
+		}
+
+		for(VirtualFile file : files) {
+			if (!file.exists()) {
+				throw new FileNotFoundException(file.getPath());
+			}
+
+			if (file.isDirectory()) {
+				throw new IOException("File is a directory.");
+			}
+		}
+
+		// only report headers of the project, instead of any system or third party header
+		HeaderFilter headerFilter = getHeaderFilter();
+
+		// older versions can't exclude headers, so their results will be filtered when being collected
+		HeaderFilter excludedHeaders = null;
+
+		List<String> configArguments = new ArrayList<>();
+		configArguments.add("-header-filter=" + headerFilter.getHeaderFilterRegex());
+
+		String excludeHeaderFilter = headerFilter.getExcludeHeaderFilterRegex();
+		if (excludeHeaderFilter != null) {
+			if (ToolCollection.getCLangTidyMajorVersion() >= HeaderFilter.MIN_EXCLUDE_HEADER_FILTER_VERSION) {
+				configArguments.add("-exclude-header-filter=" + excludeHeaderFilter);
+			}
+			else {
+				excludedHeaders = headerFilter;
+			}
+		}
+
+		addToolsConfig(configArguments);
+
+		if (!lineFilter.isEmpty()) {
+			configArguments.add(createLineFilterArgument());
+		}
+
+		// fixes applied immediately would be written to the files on disk, so they need to be scanned
+		if (isScanningUnsavedDocuments()) {
+			// the files of the snapshot remain unchanged, until this invocation has finished
+			UnsavedFilesOverlay overlay = UnsavedFilesOverlay.getInstance(project);
+			UnsavedFilesOverlay.Snapshot snapshot = overlay.acquire();
+
+			try {
+				return invoke(database, files, result, configArguments, excludedHeaders, snapshot);
+			}
+			finally {
+				overlay.release(snapshot);
+			}
+		}
+
+		return invoke(database, files, result, configArguments, excludedHeaders, null);
+	}
+
+
+	/**
+	 * Runs clang-tidy on the given files, unless their results are found in the cache.
+	 * @param overlay	The snapshot of unsaved documents to be scanned, if any.
+	 */
+	private @NotNull Invocation invoke(
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<VirtualFile> files,
+			ScannerResult result,
+			@NotNull List<String> configArguments,
+			@Nullable HeaderFilter excludedHeaders,
+			@Nullable UnsavedFilesOverlay.Snapshot overlay
+	) throws
+			IOException
+	{
+		final Invocation invocation = new Invocation(files);
+		List<VirtualFile> filesToScan = files;
+		Map<VirtualFile,String> cacheKeys = new HashMap<>();
+
+		// fixes applied immediately will modify the files, so those results can't be taken from the cache
+		ScannerResultCache cache = ScannerResultCache.getInstance();
+		if (fixIssues != FixIssues.FixImmediately && cache.isEnabled()) {
+			filesToScan = new ArrayList<>();
+
+			for(VirtualFile file : files) {
+				String key = computeCacheKey(file, database, configArguments, overlay);
+				ScannerResult cachedResult = key != null ? cache.load(key) : null;
+
+				if (cachedResult != null) {
+					Log.clangtidy.debug("Using cached result for " + file.getPath());
+					invocation.setCached(file);
+
+					if (result != null) {
+						addResults(result, cachedResult, excludedHeaders, files);
+					}
+				}
+				else {
+					filesToScan.add(file);
+
+					if (key != null) {
+						cacheKeys.put(file, key);
+					}
+				}
+			}
+
+			if (filesToScan.isEmpty()) {
+				invocation.setProcessSuccessful(true);
+				return invocation;
+			}
+		}
+
+		// concurrent scans of a single file with equal inputs share a single clang-tidy process;
+		// fixes applied immediately will modify the file, so each of them needs its own process
+		String flightKey = null;
+		if (fixIssues != FixIssues.FixImmediately && files.size() == 1) {
+			flightKey = cache.isEnabled()
+					? cacheKeys.get(files.get(0))
+					: computeFlightKey(files.get(0), database, configArguments, overlay)
+			;
+		}
+
+		Invocation processInvocation;
+		if (flightKey != null) {
+			processInvocation = inFlightInvocations.run(
+					flightKey,
+					() -> execute(invocation, database, files, configArguments, overlay, cacheKeys),
+					this::isCancelled
+			);
+
+			if (processInvocation == null) {
+				// cancelled while waiting for another scan
+				invocation.setCancelled(true);
+				return invocation;
+			}
+
+			if (processInvocation != invocation) {
+				Log.clangtidy.debug("Shared result of a concurrent scan for " + files.get(0).getPath());
+			}
+		}
+		else {
+			processInvocation = execute(invocation, database, filesToScan, configArguments, overlay, cacheKeys);
+		}
+
+		if (result != null && !processInvocation.isTimedOut() && !processInvocation.isCancelled()) {
+			// the changes of fixes will be modified when applying them,
+			// so each caller sharing the result of another scan gets its own copy
+			ScannerResult processResult = processInvocation != invocation
+					? processInvocation.getResult().copy()
+					: processInvocation.getResult()
+			;
+
+			addResults(result, processResult, excludedHeaders, files);
 		}
 
-		if (file.isDirectory()) {
-			throw new IOException("File is a directory.");
+		return processInvocation;
+	}
+
+
+	/**
+	 * Adds the results of an invocation, dropping issues and fixes of excluded headers,
+	 * which clang-tidy could not exclude by itself.
+	 * @param excludedHeaders	The filter of headers to be dropped, or {@code null} to add all results.
+	 * @param files				The source files of the invocation, which will never be dropped.
+	 */
+	private static void addResults(
+			@NotNull ScannerResult result,
+			@NotNull ScannerResult other,
+			@Nullable HeaderFilter excludedHeaders,
+			@NotNull List<VirtualFile> files
+	) {
+		if (excludedHeaders == null) {
+			result.addResults(other);
+			return;
 		}
 
-		// find compile commands
-		File compileCommandsFile = findCompileCommandsForFile(file);
+		Set<String> sourceFiles = new HashSet<>();
+		for(VirtualFile file : files) {
+			sourceFiles.add(file.getPath().replace('\\', '/'));
+		}
 
-		ProcessWrapper process = new ProcessWrapper(Options.getCLangTidyExe());
-		process.addArgument("-p");
-		process.addArgument(compileCommandsFile.getParentFile().getAbsolutePath());
-		process.addArgument("-header-filter=.*");
+		Predicate<String> isIncluded = path -> {
+			String normalized = path.replace('\\', '/');
+			return sourceFiles.contains(normalized) || !excludedHeaders.isExcluded(normalized);
+		};
 
-		addToolsConfig(process);
+		result.addResults(
+				other,
+				issue -> issue.getSourceFile() == null || isIncluded.test(issue.getSourceFile().getPath()),
+				fix -> fix.getChanges().stream().anyMatch(change -> isIncluded.test(change.getFile().getPath()))
+		);
+	}
+
+
+	/**
+	 * Runs a single clang-tidy process, collecting its results into the given invocation.
+	 * @param cacheKeys	The keys to store the results of each file in the cache, for files having a key.
+	 */
+	private @NotNull Invocation execute(
+			@NotNull Invocation invocation,
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<VirtualFile> filesToScan,
+			@NotNull List<String> configArguments,
+			@Nullable UnsavedFilesOverlay.Snapshot overlay,
+			@NotNull Map<VirtualFile,String> cacheKeys
+	) throws
+			IOException
+	{
+		final ScannerResultUtil resultUtil = new ScannerResultUtil(invocation.getResult(), internPool);
+
+		// clang-tidy loads the whole database on each start,
+		// so it gets a database containing only the files of this invocation
+		File databaseDir = null;
+		if (database.size() > filesToScan.size()) {
+			databaseDir = createMinimizedDatabase(database, filesToScan);
+		}
+
+		List<String> arguments = new ArrayList<>();
+		arguments.add("-p");
+		arguments.add(databaseDir != null ? databaseDir.getAbsolutePath() : database.getFile().getParentFile().getAbsolutePath());
+		arguments.addAll(configArguments);
+
+		if (overlay != null) {
+			arguments.add("-vfsoverlay=" + overlay.getOverlayFile().getPath());
+		}
+
+		File fixesTargetFile = null;
+		File responseFile    = null;
 
 		switch(fixIssues) {
 			case DontFix: {
@@ -245,74 +822,557 @@ public class Scanner {
 			}
 
 			case FixImmediately: {
-				process.addArgument("-fix");
+				arguments.add("-fix");
 				break;
 			}
 
 			case StoreFixes: {
-				if (fixesTargetFile != null) {
-					process.addArgument("-export-fixes=" + fixesTargetFile.getPath().replace('\\', '/'));
-				}
+				fixesTargetFile = tempFiles.allocate(".yaml");
+				arguments.add("-export-fixes=" + fixesTargetFile.getPath().replace('\\', '/'));
 
 				break;
 			}
 		}
 
 		// add all source files
-		process.addArgument(file.getPath());
-		final boolean[] readingFileFailed = new boolean[]{ false };
-		boolean success = false;
+		for(VirtualFile file : filesToScan) {
+			arguments.add(file.getPath());
+		}
+
+		ProcessWrapper process;
+		if (getCommandLineLength(arguments) > MAX_COMMAND_LINE_LENGTH) {
+			// too many files to be passed on the command line, so pass all arguments via a response file
+			responseFile = tempFiles.allocate(".rsp");
+			writeResponseFile(responseFile, arguments);
+
+			process = new ProcessWrapper(Options.getCLangTidyExe(), "@" + responseFile.getPath());
+		}
+		else {
+			process = new ProcessWrapper(Options.getCLangTidyExe(), arguments);
+		}
+
+		process.setTempFiles(tempFiles);
 
 		process.setOutputConsumer(
 				(String line) -> {
 					Log.clangtidy.debug(line);
 
 					resultUtil.parseIssue(line);
-
-					if (line.startsWith("error: error reading")) {
-						// failed to read an input file
-						// this may be a hint to an issue on windows, where paths with backslash separators
-						// within the compile_commands.json are not recognized
-						readingFileFailed[0] = true;
-					}
+					invocation.onOutputLine(line);
 				}
 		);
 
-		final StringBuilder errorLog = new StringBuilder();
 		process.setErrorConsumer(
 				line -> {
 					Log.clangtidy.warn(line);
-					errorLog.append(line).append('\n');
+					invocation.onErrorLine(line);
 				}
 		);
 
+		int timeout = Options.getScanTimeoutPerFile();
+		if (timeout > 0) {
+			process.setTimeout(TimeUnit.SECONDS.toMillis(timeout) * filesToScan.size());
+		}
+
+		runningProcesses.add(process);
+
 		try {
+			if (isCancelled()) {
+				process.cancel();
+			}
+
 			Log.clangtidy.info("Run command: " + process.getCommand());
-			success = process.run();
+
+			if (responseFile != null) {
+				Log.clangtidy.debug("Response file: " + String.join(" ", arguments));
+			}
+
+			invocation.setProcessSuccessful(process.run());
 		}
 		catch(IOException e) {
 			Logger.getInstance(this.getClass()).error(e);
 		}
+		finally {
+			runningProcesses.remove(process);
+			tempFiles.release(responseFile);
+			tempFiles.release(databaseDir);
+		}
+
+		invocation.setTimedOut(process.isTimedOut());
+		invocation.setCancelled(process.isCancelled());
+
+		if (process.isTimedOut()) {
+			Log.clangtidy.warn("clang-tidy exceeded the timeout of " + timeout + "s per file: " + process.getCommand());
+		}
+
+		if (fixesTargetFile != null) {
+			if (fixesTargetFile.exists() && !process.isTimedOut() && !process.isCancelled()) {
+				resultUtil.readFixesList(fixesTargetFile);
+			}
+
+			tempFiles.release(fixesTargetFile);
+		}
 
 		if (
-				fixIssues == FixIssues.StoreFixes
-			&&	result != null
-			&&	fixesTargetFile.exists()
+				!cacheKeys.isEmpty()
+			&&	invocation.isProcessSuccessful()
+			&&	!invocation.isTimedOut()
+			&&	!invocation.isCancelled()
 		) {
-			resultUtil.readFixesList(fixesTargetFile);
-			fixesTargetFile.delete();
+			storeResults(invocation, database, filesToScan, cacheKeys);
 		}
 
-		if (!success && errorLog.length() != 0) {
-			throw new ScannerExecutionException(
-					file,
-					errorLog.toString()
+		return invocation;
+	}
+
+
+	/**
+	 * Stores the results of each file of a successful invocation in the cache.
+	 * The results of a single file are stored as they are, while the results of multiple files
+	 * are split by the headers included by each file. Issues found in a header will be
+	 * stored for each file including this header, like a single scan of that file would report them.
+	 */
+	private void storeResults(
+			@NotNull Invocation invocation,
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<VirtualFile> filesToScan,
+			@NotNull Map<VirtualFile,String> cacheKeys
+	) {
+		ScannerResultCache cache = ScannerResultCache.getInstance();
+
+		if (filesToScan.size() == 1) {
+			VirtualFile file = filesToScan.get(0);
+			String key = cacheKeys.get(file);
+
+			if (key != null && !invocation.hasFailed(file)) {
+				cache.store(key, invocation.getResult());
+			}
+
+			return;
+		}
+
+		for(VirtualFile file : filesToScan) {
+			String key = cacheKeys.get(file);
+			if (key == null || invocation.hasFailed(file) || project == null) {
+				continue;
+			}
+
+			// the headers are known, otherwise there would be no key for this file
+			List<File> headers;
+			try {
+				headers = IncludeGraph.getInstance(project).getHeaders(file, database);
+			}
+			catch(IOException e) {
+				Log.clangtidy.debug("Failed to store cached result for " + file.getPath() + ": " + e.getMessage());
+				continue;
+			}
+
+			if (headers == null) {
+				continue;
+			}
+
+			Set<String> paths = new HashSet<>();
+			paths.add(CompileCommandsDatabase.normalizePath(file.getPath()));
+			for(File header : headers) {
+				paths.add(CompileCommandsDatabase.normalizePath(header.getPath()));
+			}
+
+			Predicate<String> isIncluded = path -> paths.contains(CompileCommandsDatabase.normalizePath(path));
+
+			ScannerResult slice = new ScannerResult();
+			slice.addResults(
+					invocation.getResult(),
+					issue -> issue.getSourceFile() != null && isIncluded.test(issue.getSourceFile().getPath()),
+					fix -> fix.getChanges().stream().anyMatch(change -> isIncluded.test(change.getFile().getPath()))
 			);
+
+			cache.store(key, slice);
 		}
+	}
+
+
+	/**
+	 * Computes the key of the cached result for a single file.
+	 * The key covers all inputs which determine the result of clang-tidy,
+	 * including the content of all headers included by the file.
+	 * @param overlay	The snapshot providing the content of unsaved documents, if used.
+	 * @return The key of the file, or {@code null} if it could not be computed,
+	 *          like when the file has includes which could not be resolved.
+	 */
+	private @Nullable String computeCacheKey(
+			@NotNull VirtualFile file,
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<String> configArguments,
+			@Nullable UnsavedFilesOverlay.Snapshot overlay
+	) {
+		String version = ToolCollection.getCLangTidyVersion();
+		if (version == null) {
+			return null;
+		}
+
+		try {
+			CompileCommandsDatabase.Entry entry = database.findEntry(file.getPath());
+			if (entry == null) {
+				return null;
+			}
+
+			ScannerResultCache.KeyBuilder key = ScannerResultCache.getInstance().createKey()
+					.add(Options.getCLangTidyExe())
+					.add(version)
+					.add(fixIssues.name())
+					// results of unsaved documents must not be shared with scans of the files on disk
+					.add(overlay != null ? "vfsoverlay" : "disk")
+					.add(file.getPath())
+					.addFileContent(getContentFile(new File(file.getPath()), overlay))
+			;
+
+			// only the file's own compile command, so changes on other files' commands don't affect this file
+			key.add(entry.getDirectory().getPath());
+			for(String argument : entry.getArguments()) {
+				key.add(argument);
+			}
+
+			for(String argument : configArguments) {
+				key.add(argument);
+			}
+
+			// the result also depends on all headers included
+			if (project != null) {
+				List<File> headers = IncludeGraph.getInstance(project).getHeaders(file, database);
+
+				// a changed header not known to be included would not change the key
+				if (headers == null) {
+					return null;
+				}
+
+				for(File header : headers) {
+					key.add(header.getPath());
+					key.addSharedFileContent(getContentFile(header, overlay));
+				}
+			}
+
+			return key.build();
+		}
+		catch(IOException e) {
+			Log.clangtidy.debug("Failed to compute cache key for " + file.getPath() + ": " + e.getMessage());
+		}
+
+		return null;
+	}
 
-		// the scan was successful, so on next fail, the notification will be shown again
-		NotificationFactory.resetCompileCommandsNotFoundNotification();
 
-		return success && !readingFileFailed[0];
+	/**
+	 * Computes the key to share a single clang-tidy process between concurrent scans of a single file,
+	 * when there's no cache key available. Other than the cache key, this key does not hash
+	 * the content of the file and its headers, but only covers their modification stamps,
+	 * which is sufficient for scans running at the same time.
+	 * @param overlay	The snapshot providing the content of unsaved documents, if used.
+	 */
+	private @NotNull String computeFlightKey(
+			@NotNull VirtualFile file,
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<String> configArguments,
+			@Nullable UnsavedFilesOverlay.Snapshot overlay
+	) {
+		File contentFile = getContentFile(new File(file.getPath()), overlay);
+
+		List<String> key = new ArrayList<>();
+		key.add(Options.getCLangTidyExe());
+		key.add(fixIssues.name());
+		key.add(file.getPath());
+		key.add(contentFile.getPath());
+		key.add(Long.toString(contentFile.lastModified()));
+		key.add(Long.toString(contentFile.length()));
+		key.add(database.getFile().getPath());
+		key.add(Long.toString(database.getFile().lastModified()));
+
+		// all unsaved documents of a snapshot are listed in its overlay file
+		key.add(overlay != null ? overlay.getOverlayFile().getPath() : "disk");
+		key.addAll(configArguments);
+
+		return String.join("\0", key);
+	}
+
+
+	/**
+	 * Creates the -line-filter argument, which is a JSON list of files with their line ranges.
+	 */
+	private @NotNull String createLineFilterArgument() {
+		StringBuilder json = new StringBuilder();
+		json.append('[');
+
+		for(Map.Entry<String,List<Pair<Integer,Integer>>> entry : lineFilter.entrySet()) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+
+			json.append("{\"name\":\"");
+			json.append(entry.getKey().replace("\\", "\\\\").replace("\"", "\\\""));
+			json.append("\",\"lines\":[");
+
+			boolean first = true;
+			for(Pair<Integer,Integer> lines : entry.getValue()) {
+				if (!first) {
+					json.append(',');
+				}
+
+				json.append('[').append(lines.getFirst()).append(',').append(lines.getSecond()).append(']');
+				first = false;
+			}
+
+			json.append("]}");
+		}
+
+		json.append(']');
+
+		return "-line-filter=" + json;
+	}
+
+
+	private static @NotNull File getContentFile(@NotNull File file, @Nullable UnsavedFilesOverlay.Snapshot overlay) {
+		return overlay != null ? overlay.getContentFile(file) : file;
+	}
+
+
+	/**
+	 * Creates a directory with a compile_commands.json containing only the commands of the given files.
+	 * @return The directory created, or {@code null} if the original database needs to be used.
+	 */
+	private @Nullable File createMinimizedDatabase(
+			@NotNull CompileCommandsDatabase database,
+			@NotNull List<VirtualFile> files
+	) {
+		File databaseDir = null;
+
+		try {
+			databaseDir = tempFiles.allocate(".db");
+			if (!databaseDir.mkdirs()) {
+				throw new IOException("Failed to create directory " + databaseDir);
+			}
+
+			List<String> paths = new ArrayList<>(files.size());
+			for(VirtualFile file : files) {
+				paths.add(file.getPath());
+			}
+
+			database.writeSubset(paths, new File(databaseDir, "compile_commands.json"));
+
+			return databaseDir;
+		}
+		catch(IOException e) {
+			Log.clangtidy.warn("Failed to create compile commands for " + files.size() + " files: " + e.getMessage());
+			tempFiles.release(databaseDir);
+		}
+
+		return null;
+	}
+
+
+	private static int getCommandLineLength(@NotNull List<String> arguments) {
+		int length = Options.getCLangTidyExe().length();
+
+		for(String argument : arguments) {
+			length += argument.length() + 3; // including separator and quotes
+		}
+
+		return length;
+	}
+
+
+	private static void writeResponseFile(@NotNull File responseFile, @NotNull List<String> arguments) throws IOException {
+		try(Writer out = new OutputStreamWriter(new FileOutputStream(responseFile), StandardCharsets.UTF_8)) {
+			for(String argument : arguments) {
+				out.write('"');
+
+				for(int i=0; i<argument.length(); i++) {
+					char c = argument.charAt(i);
+
+					// on windows, backslashes are only escaped when preceding a quote
+					if (c == '"' || (c == '\\' && !SystemInfo.isWindows)) {
+						out.write('\\');
+					}
+
+					out.write(c);
+				}
+
+				out.write('"');
+				out.write('\n');
+			}
+		}
+	}
+
+
+	/**
+	 * Collects the state of a single clang-tidy invocation and assigns
+	 * any error messages to the file which caused them.
+	 */
+	static class Invocation {
+		//language=RegExp
+		private final static Pattern ERROR_PROCESSING_PATTERN
+				= Pattern.compile("^Error while processing (.*)\\.$");
+
+		//language=RegExp
+		private final static Pattern SKIPPING_PATTERN
+				= Pattern.compile("^Skipping (.*)\\. Compile command not found\\.$");
+
+		//language=RegExp
+		private final static Pattern ERROR_READING_PATTERN
+				= Pattern.compile("^error: error reading '(.*)'.*$");
+
+		private final List<String>				files;
+		private final ScannerResult				result			= new ScannerResult();
+		private final Map<String,StringBuilder>	errorLogs		= new HashMap<>();
+		private final Set<String>				failedFiles		= new HashSet<>();
+		private final Set<String>				cachedFiles		= new HashSet<>();
+		private final StringBuilder				errorLog		= new StringBuilder();
+		private final StringBuilder				pendingLog		= new StringBuilder();
+		private boolean							readingFileFailed;
+		private boolean							processSuccessful;
+		private boolean							timedOut;
+		private boolean							cancelled;
+
+
+		Invocation(@NotNull List<VirtualFile> files) {
+			this(files.stream().map(VirtualFile::getPath).collect(Collectors.toList()));
+		}
+
+
+		/**
+		 * @param paths	The paths of the source files passed to clang-tidy.
+		 */
+		Invocation(@NotNull Collection<String> paths) {
+			this.files = paths.stream().map(Invocation::normalize).collect(Collectors.toList());
+		}
+
+
+		/**
+		 * The results of this invocation, collected separately,
+		 * so they can be dropped, when the process gets killed.
+		 */
+		@NotNull ScannerResult getResult() {
+			return result;
+		}
+
+
+		synchronized void onOutputLine(@NotNull String line) {
+			if (line.startsWith("error: error reading")) {
+				// failed to read an input file
+				// this may be a hint to an issue on windows, where paths with backslash separators
+				// within the compile_commands.json are not recognized
+				Matcher m = ERROR_READING_PATTERN.matcher(line);
+				if (m.matches() && isInputFile(m.group(1))) {
+					failedFiles.add(normalize(m.group(1)));
+				}
+				else {
+					readingFileFailed = true;
+				}
+			}
+		}
+
+
+		synchronized void onErrorLine(@NotNull String line) {
+			errorLog.append(line).append('\n');
+			pendingLog.append(line).append('\n');
+
+			// clang-tidy processes its input files one after another,
+			// so all messages since the last failed file belong to the next one failed
+			for(Pattern pattern : new Pattern[] { ERROR_PROCESSING_PATTERN, SKIPPING_PATTERN }) {
+				Matcher m = pattern.matcher(line);
+
+				if (m.matches() && isInputFile(m.group(1))) {
+					String path = normalize(m.group(1));
+					failedFiles.add(path);
+					errorLogs.computeIfAbsent(path, p -> new StringBuilder()).append(pendingLog);
+					pendingLog.setLength(0);
+					break;
+				}
+			}
+		}
+
+
+		synchronized void setProcessSuccessful(boolean processSuccessful) {
+			this.processSuccessful = processSuccessful;
+		}
+
+		synchronized boolean isProcessSuccessful() {
+			return processSuccessful;
+		}
+
+
+		synchronized void setTimedOut(boolean timedOut) {
+			this.timedOut = timedOut;
+		}
+
+		synchronized boolean isTimedOut() {
+			return timedOut;
+		}
+
+
+		synchronized void setCancelled(boolean cancelled) {
+			this.cancelled = cancelled;
+		}
+
+		synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+
+		synchronized boolean hasErrorLog() {
+			return errorLog.length() != 0;
+		}
+
+
+		synchronized void setCached(@NotNull VirtualFile file) {
+			cachedFiles.add(normalize(file.getPath()));
+		}
+
+
+		boolean hasFailed(@NotNull VirtualFile file) {
+			return hasFailed(file.getPath());
+		}
+
+
+		synchronized boolean hasFailed(@NotNull String path) {
+			String normalizedPath = normalize(path);
+
+			if (cachedFiles.contains(normalizedPath)) {
+				return false;
+			}
+
+			if (failedFiles.contains(normalizedPath)) {
+				return true;
+			}
+
+			// when no failed file could be identified, all files are considered as failed
+			return
+					readingFileFailed
+				||	(!processSuccessful && failedFiles.isEmpty())
+			;
+		}
+
+
+		@NotNull String getErrorLog(@NotNull VirtualFile file) {
+			return getErrorLog(file.getPath());
+		}
+
+
+		synchronized @NotNull String getErrorLog(@NotNull String path) {
+			if (files.size() == 1) {
+				return errorLog.toString();
+			}
+
+			StringBuilder log = errorLogs.get(normalize(path));
+			return log != null ? log.toString() : "";
+		}
+
+
+		private boolean isInputFile(@NotNull String path) {
+			return files.contains(normalize(path));
+		}
+
+
+		private static @NotNull String normalize(@NotNull String path) {
+			return path.replace('\\', '/');
+		}
 	}
 }
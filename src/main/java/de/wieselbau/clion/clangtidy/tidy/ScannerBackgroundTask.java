@@ -28,14 +28,20 @@ import com.intellij.openapi.progress.Task;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import de.wieselbau.clion.clangtidy.NotificationFactory;
+import de.wieselbau.clion.clangtidy.Options;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 /**
  * Background task to scan for fixes within a given file set.
+ * The files will be processed by a pool of worker threads, each running its own
+ * clang-tidy process, while all results are collected in a shared {@link ScannerResult}.
  */
 public class ScannerBackgroundTask extends Task.Modal {
 	public final static String TITLE	= "clang-tidy";
@@ -43,7 +49,8 @@ public class ScannerBackgroundTask extends Task.Modal {
 	private Project			project;
 	private Scanner			scanner;
 	private ScannerResult	scannerResult;
-	private boolean			cancelled;
+	private volatile boolean	cancelled;
+	private volatile boolean	aborted;
 
 	private SourceFileSelection	files;
 	private BiConsumer<Scanner, ScannerResult> onSuccessCallback;
@@ -56,6 +63,7 @@ public class ScannerBackgroundTask extends Task.Modal {
 		this.scanner		= scanner;
 		this.scannerResult	= new ScannerResult();
 		this.cancelled		= false;
+		this.aborted		= false;
 	}
 
 
@@ -76,40 +84,139 @@ public class ScannerBackgroundTask extends Task.Modal {
 
 		List<VirtualFile> filesToProcess = files.getFilesToProcess();
 
-		int filesTotal		= filesToProcess.size();
-		int filesProcessed	= 0;
+		final int filesTotal				= filesToProcess.size();
+		final AtomicInteger filesProcessed	= new AtomicInteger(0);
+		final List<List<VirtualFile>> batches	= createBatches(filesToProcess, Options.getScanBatchSize());
+		final int threadCount				= Math.max(1, Math.min(Options.getScanThreadCount(), batches.size()));
+		final long startTime				= System.currentTimeMillis();
+		final int sharedScansBefore			= Scanner.getSharedScansCount();
 
-		for(VirtualFile file : filesToProcess) {
-			indicator.setText(file.getPath());
-			boolean successful;
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ScannerThreadFactory());
+		CompletionService<List<VirtualFile>> completionService = new ExecutorCompletionService<>(executor);
 
-			try {
-				successful = scanner.runOnFiles(file, scannerResult);
+		for(List<VirtualFile> batch : batches) {
+			completionService.submit(
+					() -> {
+						scanFiles(batch, indicator);
+						indicator.setFraction(1.0 * filesProcessed.addAndGet(batch.size()) / filesTotal);
+					},
+					batch
+			);
+		}
+
+		try {
+			for(int pending = batches.size(); pending > 0; ) {
+				if (isCancelled(indicator)) {
+					break;
+				}
+
+				// poll with a timeout, so cancellation will be noticed while the workers are busy
+				Future<List<VirtualFile>> finished = completionService.poll(100, TimeUnit.MILLISECONDS);
+				scannerResult.updatePeakOutputPumpThreads(ProcessOutputPump.getInstance().getActiveThreadCount());
+
+				if (finished == null) {
+					continue;
+				}
+
+				--pending;
+
+				try {
+					finished.get();
+				}
+				catch(ExecutionException e) {
+					Logger.getInstance(this.getClass()).error(e.getCause());
+				}
 			}
-			catch(CompileCommandsNotFoundException e) {
-				NotificationFactory.notifyCompileCommandsNotFound(project, e.getCMakeWorkspace());
-				break;
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			if (isCancelled(indicator)) {
+				// kill all running clang-tidy processes instead of waiting for them to finish
+				scanner.cancelRunningProcesses();
 			}
-			catch (ScannerExecutionException e) {
-				NotificationFactory.notifyScanFailedOnFile(project, e);
-				successful = false;
+
+			executor.shutdownNow();
+
+			try {
+				executor.awaitTermination(5, TimeUnit.SECONDS);
 			}
-			catch(IOException e) {
-				Logger.getInstance(this.getClass()).error(e);
-				successful = false;
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
+		}
 
-			if (!successful) {
-			//	NotificationFactory.notifyScanFailedOnFile(project, file);
-				scannerResult.addFailedFile(file);
-			}
+		Log.clangtidy.info(
+				"Scanned " + filesProcessed.get() + " of " + filesTotal + " files"
+			+	" in " + batches.size() + " batches using " + threadCount + " threads"
+			+	" in " + (System.currentTimeMillis() - startTime) + "ms"
+			+	" (" + scannerResult.getTimedOutFiles().size() + " timed out,"
+			+	" " + scannerResult.getSkippedFiles().size() + " skipped without compile command)"
+		);
 
-			if (cancelled) {
-				break;
-			}
+		Log.clangtidy.info(
+				"Found " + scannerResult.getIssues().size() + " issues and " + scannerResult.getFixes().size() + " fixes"
+			+	" (" + scannerResult.getDuplicateReportsCount() + " duplicate reports dropped)"
+		);
+
+		Log.clangtidy.info(
+				"Scan resources: " + scannerResult.getPeakOutputPumpThreads() + " output pump threads at peak, "
+			+	(Scanner.getSharedScansCount() - sharedScansBefore) + " scans shared with concurrent scans, "
+			+	scanner.getInternPool().getHits() + " paths and names shared"
+			+	" to save about " + (scanner.getInternPool().getSavedBytes() / 1024) + " KB"
+		);
+	}
+
+
+	private boolean isCancelled(@NotNull ProgressIndicator indicator) {
+		return cancelled || aborted || indicator.isCanceled();
+	}
+
+
+	/**
+	 * Splits the list of files into batches, which will be processed by a single clang-tidy process each.
+	 */
+	private static @NotNull List<List<VirtualFile>> createBatches(@NotNull List<VirtualFile> files, int batchSize) {
+		List<List<VirtualFile>> batches = new ArrayList<>();
 
-			++filesProcessed;
-			indicator.setFraction(1.0 * filesProcessed / filesTotal);
+		for(int i=0; i<files.size(); i+=batchSize) {
+			batches.add(files.subList(i, Math.min(i + batchSize, files.size())));
+		}
+
+		return batches;
+	}
+
+
+	/**
+	 * Runs the scanner on a batch of files. Will be invoked on any of the worker threads.
+	 */
+	private void scanFiles(@NotNull List<VirtualFile> batch, @NotNull ProgressIndicator indicator) {
+		// workers get interrupted when the scan was cancelled while their batch was still queued
+		if (isCancelled(indicator) || Thread.currentThread().isInterrupted()) {
+			return;
+		}
+
+		indicator.setText(batch.get(0).getPath());
+
+		try {
+			scanner.runOnFiles(
+					batch,
+					scannerResult,
+					e -> NotificationFactory.notifyScanFailedOnFile(project, e)
+			);
+		}
+		catch(CompileCommandsNotFoundException e) {
+			// no need to continue with any other file
+			aborted = true;
+			NotificationFactory.notifyCompileCommandsNotFound(project, e.getCMakeWorkspace());
+		}
+		catch(IOException e) {
+			Logger.getInstance(this.getClass()).error(e);
+
+			for(VirtualFile file : batch) {
+				scannerResult.addFailedFile(file);
+			}
 		}
 	}
 
@@ -129,4 +236,25 @@ public class ScannerBackgroundTask extends Task.Modal {
 			onSuccessCallback.accept(scanner, scannerResult);
 		}
 	}
+
+
+	@Override
+	public void onFinished() {
+		super.onFinished();
+
+		// the scan has ended, so remove any temporary files left
+		scanner.dispose();
+	}
+
+
+	private static class ScannerThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(@NotNull Runnable runnable) {
+			Thread thread = new Thread(runnable, "clang-tidy scanner #" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 }
@@ -25,17 +25,85 @@ package de.wieselbau.clion.clangtidy.tidy;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 /**
  * Collects the result of the {@link Scanner}.
+ * The result may be shared between multiple scanner threads, so all elements are stored
+ * within concurrent collections. Duplicates are detected by their hash instead of
+ * comparing each new element with all elements stored before.
+ *
+ * Diagnostics in headers are reported again by each translation unit including the header.
+ * Those are stored only once, counting how often they were reported.
  */
 public class ScannerResult {
-	private List<VirtualFile>	filesFailed		= new ArrayList<>();
-	private List<Issue>			issues			= new ArrayList<>();
-	private List<Fix>			fixes			= new ArrayList<>();
+	/**
+	 * A set of elements which remembers the order in which they were added
+	 * and how often each of them was added.
+	 */
+	private static class OrderedSet<T> {
+		private final ConcurrentHashMap<T,AtomicInteger>	elements	= new ConcurrentHashMap<>();
+		private final Queue<T>								ordered		= new ConcurrentLinkedQueue<>();
+
+		boolean add(T element) {
+			return add(element, 1);
+		}
+
+		boolean add(T element, int count) {
+			AtomicInteger existing = elements.putIfAbsent(element, new AtomicInteger(count));
+			if (existing == null) {
+				ordered.add(element);
+				return true;
+			}
+
+			existing.addAndGet(count);
+			return false;
+		}
+
+		int getCount(T element) {
+			AtomicInteger count = elements.get(element);
+			return count != null ? count.get() : 0;
+		}
+
+		int getDuplicatesCount() {
+			int duplicates = 0;
+			for(AtomicInteger count : elements.values()) {
+				duplicates += count.get() - 1;
+			}
+
+			return duplicates;
+		}
+
+		boolean isEmpty() {
+			return ordered.isEmpty();
+		}
+
+		@NotNull List<T> toList() {
+			return Collections.unmodifiableList(new ArrayList<>(ordered));
+		}
+	}
+
+
+	private final OrderedSet<VirtualFile>	filesFailed		= new OrderedSet<>();
+	private final OrderedSet<VirtualFile>	filesTimedOut	= new OrderedSet<>();
+	private final OrderedSet<VirtualFile>	filesSkipped	= new OrderedSet<>();
+	private final OrderedSet<Issue>			issues			= new OrderedSet<>();
+	private final OrderedSet<Fix>			fixes			= new OrderedSet<>();
+
+	private final ConcurrentHashMap<VirtualFile,Queue<Issue>>	issuesPerFile	= new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<File,Queue<Fix>>			fixesPerFile	= new ConcurrentHashMap<>();
+
+	private final AtomicInteger		peakOutputPumpThreads	= new AtomicInteger(0);
 
 
 	public ScannerResult() {
@@ -43,9 +111,7 @@ public class ScannerResult {
 
 
 	public void addFailedFile(VirtualFile file) {
-		if (!filesFailed.contains(file)) {
-			filesFailed.add(file);
-		}
+		filesFailed.add(file);
 	}
 
 	public boolean hasFailedFiles() {
@@ -53,13 +119,43 @@ public class ScannerResult {
 	}
 
 	public @NotNull List<VirtualFile> getFailedFiles() {
-		return Collections.unmodifiableList(filesFailed);
+		return filesFailed.toList();
+	}
+
+
+	public void addTimedOutFile(VirtualFile file) {
+		filesTimedOut.add(file);
+	}
+
+	public boolean hasTimedOutFiles() {
+		return !filesTimedOut.isEmpty();
+	}
+
+	public @NotNull List<VirtualFile> getTimedOutFiles() {
+		return filesTimedOut.toList();
+	}
+
+
+	public void addSkippedFile(VirtualFile file) {
+		filesSkipped.add(file);
+	}
+
+	public boolean hasSkippedFiles() {
+		return !filesSkipped.isEmpty();
+	}
+
+	public @NotNull List<VirtualFile> getSkippedFiles() {
+		return filesSkipped.toList();
 	}
 
 
 	public void addIssue(Issue issue) {
-		if (!issues.contains(issue)) {
-			issues.add(issue);
+		addIssue(issue, 1);
+	}
+
+	private void addIssue(Issue issue, int reportCount) {
+		if (issues.add(issue, reportCount) && issue.getSourceFile() != null) {
+			issuesPerFile.computeIfAbsent(issue.getSourceFile(), k -> new ConcurrentLinkedQueue<>()).add(issue);
 		}
 	}
 
@@ -68,13 +164,43 @@ public class ScannerResult {
 	}
 
 	public @NotNull List<Issue> getIssues() {
-		return Collections.unmodifiableList(issues);
+		return issues.toList();
+	}
+
+	/**
+	 * Get all issues located in a specific file.
+	 */
+	public @NotNull List<Issue> getIssues(@NotNull VirtualFile file) {
+		Queue<Issue> issuesOfFile = issuesPerFile.get(file);
+		if (issuesOfFile == null) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(new ArrayList<>(issuesOfFile));
+	}
+
+
+	/**
+	 * Get how often an issue was reported, usually once per translation unit including its file.
+	 */
+	public int getReportCount(@NotNull Issue issue) {
+		return issues.getCount(issue);
 	}
 
 
 	public void addFix(Fix fix) {
-		if (!fixes.contains(fix)) {
-			fixes.add(fix);
+		addFix(fix, 1);
+	}
+
+	private void addFix(Fix fix, int reportCount) {
+		if (fixes.add(fix, reportCount)) {
+			// a fix may contain multiple changes of the same file
+			Set<File> files = new HashSet<>();
+			for(Fix.Change change : fix.getChanges()) {
+				if (files.add(change.getFile())) {
+					fixesPerFile.computeIfAbsent(change.getFile(), k -> new ConcurrentLinkedQueue<>()).add(fix);
+				}
+			}
 		}
 	}
 
@@ -83,6 +209,100 @@ public class ScannerResult {
 	}
 
 	public @NotNull List<Fix> getFixes() {
-		return Collections.unmodifiableList(fixes);
+		return fixes.toList();
+	}
+
+	/**
+	 * Get all fixes with at least one change of a specific file.
+	 */
+	public @NotNull List<Fix> getFixes(@NotNull File file) {
+		Queue<Fix> fixesOfFile = fixesPerFile.get(file);
+		if (fixesOfFile == null) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(new ArrayList<>(fixesOfFile));
+	}
+
+
+	/**
+	 * Get how often a fix was reported, usually once per translation unit including the changed files.
+	 */
+	public int getReportCount(@NotNull Fix fix) {
+		return fixes.getCount(fix);
+	}
+
+
+	/**
+	 * Get the number of reported issues and fixes, which were dropped as duplicates.
+	 */
+	public int getDuplicateReportsCount() {
+		return issues.getDuplicatesCount() + fixes.getDuplicatesCount();
+	}
+
+
+	/**
+	 * Records the number of threads currently reading the output of clang-tidy processes,
+	 * keeping the maximum seen while the scan was running.
+	 */
+	public void updatePeakOutputPumpThreads(int threads) {
+		peakOutputPumpThreads.accumulateAndGet(threads, Math::max);
+	}
+
+	/**
+	 * Get the maximum number of threads reading the output of clang-tidy processes during the scan.
+	 */
+	public int getPeakOutputPumpThreads() {
+		return peakOutputPumpThreads.get();
+	}
+
+
+	/**
+	 * Creates a copy of this result with copies of all fixes, so it may be passed to another
+	 * consumer modifying the changes, like when their ranges get translated before being applied.
+	 * Issues are not modified by any consumer, so they will be shared.
+	 */
+	public @NotNull ScannerResult copy() {
+		ScannerResult copy = new ScannerResult();
+
+		filesFailed.toList().forEach(copy::addFailedFile);
+		filesTimedOut.toList().forEach(copy::addTimedOutFile);
+		filesSkipped.toList().forEach(copy::addSkippedFile);
+
+		for(Issue issue : getIssues()) {
+			copy.addIssue(issue, getReportCount(issue));
+		}
+
+		for(Fix fix : getFixes()) {
+			copy.addFix(fix.copy(), getReportCount(fix));
+		}
+
+		return copy;
+	}
+
+
+	/**
+	 * Adds all issues and fixes of another result to this one, including their report counts.
+	 */
+	public void addResults(@NotNull ScannerResult other) {
+		addResults(other, issue -> true, fix -> true);
+	}
+
+
+	/**
+	 * Adds all issues and fixes of another result accepted by the given filters.
+	 */
+	public void addResults(@NotNull ScannerResult other, @NotNull Predicate<Issue> issueFilter, @NotNull Predicate<Fix> fixFilter) {
+		for(Issue issue : other.getIssues()) {
+			if (issueFilter.test(issue)) {
+				addIssue(issue, other.getReportCount(issue));
+			}
+		}
+
+		for(Fix fix : other.getFixes()) {
+			if (fixFilter.test(fix)) {
+				addFix(fix, other.getReportCount(fix));
+			}
+		}
 	}
 }
@@ -0,0 +1,523 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import de.wieselbau.clion.clangtidy.Options;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Stores the issues and fixes found by clang-tidy on disk, so unchanged files
+ * don't need to be scanned again.
+ * Each entry is identified by a hash of all inputs which determine the result of clang-tidy,
+ * like the content of the file being scanned, the compile commands, the configuration
+ * and the version of clang-tidy. The size of the cache is limited, when exceeding
+ * the limit, the least recently used entries will be removed.
+ */
+public class ScannerResultCache {
+	private final static int		MAGIC				= 0x43545243; // 'CTRC'
+	private final static int		FORMAT_VERSION		= 1;
+	private final static String		ENTRY_SUFFIX		= ".bin";
+	private final static String		TEMP_SUFFIX			= ".tmp";
+	private final static long		MTIME_GRANULARITY_MILLIS	= 2000;
+
+	private static ScannerResultCache instance;
+
+	private final File						directory;
+	private final LongSupplier				maxSize;
+	private final Map<String,FileHash>		fileHashes			= new ConcurrentHashMap<>();
+	private final AtomicLong				totalSize			= new AtomicLong(-1);
+
+
+	/**
+	 * Get the cache shared by all projects, which is stored in the IDE's system directory.
+	 */
+	public static synchronized @NotNull ScannerResultCache getInstance() {
+		if (instance == null) {
+			instance = new ScannerResultCache(
+					new File(PathManager.getSystemPath(), "clang-tidy/results"),
+					() -> Options.getResultCacheSize() * 1024L * 1024L
+			);
+		}
+
+		return instance;
+	}
+
+
+	/**
+	 * Creates a new cache.
+	 * @param directory		The directory where to store all cache entries.
+	 * @param maxSize		Provides the maximum size of all entries in bytes; zero disables the cache.
+	 */
+	ScannerResultCache(@NotNull File directory, @NotNull LongSupplier maxSize) {
+		this.directory	= directory;
+		this.maxSize	= maxSize;
+	}
+
+
+	public boolean isEnabled() {
+		return maxSize.getAsLong() > 0;
+	}
+
+
+	/**
+	 * Creates a builder to compute the key of a cache entry.
+	 */
+	public @NotNull KeyBuilder createKey() {
+		return new KeyBuilder();
+	}
+
+
+	/**
+	 * Loads the result stored for a given key.
+	 * @param key	The key computed by a {@link KeyBuilder}.
+	 * @return The result stored, or {@code null} if there was no entry for this key.
+	 */
+	public @Nullable ScannerResult load(@NotNull String key) {
+		File entryFile = getEntryFile(key);
+
+		if (!isEnabled() || !entryFile.exists()) {
+			return null;
+		}
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)))) {
+			ScannerResult result = readResult(in);
+
+			// mark this entry as recently used
+			if (!entryFile.setLastModified(System.currentTimeMillis())) {
+				Log.clangtidy.debug("Failed to update timestamp of " + entryFile);
+			}
+
+			return result;
+		}
+		catch(IOException e) {
+			// the entry is damaged or was written by another version, so it can't be used anymore
+			Log.clangtidy.debug("Dropping cache entry " + entryFile + ": " + e.getMessage());
+			remove(entryFile);
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Stores the result of clang-tidy. Removes the least recently used entries,
+	 * when the size of the cache exceeds its limit.
+	 * @param key		The key computed by a {@link KeyBuilder}.
+	 * @param result	The result to be stored.
+	 */
+	public void store(@NotNull String key, @NotNull ScannerResult result) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		File entryFile = getEntryFile(key);
+		File tempFile  = new File(directory, key + '.' + Thread.currentThread().getId() + TEMP_SUFFIX);
+
+		try {
+			Files.createDirectories(directory.toPath());
+
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				writeResult(out, result);
+			}
+
+			// replace the entry at once, so concurrent readers will never see an incomplete file
+			long oldSize = entryFile.length();
+			Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			if (getTotalSize().addAndGet(entryFile.length() - oldSize) > maxSize.getAsLong()) {
+				evict();
+			}
+		}
+		catch(IOException e) {
+			Logger.getInstance(this.getClass()).warn("Failed to store cache entry " + entryFile, e);
+			remove(tempFile);
+		}
+	}
+
+
+	/**
+	 * Removes the least recently used entries, until the cache is clearly below its size limit,
+	 * so eviction will not be necessary on each new entry.
+	 */
+	synchronized void evict() {
+		long limit = maxSize.getAsLong();
+		File[] entries = listEntries();
+		long size = 0;
+
+		for(File entry : entries) {
+			size += entry.length();
+		}
+
+		if (size > limit) {
+			Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+
+			for(File entry : entries) {
+				if (size <= limit * 3 / 4) {
+					break;
+				}
+
+				long length = entry.length();
+				if (remove(entry)) {
+					size -= length;
+				}
+			}
+
+			Log.clangtidy.info("Evicted result cache entries, " + size + " bytes remaining");
+		}
+
+		totalSize.set(size);
+	}
+
+
+	private @NotNull AtomicLong getTotalSize() {
+		if (totalSize.get() < 0) {
+			synchronized(this) {
+				if (totalSize.get() < 0) {
+					long size = 0;
+
+					for(File entry : listEntries()) {
+						size += entry.length();
+					}
+
+					totalSize.set(size);
+				}
+			}
+		}
+
+		return totalSize;
+	}
+
+
+	private @NotNull File[] listEntries() {
+		File[] entries = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+		return entries != null ? entries : new File[0];
+	}
+
+
+	private @NotNull File getEntryFile(@NotNull String key) {
+		return new File(directory, key + ENTRY_SUFFIX);
+	}
+
+
+	private static boolean remove(@NotNull File file) {
+		return !file.exists() || file.delete();
+	}
+
+
+	private static void writeResult(@NotNull DataOutputStream out, @NotNull ScannerResult result) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+
+		List<Issue> issues = result.getIssues();
+		out.writeInt(issues.size());
+
+		for(Issue issue : issues) {
+			writeString(out, issue.type != null ? issue.type.name() : null);
+			writeString(out, issue.sourceFile != null ? issue.sourceFile.getPath() : null);
+			out.writeInt(issue.lineNumber);
+			out.writeInt(issue.lineColumn);
+			writeString(out, issue.group);
+			writeString(out, issue.message);
+		}
+
+		List<Fix> fixes = result.getFixes();
+		out.writeInt(fixes.size());
+
+		for(Fix fix : fixes) {
+			writeString(out, fix.getDiagnosticName());
+
+			List<Fix.Change> changes = fix.getChanges();
+			out.writeInt(changes.size());
+
+			for(Fix.Change change : changes) {
+				writeString(out, change.getFile().getPath());
+				out.writeInt(change.getTextRange().getStartOffset());
+				out.writeInt(change.getTextRange().getEndOffset());
+				writeString(out, change.getReplacement());
+			}
+		}
+	}
+
+
+	private static @NotNull ScannerResult readResult(@NotNull DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			throw new IOException("Unknown file format");
+		}
+
+		ScannerResult result = new ScannerResult();
+
+		for(int i=in.readInt(); --i>=0;) {
+			Issue issue = new Issue();
+
+			String type = readString(in);
+			String path = readString(in);
+
+			try {
+				issue.type = type != null ? ProblemHighlightType.valueOf(type) : null;
+			}
+			catch(IllegalArgumentException e) {
+				throw new IOException("Unknown highlight type " + type);
+			}
+
+			issue.sourceFile	= path != null ? LocalFileSystem.getInstance().findFileByPath(path) : null;
+			issue.lineNumber	= in.readInt();
+			issue.lineColumn	= in.readInt();
+			issue.group			= readString(in);
+			issue.message		= readString(in);
+
+			result.addIssue(issue);
+		}
+
+		for(int i=in.readInt(); --i>=0;) {
+			String diagnosticName = readString(in);
+			List<Fix.Change> changes = new ArrayList<>();
+
+			for(int c=in.readInt(); --c>=0;) {
+				String path			= readString(in);
+				int start			= in.readInt();
+				int end				= in.readInt();
+				String replacement	= readString(in);
+
+				if (path == null || replacement == null || start < 0 || end < start) {
+					throw new IOException("Invalid change");
+				}
+
+				changes.add(new Fix.Change(new File(path), TextRange.create(start, end), replacement));
+			}
+
+			if (diagnosticName != null) {
+				result.addFix(new Fix(diagnosticName, changes));
+			}
+			else if (changes.size() == 1) {
+				result.addFix(new Fix(changes.get(0)));
+			}
+			else {
+				throw new IOException("Invalid fix");
+			}
+		}
+
+		return result;
+	}
+
+
+	private static void writeString(@NotNull DataOutputStream out, @Nullable String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		}
+		else {
+			// not using writeUTF, which is limited to 64k
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+
+	private static @Nullable String readString(@NotNull DataInputStream in) throws IOException {
+		int length = in.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	 * The hash of a file's content, which remains valid as long as the file was not modified.
+	 */
+	private static class FileHash {
+		final List<Object>	stamp;
+		final byte[]		hash;
+
+		FileHash(@NotNull List<Object> stamp, @NotNull byte[] hash) {
+			this.stamp	= stamp;
+			this.hash	= hash;
+		}
+	}
+
+
+	/**
+	 * Get the attributes of a file, which change whenever the file gets modified:
+	 * its modification time in full precision, its length, its identity like the inode,
+	 * and the time of its last status change, where supported by the file system.
+	 */
+	private static @NotNull List<Object> getFileStamp(@NotNull Path path) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		Object changeTime = null;
+
+		try {
+			changeTime = Files.getAttribute(path, "unix:ctime");
+		}
+		catch(UnsupportedOperationException | IllegalArgumentException e) {
+			// not available on this platform
+		}
+
+		return Arrays.asList(attributes.lastModifiedTime(), attributes.size(), attributes.fileKey(), changeTime);
+	}
+
+
+	/**
+	 * Computes the key of a cache entry by hashing all inputs added.
+	 */
+	public class KeyBuilder {
+		private final MessageDigest digest;
+
+
+		private KeyBuilder() {
+			digest = createDigest();
+		}
+
+
+		/**
+		 * Adds a string to the key, like a command line argument.
+		 */
+		public @NotNull KeyBuilder add(@Nullable String value) {
+			if (value == null) {
+				addLength(-1);
+			}
+			else {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				addLength(bytes.length);
+				digest.update(bytes);
+			}
+
+			return this;
+		}
+
+
+		/**
+		 * Adds the content of a file to the key.
+		 */
+		public @NotNull KeyBuilder addFileContent(@NotNull File file) throws IOException {
+			digest.update(hashFile(file));
+			return this;
+		}
+
+
+		/**
+		 * Adds the content of a file to the key, which is expected to be used by multiple keys,
+		 * like the compile commands. The hash of this file will be kept until it's modified.
+		 * Files modified just before being hashed may be modified again without changing
+		 * their modification time, so their hash won't be kept.
+		 */
+		public @NotNull KeyBuilder addSharedFileContent(@NotNull File file) throws IOException {
+			String path			= file.getAbsolutePath();
+			List<Object> stamp	= getFileStamp(file.toPath());
+			FileHash fileHash	= fileHashes.get(path);
+
+			if (fileHash == null || !fileHash.stamp.equals(stamp)) {
+				long hashedAt = System.currentTimeMillis();
+				fileHash = new FileHash(stamp, hashFile(file));
+
+				if (hashedAt - file.lastModified() > MTIME_GRANULARITY_MILLIS) {
+					fileHashes.put(path, fileHash);
+				}
+				else {
+					fileHashes.remove(path);
+				}
+			}
+
+			digest.update(fileHash.hash);
+
+			return this;
+		}
+
+
+		/**
+		 * Get the key of all inputs added so far.
+		 */
+		public @NotNull String build() {
+			StringBuilder sb = new StringBuilder();
+
+			for(byte b : digest.digest()) {
+				sb.append(Character.forDigit((b >> 4) & 0x0f, 16));
+				sb.append(Character.forDigit(b & 0x0f, 16));
+			}
+
+			return sb.toString();
+		}
+
+
+		private void addLength(int length) {
+			digest.update((byte)(length >>> 24));
+			digest.update((byte)(length >>> 16));
+			digest.update((byte)(length >>> 8));
+			digest.update((byte)length);
+		}
+	}
+
+
+	private static @NotNull byte[] hashFile(@NotNull File file) throws IOException {
+		MessageDigest digest = createDigest();
+		byte[] buffer = new byte[65536];
+
+		try(InputStream in = new FileInputStream(file)) {
+			int length;
+
+			while((length = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, length);
+			}
+		}
+
+		return digest.digest();
+	}
+
+
+	private static @NotNull MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			// SHA-256 is required to be supported by every java platform
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -32,6 +32,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -47,10 +48,28 @@ public class ScannerResultUtil {
 			= Pattern.compile("^(.*):(\\d+):(\\d+):\\s*(warning|error):(.*)\\s*\\[(.*)\\]$");
 
 	ScannerResult	result;
+	InternPool		internPool;
 
 
 	public ScannerResultUtil(ScannerResult result) {
-		this.result = result;
+		this(result, new InternPool());
+	}
+
+
+	/**
+	 * @param internPool The pool sharing paths and names among all results of the current scan.
+	 */
+	public ScannerResultUtil(ScannerResult result, @NotNull InternPool internPool) {
+		this.result		= result;
+		this.internPool	= internPool;
+	}
+
+
+	/**
+	 * Get the pool sharing paths and names among all parsed issues and fixes.
+	 */
+	public @NotNull InternPool getInternPool() {
+		return internPool;
 	}
 
 
@@ -67,12 +86,11 @@ public class ScannerResultUtil {
 				issue.type = ProblemHighlightType.GENERIC_ERROR_OR_WARNING;
 			}
 
-			String path				= m.group(1);
-			issue.sourceFile		= LocalFileSystem.getInstance().findFileByPath(path);
+			issue.sourceFile		= LocalFileSystem.getInstance().findFileByPath(m.group(1));
 			issue.lineNumber		= Integer.parseInt(m.group(2));
 			issue.lineColumn		= Integer.parseInt(m.group(3));
 			issue.message			= m.group(5);
-			issue.group				= m.group(6);
+			issue.group				= internPool.intern(m.group(6));
 
 			if (result != null) {
 				result.addIssue(issue);
@@ -85,33 +103,26 @@ public class ScannerResultUtil {
 	}
 
 
+	/**
+	 * Reads the fixes exported by clang-tidy.
+	 * Each diagnostic or replacement will be converted into a {@link Fix} as soon as it was read,
+	 * so the whole file never needs to be kept in memory.
+	 */
 	public void readFixesList(@NotNull File yamlFile) {
 		try {
-			Object yaml = new YamlReader(yamlFile).getRootObject();
-			if (yaml != null && yaml instanceof Map) {
-				@SuppressWarnings("unchecked")
-				Map<String,Object> map = (Map<String,Object>)yaml;
-
-				if (map.containsKey("Replacements")) {
-					Object replacements = map.get("Replacements");
-
-					if (replacements != null && replacements instanceof List) {
-						@SuppressWarnings("unchecked")
-						List<Object> list = (List<Object>)replacements;
-						parseOldReplacementsList(list);
+			new YamlReader(yamlFile, (key, record) -> {
+				switch(key) {
+					case "Replacements": {
+						parseOldReplacement(record);
+						break;
 					}
-				}
 
-				if (map.containsKey("Diagnostics")) {
-					Object diagnostics = map.get("Diagnostics");
-
-					if (diagnostics != null && diagnostics instanceof List) {
-						@SuppressWarnings("unchecked")
-						List<Object> list = (List<Object>)diagnostics;
-						parseNewDiagnosticsList(list);
+					case "Diagnostics": {
+						parseNewDiagnostic(record);
+						break;
 					}
 				}
-			}
+			});
 		}
 		catch (IOException e) {
 			Logger.getInstance(this.getClass()).error(e);
@@ -119,48 +130,47 @@ public class ScannerResultUtil {
 	}
 
 
-	private void parseOldReplacementsList(List<Object> list) {
+	private void parseOldReplacement(Object replacementElement) {
 		parseReplacements(
-				list,
+				Collections.singletonList(replacementElement),
 				change -> result.addFix(new Fix(change))
 		);
 	}
 
 
-	private void parseNewDiagnosticsList(List<Object> list) {
-		for(Object diagnosticElement : list) {
-			if (diagnosticElement instanceof Map) {
-				@SuppressWarnings("unchecked")
-				Map<String,Object> map = (Map<String,Object>)diagnosticElement;
-				String diagnosticsName = null;
-				List<Object> replacementsList = null;
-
-				if (map.containsKey("DiagnosticName")) {
-					Object o = map.get("DiagnosticName");
-					if (o instanceof String) {
-						diagnosticsName = (String)o;
-					}
+	private void parseNewDiagnostic(Object diagnosticElement) {
+		if (diagnosticElement instanceof Map) {
+			@SuppressWarnings("unchecked")
+			Map<String,Object> map = (Map<String,Object>)diagnosticElement;
+			String diagnosticsName = null;
+			List<Object> replacementsList = null;
+
+			if (map.containsKey("DiagnosticName")) {
+				Object o = map.get("DiagnosticName");
+				if (o instanceof String) {
+					diagnosticsName = (String)o;
 				}
+			}
 
-				if (map.containsKey("Replacements")) {
-					Object o = map.get("Replacements");
-					if (o instanceof List) {
-						@SuppressWarnings("unchecked")
-						List<Object> l = (List<Object>)o;
-						replacementsList = l;
-					}
+			if (map.containsKey("Replacements")) {
+				Object o = map.get("Replacements");
+				if (o instanceof List) {
+					@SuppressWarnings("unchecked")
+					List<Object> l = (List<Object>)o;
+					replacementsList = l;
 				}
+			}
 
-				if (
-						diagnosticsName != null
-					&&	replacementsList != null
-				) {
-					List<Fix.Change> changes = new ArrayList<>();
-					parseReplacements(replacementsList, changes::add);
+			if (
+					diagnosticsName != null
+				&&	replacementsList != null
+			) {
+				List<Fix.Change> changes = new ArrayList<>();
+				parseReplacements(replacementsList, changes::add);
 
-					Fix fix = new Fix(diagnosticsName, changes);
-					result.addFix(fix);
-				}
+				// only intern the name once it's known to be kept by a fix
+				Fix fix = new Fix(internPool.intern(diagnosticsName), changes);
+				result.addFix(fix);
 			}
 		}
 	}
@@ -196,7 +206,7 @@ public class ScannerResultUtil {
 			int iLength = ((Number)length).intValue();
 
 			return new Fix.Change(
-					new File(fileName.toString()),
+					internPool.internFile(fileName.toString()),
 					TextRange.create(iOffset, iOffset + iLength),
 					replacement.toString()
 			);
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Shares a single execution of a task between all callers requesting it at the same time.
+ * The first caller for a key runs the task, while any other caller for the same key
+ * waits for this execution to finish and receives its result.
+ * When the result can't be shared, like when the execution was cancelled,
+ * the waiting callers will run the task again on their own.
+ * @param <T> The type of the result.
+ */
+public class SingleFlight<T> {
+	/**
+	 * A task which may be shared between multiple callers.
+	 */
+	@FunctionalInterface
+	public interface Execution<T> {
+		@NotNull T run() throws IOException;
+	}
+
+
+	private final Map<String,CompletableFuture<T>>	inFlight		= new ConcurrentHashMap<>();
+	private final Predicate<T>						isShareable;
+	private final AtomicInteger						sharedCount		= new AtomicInteger(0);
+
+
+	/**
+	 * @param isShareable	Determines if the result of an execution may be passed to other callers.
+	 */
+	public SingleFlight(@NotNull Predicate<T> isShareable) {
+		this.isShareable = isShareable;
+	}
+
+
+	/**
+	 * Runs a task, or waits for an execution of the same task already running.
+	 * @param key			Identifies the task; callers with equal keys will share their execution.
+	 * @param execution		The task to run.
+	 * @param isCancelled	Checked while waiting for another caller's execution.
+	 * @return The result of the execution, or {@code null} if the caller was cancelled while waiting.
+	 */
+	public @Nullable T run(
+			@NotNull String key,
+			@NotNull Execution<T> execution,
+			@NotNull BooleanSupplier isCancelled
+	) throws
+			IOException
+	{
+		while(true) {
+			CompletableFuture<T> ownFlight = new CompletableFuture<>();
+			CompletableFuture<T> otherFlight = inFlight.putIfAbsent(key, ownFlight);
+
+			if (otherFlight == null) {
+				try {
+					T result = execution.run();
+
+					// remove first, so callers retrying won't find this flight again
+					inFlight.remove(key, ownFlight);
+					ownFlight.complete(result);
+
+					return result;
+				}
+				catch(IOException | RuntimeException e) {
+					inFlight.remove(key, ownFlight);
+					ownFlight.completeExceptionally(e);
+					throw e;
+				}
+			}
+
+			try {
+				T result = await(otherFlight, isCancelled);
+
+				if (result == null) {
+					return null;
+				}
+
+				if (isShareable.test(result)) {
+					sharedCount.incrementAndGet();
+					return result;
+				}
+			}
+			catch(ExecutionException e) {
+				// the other execution failed, so try again to get the error on our own
+				Log.clangtidy.debug("Shared execution failed: " + e.getCause());
+			}
+		}
+	}
+
+
+	private static @Nullable <T> T await(
+			@NotNull CompletableFuture<T> flight,
+			@NotNull BooleanSupplier isCancelled
+	) throws
+			ExecutionException
+	{
+		try {
+			while(!isCancelled.getAsBoolean()) {
+				try {
+					// poll with a timeout, so cancellation will be noticed while waiting
+					return flight.get(100, TimeUnit.MILLISECONDS);
+				}
+				catch(TimeoutException e) {
+					// continue waiting
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		return null;
+	}
+
+
+	/**
+	 * Get the number of callers which received the result of another caller's execution.
+	 */
+	public int getSharedCount() {
+		return sharedCount.get();
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates temporary files used while running clang-tidy, like the fixes exported by it.
+ * Each allocated file gets a unique name within a common directory, so concurrent clang-tidy
+ * invocations will never write into the same file. The directory will be created on demand
+ * and removed together with all of its contents, when the allocator gets disposed.
+ */
+public class TempFileAllocator {
+	private final String		prefix;
+	private final AtomicInteger	counter		= new AtomicInteger(0);
+	private File				directory;
+
+
+	public TempFileAllocator(@NotNull String prefix) {
+		this.prefix = prefix;
+	}
+
+
+	/**
+	 * Get the directory where all files of this allocator will be stored.
+	 * The directory will be created on the first call.
+	 */
+	public synchronized @NotNull File getDirectory() throws IOException {
+		if (directory == null) {
+			directory = Files.createTempDirectory(prefix).toFile();
+			Logger.getInstance(this.getClass()).info("Storing temporary files in: " + directory);
+		}
+
+		return directory;
+	}
+
+
+	/**
+	 * Allocates a new unique file. The file itself will not be created.
+	 * @param suffix	The suffix of the file name, like {@code ".yaml"}.
+	 * @return A file which is not used by any other caller of this allocator.
+	 */
+	public @NotNull File allocate(@NotNull String suffix) throws IOException {
+		return new File(getDirectory(), "tidy-" + counter.incrementAndGet() + suffix);
+	}
+
+
+	/**
+	 * Deletes a file previously allocated, when it's no longer needed.
+	 */
+	public void release(@Nullable File file) {
+		if (file != null && file.exists() && !FileUtil.delete(file)) {
+			Logger.getInstance(this.getClass()).warn("Failed to delete " + file);
+		}
+	}
+
+
+	/**
+	 * Removes the directory of this allocator with all files still existing.
+	 * The allocator may still be used afterwards, which will create a new directory.
+	 */
+	public synchronized void dispose() {
+		if (directory != null) {
+			release(directory);
+			directory = null;
+		}
+	}
+}
@@ -22,26 +22,53 @@
 
 package de.wieselbau.clion.clangtidy.tidy;
 
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.extensions.Extensions;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import de.wieselbau.clion.clangtidy.Options;
 import de.wieselbau.clion.clangtidy.tidy.tools.SimpleTool;
 import de.wieselbau.util.yaml.YamlReader;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Helper class to retrieve a list of checks available in clang-tidy.
+ * The results are stored on disk, so they do not need to be fetched
+ * again on each IDE start, as long as the clang-tidy executable was not changed.
+ * The version of clang-tidy is guarded by its own lock, so it remains available
+ * to the scanner while the list of checks is being fetched.
  */
 public class ToolCollection {
+	private static final String	CACHE_KEY_EXE			= "cache.exe";
+	private static final String	CACHE_KEY_MODIFIED		= "cache.modified";
+	private static final String	CACHE_KEY_VERSION		= "cache.version";
+	private static final String	CACHE_KEY_CHECKS		= "checks";
+	private static final String	CACHE_PREFIX_OPTION		= "option.";
+
+	/** Time until running clang-tidy -version will be tried again, after it failed. */
+	private static final long	VERSION_RETRY_MILLIS	= 30_000;
+
+	//language=RegExp
+	private final static Pattern VERSION_PATTERN
+			= Pattern.compile("version\\s+(\\d+)\\.");
+
+	private static final Object		toolsLock		= new Object();
+	private static final Object		versionLock		= new Object();
+
 	private static Set<String>		cachedToolNames;
 	private static List<String>		blacklistedToolNames;
 	private static Properties		defaultProperties;
+	private static volatile Version	cachedVersion;
 
 	static {
 		blacklistedToolNames = new ArrayList<>();
@@ -51,140 +78,393 @@ public class ToolCollection {
 	}
 
 
+	/**
+	 * The result of running clang-tidy -version, which may also have failed.
+	 */
+	private static class Version {
+		final String		exe;
+		final String		version;
+		final int			majorVersion;
+		final long			fetchedAt;
+
+		Version(@NotNull String exe, @Nullable String version) {
+			this.exe			= exe;
+			this.version		= version;
+			this.majorVersion	= parseMajorVersion(version);
+			this.fetchedAt		= System.currentTimeMillis();
+		}
+
+		/**
+		 * Checks if this version may be used for the given executable.
+		 * A failure will only be used until it's time to try again,
+		 * in case clang-tidy was just being installed or the system was busy.
+		 */
+		boolean isValidFor(@NotNull String exe) {
+			return
+					this.exe.equals(exe)
+				&&	(version != null || System.currentTimeMillis() - fetchedAt < VERSION_RETRY_MILLIS)
+			;
+		}
+
+		private static int parseMajorVersion(@Nullable String version) {
+			if (version != null) {
+				Matcher m = VERSION_PATTERN.matcher(version);
+				if (m.find()) {
+					return Integer.parseInt(m.group(1));
+				}
+			}
+
+			return 0;
+		}
+	}
+
+
 	private ToolCollection() {
 	}
 
 
 
-	private static boolean fetchToolsList() {
-		if (cachedToolNames == null) {
-			cachedToolNames = new HashSet<>();
+	private static @Nullable Set<String> fetchToolsList() {
+		final Set<String> toolNames = new HashSet<>();
 
-			ProcessWrapper process = new ProcessWrapper(
-					Options.getCLangTidyExe(),
-					"-checks=*",
-					"-list-checks"
-			);
+		ProcessWrapper process = new ProcessWrapper(
+				Options.getCLangTidyExe(),
+				"-checks=*",
+				"-list-checks"
+		);
 
-			process.setOutputConsumer(line -> {
-				Log.clangtidy.debug(line);
+		process.setOutputConsumer(line -> {
+			Log.clangtidy.debug(line);
 
-				if (line.startsWith("    ")) {
-					String item = line.trim();
+			if (line.startsWith("    ")) {
+				String item = line.trim();
 
-					for (String blacklistedItem : blacklistedToolNames) {
-						if (item.startsWith(blacklistedItem)) {
-							return;
-						}
+				for (String blacklistedItem : blacklistedToolNames) {
+					if (item.startsWith(blacklistedItem)) {
+						return;
 					}
-
-					cachedToolNames.add(item);
 				}
-			});
 
-			process.setErrorConsumer(
-					Log.clangtidy::warn
-			);
+				toolNames.add(item);
+			}
+		});
+
+		process.setErrorConsumer(
+				Log.clangtidy::warn
+		);
+
+		try {
+			Log.clangtidy.info("Run command: " + process.getCommand());
+
+			if (process.run()) {
+				return toolNames;
+			}
+		}
+		catch (IOException e) {
+			Logger.getInstance(ToolCollection.class).error(e);
+		}
+
+		return null;
+	}
+
+
+	private static @Nullable Properties fetchDefaultConfig() {
+		Properties properties = new Properties();
+
+		ProcessWrapper process = new ProcessWrapper(
+				Options.getCLangTidyExe(),
+				"-checks=*",
+				"-dump-config"
+		);
+
+		final StringBuilder configYaml = new StringBuilder();
+		boolean result;
+
+		process.setOutputConsumer(line -> {
+			Log.clangtidy.debug(line);
+			configYaml.append(line);
+			configYaml.append('\n');
+		});
+
+		process.setErrorConsumer(
+				Log.clangtidy::warn
+		);
 
+		try {
+			Log.clangtidy.info("Run command: " + process.getCommand());
+			result = process.run();
+		}
+		catch (IOException e) {
+			Logger.getInstance(ToolCollection.class).error(e);
+			result = false;
+		}
+
+		if (result && configYaml.length() != 0) {
 			try {
-				Log.clangtidy.info("Run command: " + process.getCommand());
-				return process.run();
+				YamlReader yaml = new YamlReader(new ByteArrayInputStream(configYaml.toString().getBytes()));
+				boolean yamlSuccessful = false;
+
+				if (yaml.getRootObject() instanceof Map) {
+					@SuppressWarnings("unchecked")
+					Map<String,Object> root = (Map<String,Object>)yaml.getRootObject();
+					Object optionsObject = root.get("CheckOptions");
+
+					if (optionsObject != null && optionsObject instanceof List) {
+						for(Object optionObject : (List)optionsObject) {
+							if (optionObject instanceof Map) {
+								@SuppressWarnings("unchecked")
+								Map<String,Object> option = (Map<String,Object>)optionObject;
+								Object key   = option.get("key");
+								Object value = option.get("value");
+
+								if (key!=null && value!=null) {
+									properties.put(key.toString(), value.toString());
+									yamlSuccessful = true;
+								}
+							}
+						}
+					}
+				}
+
+				result = yamlSuccessful;
 			}
 			catch (IOException e) {
 				Logger.getInstance(ToolCollection.class).error(e);
+				result = false;
 			}
+		}
+
+		return result ? properties : null;
+	}
+
+
+	/**
+	 * Fetches the list of checks and their default options, if not already done.
+	 * The data will be read from the disk cache when available. Otherwise both
+	 * clang-tidy -list-checks and clang-tidy -dump-config will be executed in parallel.
+	 * @return {@code true} if the data is available.
+	 */
+	private static boolean fetchToolsData() {
+		synchronized(toolsLock) {
+			return fetchToolsDataLocked();
+		}
+	}
 
+
+	private static boolean fetchToolsDataLocked() {
+		if (cachedToolNames != null && defaultProperties != null) {
+			return true;
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		File   exe     = new File(Options.getCLangTidyExe());
+		String version = getCLangTidyVersion();
+		if (version == null) {
 			return false;
 		}
 
+		if (loadFromDiskCache(exe, version)) {
+			Log.clangtidy.info("Loaded " + cachedToolNames.size() + " checks from " + getDiskCacheFile());
+			return true;
+		}
+
+		// the default config is fetched on a pooled thread, while the list of checks is fetched on this one
+		CompletableFuture<Properties> propertiesFuture = CompletableFuture.supplyAsync(
+				ToolCollection::fetchDefaultConfig,
+				AppExecutorUtil.getAppExecutorService()
+		);
+
+		Set<String> toolNames  = fetchToolsList();
+		Properties  properties = propertiesFuture.join();
+
+		if (toolNames == null) {
+			return false;
+		}
+
+		cachedToolNames   = toolNames;
+		defaultProperties = properties != null ? properties : new Properties();
+
+		if (properties != null) {
+			storeToDiskCache(exe, version);
+		}
+
+		Log.clangtidy.info(
+				"Fetched " + toolNames.size() + " checks"
+			+	" in " + (System.currentTimeMillis() - startTime) + "ms"
+		);
+
 		return true;
 	}
 
 
-	private static boolean fetchDefaultConfig() {
-		if (defaultProperties == null) {
-			defaultProperties = new Properties();
+	private static @NotNull File getDiskCacheFile() {
+		return new File(new File(PathManager.getSystemPath(), "clang-tidy"), "tools.properties");
+	}
+
+
+	private static boolean loadFromDiskCache(@NotNull File exe, @NotNull String version) {
+		File cacheFile = getDiskCacheFile();
+		if (!cacheFile.exists()) {
+			return false;
+		}
 
-			ProcessWrapper process = new ProcessWrapper(
-					Options.getCLangTidyExe(),
-					"-checks=*",
-					"-dump-config"
-			);
+		Properties cache = new Properties();
 
-			final StringBuilder configYaml = new StringBuilder();
-			boolean result;
+		try(Reader reader = new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8)) {
+			cache.load(reader);
+		}
+		catch (IOException e) {
+			Log.clangtidy.warn("Failed to read " + cacheFile + ": " + e.getMessage());
+			return false;
+		}
 
-			process.setOutputConsumer(line -> {
-				Log.clangtidy.debug(line);
-				configYaml.append(line);
-				configYaml.append('\n');
-			});
+		if (
+				!exe.getAbsolutePath().equals(cache.getProperty(CACHE_KEY_EXE))
+			||	!Long.toString(exe.lastModified()).equals(cache.getProperty(CACHE_KEY_MODIFIED))
+			||	!version.equals(cache.getProperty(CACHE_KEY_VERSION))
+			||	cache.getProperty(CACHE_KEY_CHECKS) == null
+		) {
+			return false;
+		}
 
-			process.setErrorConsumer(
-					Log.clangtidy::warn
-			);
+		Set<String> toolNames = new HashSet<>();
+		for(String toolName : cache.getProperty(CACHE_KEY_CHECKS).split(",")) {
+			if (!toolName.isEmpty()) {
+				toolNames.add(toolName);
+			}
+		}
 
-			try {
-				Log.clangtidy.info("Run command: " + process.getCommand());
-				result = process.run();
+		Properties properties = new Properties();
+		for(String key : cache.stringPropertyNames()) {
+			if (key.startsWith(CACHE_PREFIX_OPTION)) {
+				properties.put(key.substring(CACHE_PREFIX_OPTION.length()), cache.getProperty(key));
 			}
-			catch (IOException e) {
-				Logger.getInstance(ToolCollection.class).error(e);
-				result = false;
+		}
+
+		cachedToolNames   = toolNames;
+		defaultProperties = properties;
+
+		return true;
+	}
+
+
+	private static void storeToDiskCache(@NotNull File exe, @NotNull String version) {
+		Properties cache = new Properties();
+		cache.setProperty(CACHE_KEY_EXE,		exe.getAbsolutePath());
+		cache.setProperty(CACHE_KEY_MODIFIED,	Long.toString(exe.lastModified()));
+		cache.setProperty(CACHE_KEY_VERSION,	version);
+		cache.setProperty(CACHE_KEY_CHECKS,		String.join(",", new TreeSet<>(cachedToolNames)));
+
+		for(String key : defaultProperties.stringPropertyNames()) {
+			cache.setProperty(CACHE_PREFIX_OPTION + key, defaultProperties.getProperty(key));
+		}
+
+		File cacheFile = getDiskCacheFile();
+		if (!cacheFile.getParentFile().exists() && !cacheFile.getParentFile().mkdirs()) {
+			Log.clangtidy.warn("Failed to create directory " + cacheFile.getParentFile());
+			return;
+		}
+
+		try(Writer writer = new OutputStreamWriter(new FileOutputStream(cacheFile), StandardCharsets.UTF_8)) {
+			cache.store(writer, "clang-tidy checks and default options");
+		}
+		catch (IOException e) {
+			Log.clangtidy.warn("Failed to write " + cacheFile + ": " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * Get the version information printed by clang-tidy.
+	 * The version will be fetched once by executing clang-tidy -version.
+	 * A failure will be remembered for a short time only, so clang-tidy
+	 * won't be executed again for each file being scanned.
+	 * @return The version string of clang-tidy, or {@code null} if clang-tidy could not be executed.
+	 */
+	public static @Nullable String getCLangTidyVersion() {
+		return getVersion().version;
+	}
+
+
+	/**
+	 * Get the major version number of clang-tidy, like {@code 10} for clang-tidy 10.0.1.
+	 * @return The major version, or {@code 0} if it is unknown.
+	 */
+	public static int getCLangTidyMajorVersion() {
+		return getVersion().majorVersion;
+	}
+
+
+	private static @NotNull Version getVersion() {
+		String exe = Options.getCLangTidyExe();
+
+		Version version = cachedVersion;
+		if (version != null && version.isValidFor(exe)) {
+			return version;
+		}
+
+		synchronized(versionLock) {
+			version = cachedVersion;
+			if (version == null || !version.isValidFor(exe)) {
+				version = new Version(exe, fetchVersion(exe));
+				cachedVersion = version;
 			}
 
-			if (result && configYaml.length() != 0) {
-				try {
-					YamlReader yaml = new YamlReader(new ByteArrayInputStream(configYaml.toString().getBytes()));
-					boolean yamlSuccessful = false;
-
-					if (yaml.getRootObject() instanceof Map) {
-						@SuppressWarnings("unchecked")
-						Map<String,Object> root = (Map<String,Object>)yaml.getRootObject();
-						Object optionsObject = root.get("CheckOptions");
-
-						if (optionsObject != null && optionsObject instanceof List) {
-							for(Object optionObject : (List)optionsObject) {
-								if (optionObject instanceof Map) {
-									@SuppressWarnings("unchecked")
-									Map<String,Object> option = (Map<String,Object>)optionObject;
-									Object key   = option.get("key");
-									Object value = option.get("value");
-
-									if (key!=null && value!=null) {
-										defaultProperties.put(key, value);
-										yamlSuccessful = true;
-									}
-								}
-							}
-						}
-					}
+			return version;
+		}
+	}
 
-					result = yamlSuccessful;
-				}
-				catch (IOException e) {
-					Logger.getInstance(ToolCollection.class).error(e);
-					result = false;
-				}
+
+	private static @Nullable String fetchVersion(@NotNull String exe) {
+		ProcessWrapper process = new ProcessWrapper(
+				exe,
+				"-version"
+		);
+
+		final StringBuilder version = new StringBuilder();
+
+		process.setOutputConsumer(line -> {
+			Log.clangtidy.debug(line);
+
+			if (!line.trim().isEmpty()) {
+				version.append(line.trim()).append('\n');
 			}
+		});
 
-			return result;
+		process.setErrorConsumer(
+				Log.clangtidy::warn
+		);
+
+		try {
+			Log.clangtidy.info("Run command: " + process.getCommand());
+
+			if (process.run() && version.length() != 0) {
+				return version.toString();
+			}
+		}
+		catch (IOException e) {
+			Logger.getInstance(ToolCollection.class).error(e);
 		}
 
-		return true;
+		Log.clangtidy.warn("Failed to get the version of " + exe);
+
+		return null;
 	}
 
 
 	public static Properties findDefaultPropertiesForTool(String name) {
 		Properties properties = new Properties();
 
-		if (defaultProperties != null) {
-			for(Enumeration keys = defaultProperties.keys(); keys.hasMoreElements(); ) {
-				String key = keys.nextElement().toString();
-				if (key.startsWith(name)) {
-					String keyName = key.substring(name.length() + 1);
-					String value   = defaultProperties.getProperty(key);
-					properties.put(keyName, value);
+		synchronized(toolsLock) {
+			if (defaultProperties != null) {
+				for(Enumeration keys = defaultProperties.keys(); keys.hasMoreElements(); ) {
+					String key = keys.nextElement().toString();
+					if (key.startsWith(name)) {
+						String keyName = key.substring(name.length() + 1);
+						String value   = defaultProperties.getProperty(key);
+						properties.put(keyName, value);
+					}
 				}
 			}
 		}
@@ -209,35 +489,41 @@ public class ToolCollection {
 	}
 
 
+	/**
+	 * Fetch the list of checks and their default options in advance,
+	 * so they are available once requested via {@link #requestAvailableTools(Consumer)}.
+	 * Blocks until the data is available.
+	 */
+	public static void prefetch() {
+		fetchToolsData();
+	}
+
+
 	/**
 	 * Request the list of all available tools applicable with clang-tidy.
 	 * The list will be fetched asynchronously by executing clang-tidy -list-checks.
 	 * @param consumer		A consumer to receive the list of tools.
 	 */
 	public static void requestAvailableTools(@NotNull Consumer<List<ToolController>> consumer) {
-		new Thread(() -> {
+		AppExecutorUtil.getAppExecutorService().execute(() -> {
 			ExtensionPointName<ToolController> tcExtensionPoint = new ExtensionPointName<>("de.wieselbau.clion.clangtidy.ToolController");
 			ToolController[] extensions = Extensions.getExtensions(tcExtensionPoint);
 
 			List<ToolController> tools = new ArrayList<>();
 
-			if (cachedToolNames == null) {
-				fetchToolsList();
-			}
-
-			if (defaultProperties == null) {
-				fetchDefaultConfig();
+			Set<String> toolNames;
+			synchronized(toolsLock) {
+				fetchToolsDataLocked();
+				toolNames = cachedToolNames != null ? new HashSet<>(cachedToolNames) : Collections.emptySet();
 			}
 
-			assert cachedToolNames != null;
-
-			for(String toolName : cachedToolNames) {
+			for(String toolName : toolNames) {
 				ToolController tool = createToolForName(extensions, toolName);
 				tools.add(tool);
 			}
 
 			consumer.accept(tools);
-		}).start();
+		});
 	}
 
 
@@ -245,6 +531,13 @@ public class ToolCollection {
 	 * Clear cached data, when clang-tidy was changed.
 	 */
 	public static void clearCachedData() {
-		cachedToolNames = null;
+		synchronized(toolsLock) {
+			cachedToolNames   = null;
+			defaultProperties = null;
+		}
+
+		synchronized(versionLock) {
+			cachedVersion = null;
+		}
 	}
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import de.wieselbau.clion.clangtidy.Options;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Fetches the list of available checks in background when a project was opened,
+ * so the refactoring dialog does not need to wait for clang-tidy.
+ */
+public class ToolCollectionPrefetchActivity implements StartupActivity {
+	@Override
+	public void runActivity(@NotNull Project project) {
+		if (Options.isCLangTidyReady()) {
+			ApplicationManager.getApplication().executeOnPooledThread(ToolCollection::prefetch);
+		}
+	}
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Provides the content of documents not yet saved to clang-tidy.
+ * Each unsaved document will be written into a temporary file, which is mapped
+ * onto the original file by a virtual file system overlay passed via -vfsoverlay.
+ *
+ * Each scan acquires a {@link Snapshot} of the overlay, which remains unchanged until the scan
+ * releases it again, while clang-tidy may still read its files. Changed documents are written into
+ * new files, together with a new overlay file, instead of overwriting the files of a snapshot.
+ * Snapshots are shared by all scans of a project as long as no document was changed, and their
+ * files will be deleted once the last scan using them has released them.
+ */
+public class UnsavedFilesOverlay implements Disposable {
+	/**
+	 * The first major version of clang-tidy supporting -vfsoverlay.
+	 */
+	public final static int MIN_CLANG_TIDY_VERSION	= 10;
+
+	private final TempFileAllocator		tempFiles		= new TempFileAllocator("clang-tidy-overlay-");
+	private Snapshot					current;
+
+
+	/**
+	 * The content of a single document at a specific modification, written into a temporary file.
+	 * Each entry is referenced by all snapshots containing it.
+	 */
+	private static class Entry {
+		final String	path;
+		final File		contentFile;
+		final long		modificationStamp;
+		int				references;
+
+		Entry(@NotNull String path, @NotNull File contentFile, long modificationStamp) {
+			this.path				= path;
+			this.contentFile		= contentFile;
+			this.modificationStamp	= modificationStamp;
+		}
+	}
+
+
+	/**
+	 * The content of a document taken within a read action.
+	 */
+	private static class DocumentContent {
+		final VirtualFile	file;
+		final long			modificationStamp;
+		final CharSequence	text;
+
+		DocumentContent(@NotNull VirtualFile file, long modificationStamp, @NotNull CharSequence text) {
+			this.file				= file;
+			this.modificationStamp	= modificationStamp;
+			this.text				= text;
+		}
+	}
+
+
+	/**
+	 * An overlay file with the contents of all documents unsaved at a specific time.
+	 * The files of a snapshot will not be modified or deleted until it was released
+	 * by all scans which have acquired it.
+	 */
+	public static class Snapshot {
+		private final File				overlayFile;
+
+		/** All entries of this snapshot by their path, normalized by {@link CompileCommandsDatabase#normalizePath(String)}. */
+		private final Map<String,Entry>	entries;
+
+		private int						references;
+
+		private Snapshot(@NotNull File overlayFile, @NotNull Map<String,Entry> entries) {
+			this.overlayFile	= overlayFile;
+			this.entries		= entries;
+		}
+
+
+		/**
+		 * Get the overlay file to be passed to clang-tidy via -vfsoverlay.
+		 */
+		public @NotNull File getOverlayFile() {
+			return overlayFile;
+		}
+
+
+		/**
+		 * Get the file which provides the content of a file for clang-tidy.
+		 * The path of the file may contain relative segments, like headers found via include directories.
+		 * @return The temporary file containing the unsaved content of the file,
+		 *         or the file itself, if it has no unsaved changes.
+		 */
+		public @NotNull File getContentFile(@NotNull File file) {
+			Entry entry = entries.get(CompileCommandsDatabase.normalizePath(file.getPath()));
+			return entry != null ? entry.contentFile : file;
+		}
+	}
+
+
+	public static @NotNull UnsavedFilesOverlay getInstance(@NotNull Project project) {
+		return ServiceManager.getService(project, UnsavedFilesOverlay.class);
+	}
+
+
+	@Override
+	public synchronized void dispose() {
+		current = null;
+		tempFiles.dispose();
+	}
+
+
+	/**
+	 * Acquires a snapshot with the current content of all unsaved documents.
+	 * Documents changed since the previous snapshot will be written into new files.
+	 * Each snapshot acquired needs to be released via {@link #release(Snapshot)}.
+	 * @return The snapshot to be used by a single scan, or {@code null} if there are no unsaved documents.
+	 */
+	public @Nullable Snapshot acquire() throws IOException {
+		// take the documents before locking, because dispose may be invoked within a write action
+		List<DocumentContent> documents = ApplicationManager.getApplication().runReadAction(this::takeDocuments);
+
+		synchronized(this) {
+			return acquire(documents);
+		}
+	}
+
+
+	private @Nullable Snapshot acquire(@NotNull List<DocumentContent> documents) throws IOException {
+		Map<String,Entry> entries = new HashMap<>();
+		boolean changed = current == null || !current.overlayFile.exists();
+
+		for(DocumentContent document : documents) {
+			String path = document.file.getPath();
+			String key = CompileCommandsDatabase.normalizePath(path);
+
+			Entry entry = current != null ? current.entries.get(key) : null;
+			if (entry == null || entry.modificationStamp != document.modificationStamp || !entry.contentFile.exists()) {
+				entry = new Entry(path, tempFiles.allocate("-" + document.file.getName()), document.modificationStamp);
+				writeContent(entry.contentFile, document.text, document.file.getCharset());
+				changed = true;
+			}
+
+			entries.put(key, entry);
+		}
+
+		// documents saved or closed in the meantime
+		if (current != null && current.entries.size() != entries.size()) {
+			changed = true;
+		}
+
+		if (changed) {
+			Snapshot previous = current;
+			current = null;
+
+			if (!entries.isEmpty()) {
+				current = new Snapshot(tempFiles.allocate(".overlay.yaml"), Collections.unmodifiableMap(entries));
+				writeOverlay(current);
+
+				for(Entry entry : entries.values()) {
+					++entry.references;
+				}
+
+				// the current snapshot is kept for the next scans, until a document was changed
+				current.references = 1;
+			}
+
+			release(previous);
+		}
+
+		if (current != null) {
+			++current.references;
+		}
+
+		return current;
+	}
+
+
+	/**
+	 * Releases a snapshot previously acquired, deleting its files when no longer used by any scan.
+	 */
+	public synchronized void release(@Nullable Snapshot snapshot) {
+		if (snapshot == null || --snapshot.references > 0) {
+			return;
+		}
+
+		tempFiles.release(snapshot.overlayFile);
+
+		for(Entry entry : snapshot.entries.values()) {
+			if (--entry.references == 0) {
+				tempFiles.release(entry.contentFile);
+			}
+		}
+	}
+
+
+	private @NotNull List<DocumentContent> takeDocuments() {
+		FileDocumentManager fileDocumentManager = FileDocumentManager.getInstance();
+		List<DocumentContent> documents = new ArrayList<>();
+
+		for(Document document : fileDocumentManager.getUnsavedDocuments()) {
+			VirtualFile file = fileDocumentManager.getFile(document);
+
+			if (file != null && file.isValid() && file.isInLocalFileSystem()) {
+				documents.add(new DocumentContent(file, document.getModificationStamp(), document.getImmutableCharSequence()));
+			}
+		}
+
+		return documents;
+	}
+
+
+	private static void writeContent(@NotNull File file, @NotNull CharSequence text, @NotNull Charset charset) throws IOException {
+		try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), charset))) {
+			writer.append(text);
+		}
+	}
+
+
+	/**
+	 * Writes the overlay file in the YAML format of clang's virtual file system,
+	 * with one directory entry for each directory containing unsaved files.
+	 */
+	private static void writeOverlay(@NotNull Snapshot snapshot) throws IOException {
+		Map<String,List<Entry>> directories = new TreeMap<>();
+		for(Entry entry : snapshot.entries.values()) {
+			String directory = new File(entry.path).getParent();
+			directories.computeIfAbsent(directory, k -> new ArrayList<>()).add(entry);
+		}
+
+		StringBuilder yaml = new StringBuilder();
+		yaml.append("{\n");
+		yaml.append("  'version': 0,\n");
+		yaml.append("  'case-sensitive': '").append(SystemInfo.isFileSystemCaseSensitive).append("',\n");
+		yaml.append("  'roots': [\n");
+
+		boolean firstDirectory = true;
+		for(Map.Entry<String,List<Entry>> directory : directories.entrySet()) {
+			if (!firstDirectory) {
+				yaml.append(",\n");
+			}
+
+			yaml.append("    {\n");
+			yaml.append("      'type': 'directory',\n");
+			yaml.append("      'name': ").append(quote(directory.getKey())).append(",\n");
+			yaml.append("      'contents': [\n");
+
+			boolean firstFile = true;
+			for(Entry entry : directory.getValue()) {
+				if (!firstFile) {
+					yaml.append(",\n");
+				}
+
+				yaml.append("        {");
+				yaml.append(" 'type': 'file',");
+				yaml.append(" 'name': ").append(quote(new File(entry.path).getName())).append(',');
+				yaml.append(" 'external-contents': ").append(quote(entry.contentFile.getAbsolutePath()));
+				yaml.append(" }");
+
+				firstFile = false;
+			}
+
+			yaml.append("\n      ]\n");
+			yaml.append("    }");
+
+			firstDirectory = false;
+		}
+
+		yaml.append("\n  ]\n");
+		yaml.append("}\n");
+
+		try(Writer writer = new OutputStreamWriter(new FileOutputStream(snapshot.overlayFile), StandardCharsets.UTF_8)) {
+			writer.write(yaml.toString());
+		}
+	}
+
+
+	private static @NotNull String quote(@NotNull String value) {
+		return '\'' + value.replace("'", "''") + '\'';
+	}
+}
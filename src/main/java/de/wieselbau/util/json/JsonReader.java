@@ -0,0 +1,637 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.util.json;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Utility class for reading JSON files token by token, without keeping the whole document in memory.
+ *
+ * The reader works on the raw bytes of the input, so the byte offset of each token
+ * is known and can be used to seek to a value later. Separators like ',' and ':'
+ * are not validated, which is sufficient for reading files generated by tools
+ * like the compile_commands.json written by CMake.
+ */
+public class JsonReader implements Closeable {
+	public enum Token {
+		BeginObject,
+		EndObject,
+		BeginArray,
+		EndArray,
+		Name,
+		String,
+		Number,
+		Boolean,
+		Null,
+		EndOfDocument,
+	}
+
+	private final InputStream	in;
+	private final byte[]		buffer;
+	private int					position		= 0;
+	private int					limit			= 0;
+	private long				bufferOffset	= 0;
+
+	private Token				peeked			= null;
+	private long				peekedOffset	= 0;
+	private String				peekedValue		= null;
+
+	// strings will only be decoded when requested, so skipping large values is cheap
+	private byte[]				stringBytes		= new byte[256];
+	private int					stringLength	= -1;
+
+
+	public JsonReader(@NotNull InputStream in) {
+		this(in, 65536);
+	}
+
+
+	public JsonReader(@NotNull InputStream in, int bufferSize) {
+		this.in		= in;
+		this.buffer	= new byte[bufferSize];
+	}
+
+
+	/**
+	 * Creates a reader which will start reading at a given byte offset of a file.
+	 */
+	public static @NotNull JsonReader open(@NotNull File file, long offset) throws IOException {
+		InputStream in = new FileInputStream(file);
+
+		try {
+			long skipped = 0;
+			while(skipped < offset) {
+				long n = in.skip(offset - skipped);
+				if (n <= 0) {
+					throw new EOFException("Offset " + offset + " exceeds " + file);
+				}
+
+				skipped += n;
+			}
+		}
+		catch(IOException e) {
+			in.close();
+			throw e;
+		}
+
+		JsonReader reader = new JsonReader(new BufferedInputStream(in, 8192), 8192);
+		reader.bufferOffset = offset;
+
+		return reader;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+
+	/**
+	 * Get the type of the next token, without consuming it.
+	 */
+	public @NotNull Token peek() throws IOException {
+		if (peeked == null) {
+			readToken();
+		}
+
+		return peeked;
+	}
+
+
+	/**
+	 * Get the byte offset of the next token within the input.
+	 */
+	public long getTokenOffset() throws IOException {
+		peek();
+		return peekedOffset;
+	}
+
+
+	/**
+	 * Get the byte offset within the input directly behind the last token consumed.
+	 */
+	public long getOffset() {
+		if (peeked != null) {
+			throw new IllegalStateException("Offset is unknown after peeking the next token");
+		}
+
+		return bufferOffset + position;
+	}
+
+
+	/**
+	 * Checks whether the current object or array has more elements.
+	 */
+	public boolean hasNext() throws IOException {
+		Token token = peek();
+		return token != Token.EndObject && token != Token.EndArray && token != Token.EndOfDocument;
+	}
+
+
+	public void beginObject() throws IOException {
+		consume(Token.BeginObject);
+	}
+
+	public void endObject() throws IOException {
+		consume(Token.EndObject);
+	}
+
+	public void beginArray() throws IOException {
+		consume(Token.BeginArray);
+	}
+
+	public void endArray() throws IOException {
+		consume(Token.EndArray);
+	}
+
+
+	public @NotNull String nextName() throws IOException {
+		return consume(Token.Name);
+	}
+
+
+	public @NotNull String nextString() throws IOException {
+		return consume(Token.String);
+	}
+
+
+	public @NotNull Number nextNumber() throws IOException {
+		long offset = getTokenOffset();
+		String value = consume(Token.Number);
+
+		try {
+			if (value.indexOf('.') < 0 && value.indexOf('e') < 0 && value.indexOf('E') < 0) {
+				return Long.parseLong(value);
+			}
+
+			return Double.parseDouble(value);
+		}
+		catch(NumberFormatException e) {
+			throw new JsonSyntaxException("Invalid number '" + value + "'", offset);
+		}
+	}
+
+
+	public boolean nextBoolean() throws IOException {
+		return "true".equals(consume(Token.Boolean));
+	}
+
+
+	public void nextNull() throws IOException {
+		consume(Token.Null);
+	}
+
+
+	/**
+	 * Skips the next value, including all elements of an object or array.
+	 */
+	public void skipValue() throws IOException {
+		int depth = 0;
+
+		do {
+			Token token = peek();
+
+			switch(token) {
+				case BeginObject:
+				case BeginArray: {
+					++depth;
+					break;
+				}
+
+				case EndObject:
+				case EndArray: {
+					--depth;
+					break;
+				}
+
+				case EndOfDocument: {
+					throw new JsonSyntaxException("Unexpected end of document", peekedOffset);
+				}
+
+				default: {
+					break;
+				}
+			}
+
+			peeked			= null;
+			peekedValue		= null;
+			stringLength	= -1;
+		}
+		while(depth > 0);
+	}
+
+
+	/**
+	 * Reads the next value completely.
+	 * @return Either a {@link Map}, a {@link List}, a {@link String}, a {@link Number}, a {@link Boolean} or {@code null}.
+	 */
+	public @Nullable Object readValue() throws IOException {
+		switch(peek()) {
+			case BeginObject: {
+				Map<String,Object> map = new LinkedHashMap<>();
+				beginObject();
+
+				while(hasNext()) {
+					String name = nextName();
+					map.put(name, readValue());
+				}
+
+				endObject();
+				return map;
+			}
+
+			case BeginArray: {
+				List<Object> list = new ArrayList<>();
+				beginArray();
+
+				while(hasNext()) {
+					list.add(readValue());
+				}
+
+				endArray();
+				return list;
+			}
+
+			case String: {
+				return nextString();
+			}
+
+			case Number: {
+				return nextNumber();
+			}
+
+			case Boolean: {
+				return nextBoolean();
+			}
+
+			case Null: {
+				nextNull();
+				return null;
+			}
+
+			default: {
+				throw new JsonSyntaxException("Unexpected " + peeked, peekedOffset);
+			}
+		}
+	}
+
+
+	private @NotNull String consume(@NotNull Token expected) throws IOException {
+		Token token = peek();
+
+		if (token != expected) {
+			throw new JsonSyntaxException("Expected " + expected + " but found " + token, peekedOffset);
+		}
+
+		String value = peekedValue;
+
+		if (stringLength >= 0) {
+			value = new String(stringBytes, 0, stringLength, StandardCharsets.UTF_8);
+		}
+
+		peeked			= null;
+		peekedValue		= null;
+		stringLength	= -1;
+
+		return value != null ? value : "";
+	}
+
+
+	private void readToken() throws IOException {
+		int c = skipWhitespace(false);
+
+		peekedOffset = bufferOffset + position - 1;
+		peekedValue  = null;
+		stringLength = -1;
+
+		switch(c) {
+			case -1: {
+				peekedOffset = bufferOffset + position;
+				peeked = Token.EndOfDocument;
+				break;
+			}
+
+			case '{': {
+				peeked = Token.BeginObject;
+				break;
+			}
+
+			case '}': {
+				peeked = Token.EndObject;
+				break;
+			}
+
+			case '[': {
+				peeked = Token.BeginArray;
+				break;
+			}
+
+			case ']': {
+				peeked = Token.EndArray;
+				break;
+			}
+
+			case '"': {
+				stringLength = readString();
+
+				// a string followed by a colon is the name of an object's member
+				int next = skipWhitespace(true);
+				if (next == ':') {
+					peeked = Token.Name;
+				}
+				else {
+					if (next != -1) {
+						--position;
+					}
+
+					peeked = Token.String;
+				}
+
+				break;
+			}
+
+			case 't':
+			case 'f': {
+				peekedValue = readLiteral(c);
+				if (!"true".equals(peekedValue) && !"false".equals(peekedValue)) {
+					throw new JsonSyntaxException("Unknown literal '" + peekedValue + "'", peekedOffset);
+				}
+
+				peeked = Token.Boolean;
+				break;
+			}
+
+			case 'n': {
+				peekedValue = readLiteral(c);
+				if (!"null".equals(peekedValue)) {
+					throw new JsonSyntaxException("Unknown literal '" + peekedValue + "'", peekedOffset);
+				}
+
+				peeked = Token.Null;
+				break;
+			}
+
+			default: {
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					peekedValue = readLiteral(c);
+					peeked = Token.Number;
+					break;
+				}
+
+				throw new JsonSyntaxException("Unexpected character '" + (char)c + "'", peekedOffset);
+			}
+		}
+	}
+
+
+	/**
+	 * Skips all whitespace and separators.
+	 * @param stopAtColon	Whether a colon should be returned instead of being skipped.
+	 * @return The next character, or -1 at the end of the input.
+	 */
+	private int skipWhitespace(boolean stopAtColon) throws IOException {
+		for(;;) {
+			if (position >= limit && !fill()) {
+				return -1;
+			}
+
+			int c = buffer[position++] & 0xff;
+
+			switch(c) {
+				case ' ':
+				case '\t':
+				case '\r':
+				case '\n':
+				case ',': {
+					continue;
+				}
+
+				case ':': {
+					if (stopAtColon) {
+						return c;
+					}
+
+					continue;
+				}
+
+				default: {
+					return c;
+				}
+			}
+		}
+	}
+
+
+	private @NotNull String readLiteral(int first) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append((char)first);
+
+		for(;;) {
+			if (position >= limit && !fill()) {
+				break;
+			}
+
+			int c = buffer[position] & 0xff;
+			if (
+					(c >= '0' && c <= '9')
+				||	(c >= 'a' && c <= 'z')
+				||	(c >= 'A' && c <= 'Z')
+				||	c == '-' || c == '+' || c == '.'
+			) {
+				sb.append((char)c);
+				++position;
+			}
+			else {
+				break;
+			}
+		}
+
+		return sb.toString();
+	}
+
+
+	/**
+	 * Reads a string into the buffer of string bytes, with all escape sequences being resolved.
+	 * @return The number of bytes of the string.
+	 */
+	private int readString() throws IOException {
+		int highSurrogate = -1;
+		int length = 0;
+
+		for(;;) {
+			if (position >= limit && !fill()) {
+				throw new JsonSyntaxException("Unterminated string", peekedOffset);
+			}
+
+			byte b = buffer[position++];
+
+			if (b == '\\') {
+				char c = readEscapedCharacter();
+
+				if (Character.isHighSurrogate(c)) {
+					if (highSurrogate >= 0) {
+						length = appendCodePoint(length, highSurrogate);
+					}
+
+					highSurrogate = c;
+				}
+				else if (Character.isLowSurrogate(c) && highSurrogate >= 0) {
+					length = appendCodePoint(length, Character.toCodePoint((char)highSurrogate, c));
+					highSurrogate = -1;
+				}
+				else {
+					if (highSurrogate >= 0) {
+						length = appendCodePoint(length, highSurrogate);
+						highSurrogate = -1;
+					}
+
+					length = appendCodePoint(length, c);
+				}
+
+				continue;
+			}
+
+			if (highSurrogate >= 0) {
+				length = appendCodePoint(length, highSurrogate);
+				highSurrogate = -1;
+			}
+
+			if (b == '"') {
+				break;
+			}
+
+			ensureStringCapacity(length + 1);
+			stringBytes[length++] = b;
+		}
+
+		return length;
+	}
+
+
+	/**
+	 * Appends a character as UTF-8 to the string bytes.
+	 * @return The new length of the string.
+	 */
+	private int appendCodePoint(int length, int codePoint) {
+		ensureStringCapacity(length + 4);
+
+		if (codePoint < 0x80) {
+			stringBytes[length++] = (byte)codePoint;
+		}
+		else if (codePoint < 0x800) {
+			stringBytes[length++] = (byte)(0xc0 | (codePoint >> 6));
+			stringBytes[length++] = (byte)(0x80 | (codePoint & 0x3f));
+		}
+		else if (codePoint < 0x10000) {
+			stringBytes[length++] = (byte)(0xe0 | (codePoint >> 12));
+			stringBytes[length++] = (byte)(0x80 | ((codePoint >> 6) & 0x3f));
+			stringBytes[length++] = (byte)(0x80 | (codePoint & 0x3f));
+		}
+		else {
+			stringBytes[length++] = (byte)(0xf0 | (codePoint >> 18));
+			stringBytes[length++] = (byte)(0x80 | ((codePoint >> 12) & 0x3f));
+			stringBytes[length++] = (byte)(0x80 | ((codePoint >> 6) & 0x3f));
+			stringBytes[length++] = (byte)(0x80 | (codePoint & 0x3f));
+		}
+
+		return length;
+	}
+
+
+	private void ensureStringCapacity(int capacity) {
+		if (capacity > stringBytes.length) {
+			byte[] newBytes = new byte[Math.max(capacity, stringBytes.length * 2)];
+			System.arraycopy(stringBytes, 0, newBytes, 0, stringBytes.length);
+			stringBytes = newBytes;
+		}
+	}
+
+
+	private char readEscapedCharacter() throws IOException {
+		int c = readByte();
+
+		switch(c) {
+			case '"':	return '"';
+			case '\\':	return '\\';
+			case '/':	return '/';
+			case 'b':	return '\b';
+			case 'f':	return '\f';
+			case 'n':	return '\n';
+			case 'r':	return '\r';
+			case 't':	return '\t';
+
+			case 'u': {
+				int value = 0;
+
+				for(int i=0; i<4; i++) {
+					int digit = Character.digit(readByte(), 16);
+					if (digit < 0) {
+						throw new JsonSyntaxException("Invalid unicode escape sequence", peekedOffset);
+					}
+
+					value = (value << 4) | digit;
+				}
+
+				return (char)value;
+			}
+
+			default: {
+				throw new JsonSyntaxException("Invalid escape sequence '\\" + (char)c + "'", peekedOffset);
+			}
+		}
+	}
+
+
+	private int readByte() throws IOException {
+		if (position >= limit && !fill()) {
+			throw new JsonSyntaxException("Unexpected end of document", peekedOffset);
+		}
+
+		return buffer[position++] & 0xff;
+	}
+
+
+	private boolean fill() throws IOException {
+		bufferOffset += limit;
+		position = 0;
+		limit = 0;
+
+		int n = in.read(buffer, 0, buffer.length);
+		if (n <= 0) {
+			return false;
+		}
+
+		limit = n;
+		return true;
+	}
+}
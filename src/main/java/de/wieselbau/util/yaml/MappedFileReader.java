@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.util.yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+
+/**
+ * Reader decoding UTF-8 directly from a memory mapped file.
+ *
+ * This avoids copying the content through the buffers of a FileInputStream
+ * and an InputStreamReader, which becomes noticeable on large result files.
+ */
+class MappedFileReader extends Reader {
+	/**
+	 * Files starting at this size will be memory mapped.
+	 */
+	public final static long	MIN_FILE_SIZE		= 1024 * 1024;
+
+	private final RandomAccessFile	file;
+	private final ByteBuffer		bytes;
+	private final CharsetDecoder	decoder;
+	private boolean					flushed				= false;
+
+
+	/**
+	 * Checks whether a file should be read via memory mapping.
+	 * Not used on windows, where a mapped file cannot be deleted until the
+	 * mapping was garbage collected, but result files are deleted right after reading.
+	 */
+	public static boolean isApplicable(File file) {
+		long length = file.length();
+
+		return
+				length >= MIN_FILE_SIZE
+			&&	length <= Integer.MAX_VALUE
+			&&	!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("windows")
+		;
+	}
+
+
+	public MappedFileReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = this.file.getChannel();
+			this.bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		catch(IOException | RuntimeException e) {
+			this.file.close();
+			throw e;
+		}
+
+		// same handling of invalid input as InputStreamReader
+		this.decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE)
+		;
+	}
+
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (flushed) {
+			return -1;
+		}
+
+		if (len == 0) {
+			return 0;
+		}
+
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+
+		// the whole input is available, so each call may be the last one
+		CoderResult result = decoder.decode(bytes, out, true);
+		if (result.isError()) {
+			result.throwException();
+		}
+
+		if (!bytes.hasRemaining() && !flushed && !result.isOverflow()) {
+			result = decoder.flush(out);
+			flushed = result.isUnderflow();
+		}
+
+		int read = out.position() - off;
+
+		return read == 0 && flushed ? -1 : read;
+	}
+
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -23,6 +23,7 @@
 package de.wieselbau.util.yaml;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,13 +37,32 @@ import java.util.Map;
  * is a very simple one and optimized for yaml files created by clang-tidy.
  * It is very limited and not compatible with the full yaml specification.
  * You have been warned, have fun!
+ *
+ * Large files may be read with a {@link RecordHandler}, which receives each element of
+ * a list within the root map as soon as it was read, instead of storing it in the list.
+ * This way, only a single element needs to be kept in memory at a time.
  */
 public class YamlReader {
+	/**
+	 * Receives the elements of lists within the root map, while the file is being read.
+	 */
+	@FunctionalInterface
+	public interface RecordHandler {
+		/**
+		 * Invoked for each element of a list within the root map.
+		 * The element will not be stored in the list afterwards.
+		 * @param key		The key of the list within the root map.
+		 * @param record	The element of the list, usually a map.
+		 */
+		void onRecord(String key, Object record) throws IOException;
+	}
+
+
 	private File				file			= null;
-	private TrackCaretReader	caretReader		= null;
-	private Reader				reader			= null;
-	private StreamTokenizer		tokenizer		= null;
+	private YamlTokenizer		tokenizer		= null;
 	private Object				rootObject		= null;
+	private RecordHandler		recordHandler	= null;
+	private int					mapDepth		= 0;
 
 
 	private static String KEY_INTRO		= "---";
@@ -57,6 +77,24 @@ public class YamlReader {
 		rootObject = read(in);
 	}
 
+	/**
+	 * Reads a file, passing all elements of lists within the root map to a handler.
+	 * Those lists will remain empty within the root object.
+	 */
+	public YamlReader(File file, RecordHandler recordHandler) throws IOException {
+		this.recordHandler = recordHandler;
+		rootObject = read(file);
+	}
+
+	/**
+	 * Reads a stream, passing all elements of lists within the root map to a handler.
+	 * Those lists will remain empty within the root object.
+	 */
+	public YamlReader(InputStream in, RecordHandler recordHandler) throws IOException {
+		this.recordHandler = recordHandler;
+		rootObject = read(in);
+	}
+
 
 	public Object getRootObject() {
 		return rootObject;
@@ -66,37 +104,24 @@ public class YamlReader {
 	private Object read(File file) throws IOException {
 		this.file = file;
 
-		InputStream in = new FileInputStream(file);
-		return read(in);
+		// large files will be decoded directly from a memory mapped buffer
+		if (MappedFileReader.isApplicable(file)) {
+			return read(new MappedFileReader(file));
+		}
+
+		return read(new FileInputStream(file));
 	}
 
 
 	private Object read(InputStream in) throws IOException {
+		return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+
+
+	private Object read(Reader reader) throws IOException {
 		Object data = null;
 
-		InputStreamReader sr = new InputStreamReader(in);
-
-		caretReader = new TrackCaretReader(sr);
-		reader = caretReader;
-
-		tokenizer = new StreamTokenizer(reader);
-		tokenizer.resetSyntax();
-		tokenizer.eolIsSignificant(true);
-		tokenizer.slashSlashComments(false);
-		tokenizer.slashStarComments(false);
-		tokenizer.parseNumbers();
-		tokenizer.ordinaryChar('.'); // dot required for outro mark
-		tokenizer.whitespaceChars('\0', ' ');
-		tokenizer.commentChar('#');
-		tokenizer.wordChars('a', 'z');
-		tokenizer.wordChars('A', 'Z');
-		tokenizer.wordChars('0', '9');
-		tokenizer.wordChars('_', '_');
-		tokenizer.wordChars('-', '-');
-		tokenizer.wordChars('/', '/');
-		tokenizer.wordChars('.', '.');
-		tokenizer.wordChars(',', ',');
-		tokenizer.wordChars(128 + 32, 255);
+		tokenizer = new YamlTokenizer(file, reader);
 
 		try {
 			readIntro();
@@ -104,11 +129,9 @@ public class YamlReader {
 			readOutro();
 		}
 		finally {
-			in.close();
+			reader.close();
 
-			caretReader = null;
 			tokenizer = null;
-			reader = null;
 		}
 
 		return data;
@@ -116,6 +139,14 @@ public class YamlReader {
 
 
 	protected Object readData() throws IOException {
+		return readData(null);
+	}
+
+
+	/**
+	 * @param recordKey		When not {@code null}, the elements of a list will be passed to the record handler.
+	 */
+	private Object readData(String recordKey) throws IOException {
 		Object data = null;
 
 		int next = tokenizer.nextToken();
@@ -123,11 +154,11 @@ public class YamlReader {
 
 		switch(next) {
 			case '-': {
-				data = readList();
+				data = readList(recordKey);
 				break;
 			}
 
-			case StreamTokenizer.TT_WORD: {
+			case YamlTokenizer.TT_WORD: {
 				if (KEY_OUTRO.equals(tokenizer.sval)) {
 					tokenizer.pushBack();
 					break;
@@ -152,7 +183,7 @@ public class YamlReader {
 
 	private void readIntro() throws IOException {
 		expect(KEY_INTRO);
-		expect(StreamTokenizer.TT_EOL);
+		expect(YamlTokenizer.TT_EOL);
 	}
 
 
@@ -161,25 +192,25 @@ public class YamlReader {
 
 		// ignore all linebreaks after outro mark
 		while(true) {
-			if (!(ignoreToken(StreamTokenizer.TT_EOL))) break;
+			if (!(ignoreToken(YamlTokenizer.TT_EOL))) break;
 		}
 
-		expect(StreamTokenizer.TT_EOF);
+		expect(YamlTokenizer.TT_EOF);
 	}
 
 
-	private List<Object> readList() throws IOException {
+	private List<Object> readList(String recordKey) throws IOException {
 		List<Object> list = new ArrayList<>();
 
 		// store the indent of the first token
 		expect('-');
-		final int originalIndent = caretReader.getColumn();
+		final int originalIndent = tokenizer.getColumn();
 		tokenizer.pushBack();
 
 		parserLoop: do {
 			switch(tokenizer.nextToken()) {
 				case '-': {
-					int currentIndent = caretReader.getColumn();
+					int currentIndent = tokenizer.getColumn();
 
 					if (currentIndent < originalIndent) {
 						tokenizer.pushBack();
@@ -187,12 +218,18 @@ public class YamlReader {
 					}
 
 					Object element = readData();
-					list.add(element);
+
+					if (recordKey != null) {
+						recordHandler.onRecord(recordKey, element);
+					}
+					else {
+						list.add(element);
+					}
 
 					break;
 				}
 
-				case StreamTokenizer.TT_WORD: {
+				case YamlTokenizer.TT_WORD: {
 					if (tokenizer.sval.equals(KEY_OUTRO)) {
 						tokenizer.pushBack();
 						break parserLoop;
@@ -217,6 +254,17 @@ public class YamlReader {
 	private final static int StateKey		= 1;
 	private final static int StateValue		= 1;
 	protected Map<String,Object> readMap() throws IOException {
+		try {
+			++mapDepth;
+			return readMapEntries();
+		}
+		finally {
+			--mapDepth;
+		}
+	}
+
+
+	private Map<String,Object> readMapEntries() throws IOException {
 		Map<String,Object> map = new HashMap<>();
 
 		int currentState = StateNone;
@@ -225,7 +273,7 @@ public class YamlReader {
 
 		parserLoop: do {
 			switch(tokenizer.nextToken()) {
-				case StreamTokenizer.TT_WORD: {
+				case YamlTokenizer.TT_WORD: {
 					switch(currentState) {
 						case StateNone: {
 							if (tokenizer.sval.equals(KEY_OUTRO)) {
@@ -279,7 +327,7 @@ public class YamlReader {
 					break;
 				}
 
-				case StreamTokenizer.TT_NUMBER: {
+				case YamlTokenizer.TT_NUMBER: {
 					if (currentState == StateKey) {
 						currentState = StateValue;
 						currentValue = tokenizer.nval;
@@ -291,10 +339,11 @@ public class YamlReader {
 					break;
 				}
 
-				case StreamTokenizer.TT_EOL: {
+				case YamlTokenizer.TT_EOL: {
 					if (currentKey != null) {
 						if (currentValue == null) {
-							currentValue = readData();
+							// lists within the root map will be passed to the record handler, if any
+							currentValue = readData(recordHandler != null && mapDepth == 1 ? currentKey : null);
 						}
 
 						map.put(currentKey, currentValue);
@@ -306,7 +355,7 @@ public class YamlReader {
 					break;
 				}
 
-				case StreamTokenizer.TT_EOF: {
+				case YamlTokenizer.TT_EOF: {
 					break parserLoop;
 				}
 
@@ -328,55 +377,11 @@ public class YamlReader {
 	}
 
 
-	protected String readQuotedString(int quoteToken, boolean handleBackslash) throws IOException {
-		StringBuilder sb = new StringBuilder();
-
-		do {
-			int token = reader.read();
-			if (token == quoteToken && quoteToken != -1) {
-				break;
-			}
-
-			switch(token) {
-				case '\\': {
-					if (handleBackslash) {
-						int next = reader.read();
-						switch(next) {
-							case 'b':	sb.append('\b');	break;
-							case 'f':	sb.append('\f');	break;
-							case 'n':	sb.append('\n');	break;
-							case 'r':	sb.append('\r');	break;
-							case 't':	sb.append('\t');	break;
-							case '"':	sb.append('"');		break;
-							case '\'':	sb.append('\'');	break;
-							case '\\':	sb.append('\\');	break;
-
-							default: {
-								unexpectedState();
-								break;
-							}
-						}
-					}
-					else {
-						sb.append('\\');
-					}
-
-					break;
-				}
-
-				default: {
-					sb.append((char)token);
-					break;
-				}
-			}
-		}
-		while(true);
-
-		return sb.toString();
+	protected String readQuotedString(char quote, boolean handleBackslash) throws IOException {
+		return tokenizer.readQuotedString(quote, handleBackslash);
 	}
 
 
-
 	protected boolean ignoreToken(int expectedToken) throws IOException {
 		int token = tokenizer.nextToken();
 		if (token != expectedToken) {
@@ -389,7 +394,7 @@ public class YamlReader {
 
 
 	protected void expect(String expectedString) throws IOException {
-		if (tokenizer.nextToken() == StreamTokenizer.TT_WORD) {
+		if (tokenizer.nextToken() == YamlTokenizer.TT_WORD) {
 			if (!tokenizer.sval.equals(expectedString)) {
 				unexpectedState();
 			}
@@ -24,26 +24,25 @@ package de.wieselbau.util.yaml;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.StreamTokenizer;
 
 /**
  * Exception for parser errors in yaml files.
  */
 public class YamlSyntaxException extends IOException {
-	private static String generateMessage(File file, StreamTokenizer tokenizer) {
+	private static String generateMessage(File file, YamlTokenizer tokenizer) {
 		String message =
 				file != null
-			?	"Unknown symbol at " + file.getPath() + ':' + tokenizer.lineno() + ": "
-			:	"Unknown symbol at line " + tokenizer.lineno() + ": "
+			?	"Unknown symbol at " + file.getPath() + ':' + tokenizer.getLine() + ": "
+			:	"Unknown symbol at line " + tokenizer.getLine() + ": "
 		;
 
 		switch(tokenizer.ttype) {
-			case StreamTokenizer.TT_WORD: {
+			case YamlTokenizer.TT_WORD: {
 				message += tokenizer.sval;
 				break;
 			}
 
-			case StreamTokenizer.TT_NUMBER: {
+			case YamlTokenizer.TT_NUMBER: {
 				message += tokenizer.nval;
 				break;
 			}
@@ -65,7 +64,7 @@ public class YamlSyntaxException extends IOException {
 	}
 
 
-	public YamlSyntaxException(File file, StreamTokenizer tokenizer) {
+	public YamlSyntaxException(File file, YamlTokenizer tokenizer) {
 		super(generateMessage(file, tokenizer));
 	}
 }
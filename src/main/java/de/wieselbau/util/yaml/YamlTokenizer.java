@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.util.yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * Splits the yaml subset written by clang-tidy into tokens.
+ *
+ * This replaces a {@link java.io.StreamTokenizer} on top of a reader tracking the caret position,
+ * which did read and classify each character by a separate call. This tokenizer scans
+ * words and quoted strings directly within its own buffer and derives the column of
+ * a token from the offset of its line start, instead of counting each character.
+ *
+ * Tokens are classified the same way the previous tokenizer was configured:
+ * numbers take precedence over words, a single '-' or '.' is reported as character,
+ * '#' starts a comment until the end of the line and any other character
+ * is reported as it is.
+ */
+public class YamlTokenizer {
+	public final static int TT_EOF			= -1;
+	public final static int TT_EOL			= '\n';
+	public final static int TT_NUMBER		= -2;
+	public final static int TT_WORD			= -3;
+	private final static int TT_NOTHING		= -4;
+
+	private final static int BUFFER_SIZE	= 64 * 1024;
+
+	private final static byte CT_WHITESPACE	= 1;
+	private final static byte CT_WORD		= 2;
+	private final static byte CT_DIGIT		= 4;
+
+	private final static byte[] charTypes	= new byte[256];
+
+	static {
+		for(int c='\0'; c<=' '; c++) {
+			charTypes[c] = CT_WHITESPACE;
+		}
+
+		charTypes['\r'] = 0;
+		charTypes['\n'] = 0;
+
+		for(int c='a'; c<='z'; c++) {
+			charTypes[c] = CT_WORD;
+		}
+
+		for(int c='A'; c<='Z'; c++) {
+			charTypes[c] = CT_WORD;
+		}
+
+		for(int c=128 + 32; c<=255; c++) {
+			charTypes[c] = CT_WORD;
+		}
+
+		for(int c='0'; c<='9'; c++) {
+			charTypes[c] = CT_WORD | CT_DIGIT;
+		}
+
+		charTypes['-'] = CT_WORD | CT_DIGIT;
+		charTypes['_'] = CT_WORD;
+		charTypes['/'] = CT_WORD;
+		charTypes['.'] = CT_WORD;
+		charTypes[','] = CT_WORD;
+	}
+
+
+	private final File			file;
+	private final Reader		reader;
+	private final char[]		buffer				= new char[BUFFER_SIZE];
+	private int					position			= 0;
+	private int					limit				= 0;
+	private long				bufferOffset		= 0;
+
+	private int					line				= 1;
+	private long				lineStartOffset		= 0;
+	private int					tokenLine			= 1;
+	private int					tokenColumn			= 0;
+	private boolean				pushedBack			= false;
+
+	private final StringBuilder	stringBuilder		= new StringBuilder();
+
+	/**
+	 * The type of the current token, either one of the {@code TT_*} constants
+	 * or the character itself.
+	 */
+	public int					ttype				= TT_NOTHING;
+
+	/** The text of the current token, if it's a word. */
+	public String				sval				= null;
+
+	/** The value of the current token, if it's a number. */
+	public double				nval				= 0;
+
+
+	/**
+	 * @param file		The file being read, only used for error messages. May be {@code null}.
+	 */
+	public YamlTokenizer(File file, Reader reader) {
+		this.file = file;
+		this.reader = reader;
+	}
+
+
+	/**
+	 * Get the line number of the current token.
+	 */
+	public int getLine() {
+		return tokenLine;
+	}
+
+
+	/**
+	 * Get the zero-based column of the first character of the current token.
+	 */
+	public int getColumn() {
+		return tokenColumn;
+	}
+
+
+	/**
+	 * Causes the next call of {@link #nextToken()} to return the current token again.
+	 */
+	public void pushBack() {
+		if (ttype != TT_NOTHING) {
+			pushedBack = true;
+		}
+	}
+
+
+	public int nextToken() throws IOException {
+		if (pushedBack) {
+			pushedBack = false;
+			return ttype;
+		}
+
+		sval = null;
+
+		while(true) {
+			int c = peek();
+
+			while(c >= 0 && c < 256 && charTypes[c] == CT_WHITESPACE) {
+				++position;
+				c = peek();
+			}
+
+			markTokenStart();
+
+			if (c < 0) {
+				return ttype = TT_EOF;
+			}
+
+			if (c == '\r' || c == '\n') {
+				skipLineBreak(c);
+				return ttype = TT_EOL;
+			}
+
+			if (c == '#') {
+				skipComment();
+				continue;
+			}
+
+			int charType = c < 256 ? charTypes[c] : CT_WORD;
+
+			if ((charType & CT_DIGIT) != 0) {
+				return ttype = readNumber();
+			}
+
+			if ((charType & CT_WORD) != 0) {
+				sval = readWord();
+				return ttype = TT_WORD;
+			}
+
+			++position;
+			return ttype = c;
+		}
+	}
+
+
+	/**
+	 * Reads the content of a quoted string, after its opening quote was returned by {@link #nextToken()}.
+	 * @param quote				The quote character which terminates the string.
+	 * @param handleBackslash	Whether backslash escape sequences should be resolved.
+	 */
+	public String readQuotedString(char quote, boolean handleBackslash) throws IOException {
+		stringBuilder.setLength(0);
+
+		while(true) {
+			if (position >= limit && !fill()) {
+				throw new YamlSyntaxException(file, this);
+			}
+
+			// copy all characters up to the next one requiring special treatment at once
+			int start = position;
+			char c = 0;
+			while(position < limit) {
+				c = buffer[position];
+				if (c == quote || c == '\\' || c == '\r' || c == '\n') {
+					break;
+				}
+
+				++position;
+			}
+
+			stringBuilder.append(buffer, start, position - start);
+
+			if (position >= limit) {
+				continue;
+			}
+
+			++position;
+
+			if (c == quote) {
+				// within single quoted strings, a quote is escaped by another one
+				if (quote == '\'' && peek() == '\'') {
+					++position;
+					stringBuilder.append('\'');
+					continue;
+				}
+
+				break;
+			}
+
+			switch(c) {
+				case '\\': {
+					if (handleBackslash) {
+						stringBuilder.append(readEscapedChar());
+					}
+					else {
+						stringBuilder.append('\\');
+					}
+
+					break;
+				}
+
+				case '\r': {
+					if (peek() == '\n') {
+						++position;
+						stringBuilder.append('\r');
+						c = '\n';
+					}
+
+					// fall through
+				}
+
+				default: {
+					stringBuilder.append(c);
+					startNewLine();
+					break;
+				}
+			}
+		}
+
+		return stringBuilder.toString();
+	}
+
+
+	private char readEscapedChar() throws IOException {
+		int next = peek();
+		++position;
+
+		switch(next) {
+			case 'b':	return '\b';
+			case 'f':	return '\f';
+			case 'n':	return '\n';
+			case 'r':	return '\r';
+			case 't':	return '\t';
+			case '"':	return '"';
+			case '\'':	return '\'';
+			case '\\':	return '\\';
+		}
+
+		throw new YamlSyntaxException(file, this);
+	}
+
+
+	private int readNumber() throws IOException {
+		int c = peek();
+		boolean negative = false;
+
+		if (c == '-') {
+			++position;
+			c = peek();
+
+			if (c != '.' && (c < '0' || c > '9')) {
+				return '-';
+			}
+
+			negative = true;
+		}
+
+		double value = 0;
+		int decimals = 0;
+		boolean seenDot = false;
+
+		while(true) {
+			if (c == '.' && !seenDot) {
+				seenDot = true;
+			}
+			else if (c >= '0' && c <= '9') {
+				value = value * 10 + (c - '0');
+
+				if (seenDot) {
+					++decimals;
+				}
+			}
+			else {
+				break;
+			}
+
+			++position;
+			c = peek();
+		}
+
+		if (decimals > 0) {
+			value /= Math.pow(10, decimals);
+		}
+
+		nval = negative ? -value : value;
+
+		return TT_NUMBER;
+	}
+
+
+	private String readWord() throws IOException {
+		boolean spansBuffers = false;
+
+		while(true) {
+			int start = position;
+			while(position < limit) {
+				char c = buffer[position];
+				if (c < 256 && (charTypes[c] & (CT_WORD | CT_DIGIT)) == 0) {
+					break;
+				}
+
+				++position;
+			}
+
+			if (position < limit && !spansBuffers) {
+				return new String(buffer, start, position - start);
+			}
+
+			if (!spansBuffers) {
+				stringBuilder.setLength(0);
+				spansBuffers = true;
+			}
+
+			stringBuilder.append(buffer, start, position - start);
+
+			// the word may continue behind the end of the buffer
+			if (position < limit || !fill()) {
+				return stringBuilder.toString();
+			}
+		}
+	}
+
+
+	private void skipComment() throws IOException {
+		int c = peek();
+		while(c >= 0 && c != '\r' && c != '\n') {
+			++position;
+			c = peek();
+		}
+	}
+
+
+	private void skipLineBreak(int c) throws IOException {
+		++position;
+
+		if (c == '\r' && peek() == '\n') {
+			++position;
+		}
+
+		startNewLine();
+	}
+
+
+	private void startNewLine() {
+		++line;
+		lineStartOffset = bufferOffset + position;
+	}
+
+
+	private void markTokenStart() {
+		tokenLine = line;
+		tokenColumn = (int)(bufferOffset + position - lineStartOffset);
+	}
+
+
+	private int peek() throws IOException {
+		if (position >= limit && !fill()) {
+			return -1;
+		}
+
+		return buffer[position];
+	}
+
+
+	private boolean fill() throws IOException {
+		bufferOffset += limit;
+		position = 0;
+		limit = 0;
+
+		int read = reader.read(buffer, 0, buffer.length);
+		if (read <= 0) {
+			return false;
+		}
+
+		limit = read;
+
+		return true;
+	}
+}
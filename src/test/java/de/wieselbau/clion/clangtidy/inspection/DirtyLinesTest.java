@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.inspection;
+
+import com.intellij.openapi.util.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for tracking lines modified within a document
+ */
+public class DirtyLinesTest {
+
+	@Test
+	public void translateLines() {
+		// lines 5 to 7 were replaced by 5 to 9
+		assertEquals( 4, DirtyLines.translate( 4, 5, 7, 9));
+		assertEquals(-1, DirtyLines.translate( 5, 5, 7, 9));
+		assertEquals(-1, DirtyLines.translate( 7, 5, 7, 9));
+		assertEquals(10, DirtyLines.translate( 8, 5, 7, 9));
+	}
+
+
+	@Test
+	public void moveRangesAfterChange() {
+		DirtyLines lines = new DirtyLines();
+		assertTrue(lines.isEmpty());
+
+		lines.onChange(10, 10, 10);
+		assertEquals(Collections.singletonList(Pair.create(11, 11)), lines.toLineFilter());
+
+		// two lines inserted above
+		lines.onChange(2, 2, 4);
+		assertEquals(
+				Arrays.asList(Pair.create(3, 5), Pair.create(13, 13)),
+				lines.toLineFilter()
+		);
+		assertEquals(4, lines.getLineCount());
+	}
+
+
+	@Test
+	public void mergeOverlappingRanges() {
+		DirtyLines lines = new DirtyLines();
+		lines.onChange(3, 3, 3);
+		lines.onChange(8, 8, 8);
+
+		// lines 3 to 8 joined into a single line
+		lines.onChange(3, 8, 3);
+		assertEquals(Collections.singletonList(Pair.create(4, 4)), lines.toLineFilter());
+
+		lines.clear();
+		assertTrue(lines.isEmpty());
+	}
+}
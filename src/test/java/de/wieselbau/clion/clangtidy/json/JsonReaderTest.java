@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.json;
+
+import de.wieselbau.util.json.JsonReader;
+import de.wieselbau.util.json.JsonSyntaxException;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for reading json documents
+ */
+public class JsonReaderTest {
+
+	@Test
+	public void readValues() throws IOException {
+		Object root = createReader(
+				"{ \"string\": \"text\", \"number\": 42, \"float\": -1.5e3,"
+			+	"  \"list\": [ true, false, null ], \"empty\": {} }"
+		).readValue();
+
+		assertTrue(root instanceof Map);
+		Map<?,?> map = (Map<?,?>)root;
+
+		assertEquals("text", map.get("string"));
+		assertEquals(42L, map.get("number"));
+		assertEquals(-1500.0, map.get("float"));
+		assertEquals(Arrays.asList(true, false, null), map.get("list"));
+		assertTrue(map.get("empty") instanceof Map);
+		assertTrue(((Map<?,?>)map.get("empty")).isEmpty());
+	}
+
+
+	@Test
+	public void readEscapedStrings() throws IOException {
+		JsonReader reader = createReader("[ \"a\\\"b\\\\c\\/d\\n\", \"\\u00e4\\ud83d\\ude00\", \"\u00f6\u00df\" ]");
+
+		reader.beginArray();
+		assertEquals("a\"b\\c/d\n", reader.nextString());
+		assertEquals("\u00e4\ud83d\ude00", reader.nextString());
+		assertEquals("\u00f6\u00df", reader.nextString());
+		assertFalse(reader.hasNext());
+		reader.endArray();
+
+		assertEquals(JsonReader.Token.EndOfDocument, reader.peek());
+	}
+
+
+	@Test
+	public void tokenOffsets() throws IOException {
+		String text = "[ {\"a\": [1, 2]}, {\"\u00e4\": \"x\"} ]";
+		JsonReader reader = createReader(text);
+
+		reader.beginArray();
+		assertEquals(2, reader.getTokenOffset());
+		reader.skipValue();
+
+		// offsets are counted in bytes, so they can be used to seek within a file
+		assertEquals(17, reader.getTokenOffset());
+		reader.beginObject();
+		assertEquals("\u00e4", reader.nextName());
+		assertEquals(24, reader.getTokenOffset());
+		assertEquals("x", reader.nextString());
+		reader.endObject();
+		reader.endArray();
+	}
+
+
+	@Test
+	public void smallBuffer() throws IOException {
+		String text = "[ \"some longer string\", { \"name\": \"value\" }, 12345 ]";
+		JsonReader reader = new JsonReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), 4);
+
+		Object root = reader.readValue();
+		assertTrue(root instanceof List);
+		assertEquals(3, ((List<?>)root).size());
+		assertEquals("some longer string", ((List<?>)root).get(0));
+		assertEquals(12345L, ((List<?>)root).get(2));
+	}
+
+
+	@Test(expected = JsonSyntaxException.class)
+	public void unterminatedString() throws IOException {
+		createReader("[ \"text").readValue();
+	}
+
+
+	@Test(expected = JsonSyntaxException.class)
+	public void unexpectedToken() throws IOException {
+		JsonReader reader = createReader("[ 1 ]");
+		reader.beginObject();
+	}
+
+
+	private static @NotNull JsonReader createReader(@NotNull String text) {
+		return new JsonReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static de.wieselbau.clion.clangtidy.TestUtils.getTestFile;
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for reading compile_commands.json files
+ */
+public class CompileCommandsDatabaseTest {
+
+	@Test
+	public void readDatabase() throws IOException {
+		CompileCommandsDatabase database = CompileCommandsDatabase.getInstance(getTestFile("json/compile_commands.json"));
+		assertEquals(2, database.size());
+
+		CompileCommandsDatabase.Entry entry = database.findEntry("/home/sweet/home/my/SourceFile.cpp");
+		assertNotNull(entry);
+		assertEquals("-DNAME=\"value\"", entry.getArguments().get(1));
+		assertEquals(
+				Arrays.asList(
+						new File("/home/sweet/home/build", "../my/quoted"),
+						new File("/home/sweet/home/my/include"),
+						new File("/opt/lib/include")
+				),
+				entry.getQuoteIncludePaths()
+		);
+		assertEquals(
+				Arrays.asList(new File("/home/sweet/home/my/include"), new File("/opt/lib/include")),
+				entry.getAngledIncludePaths()
+		);
+		assertEquals(Collections.singletonList(new File("/opt/lib/include")), entry.getSystemIncludePaths());
+
+		CompileCommandsDatabase.Entry other = database.findEntry("/home/sweet/home/build/../my/Other File.c");
+		assertNotNull(other);
+		assertEquals(Collections.singletonList(new File("/home/sweet/home/build", "include dir")), other.getAngledIncludePaths());
+
+		assertTrue(database.contains("/home/sweet/home/my/SourceFile.cpp"));
+		assertTrue(database.contains("/home/sweet/home/my/../my/Other File.c"));
+		assertFalse(database.contains("/home/sweet/home/my/Unknown.cpp"));
+		assertNull(database.findEntry("/home/sweet/home/my/Unknown.cpp"));
+	}
+
+
+	@Test
+	public void writeSubset() throws IOException {
+		CompileCommandsDatabase database = CompileCommandsDatabase.getInstance(getTestFile("json/compile_commands.json"));
+
+		File target = File.createTempFile("compile_commands", ".json");
+		target.deleteOnExit();
+
+		int written = database.writeSubset(
+				Arrays.asList("/home/sweet/home/my/SourceFile.cpp", "/not/in/database.cpp"),
+				target
+		);
+		assertEquals(1, written);
+
+		CompileCommandsDatabase subset = CompileCommandsDatabase.getInstance(target);
+		assertEquals(1, subset.size());
+
+		CompileCommandsDatabase.Entry entry = subset.findEntry("/home/sweet/home/my/SourceFile.cpp");
+		assertNotNull(entry);
+		assertEquals(database.findEntry("/home/sweet/home/my/SourceFile.cpp").getArguments(), entry.getArguments());
+	}
+
+
+	@Test
+	public void splitCommandLine() {
+		assertEquals(
+				Arrays.asList("cc", "-DA=\"x y\"", "it's", "a b", "C:\\path\\file.c"),
+				CompileCommandsDatabase.splitCommandLine("cc  -DA=\\\"x\\ y\\\" \"it's\" 'a b' C:\\path\\file.c ")
+		);
+	}
+}
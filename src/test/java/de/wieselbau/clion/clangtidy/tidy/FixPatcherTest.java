@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.openapi.util.TextRange;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for applying the changes of a file
+ */
+public class FixPatcherTest {
+	private final static String CONTENT = "int *p = NULL;\nfor(int i=0; i<n; i++) { f(arr[i]); }\n";
+
+
+	@Test
+	public void applyChanges() {
+		FixPatcher patcher = new FixPatcher(Arrays.asList(
+				createChange(9, 13, "nullptr"),
+				createChange(19, 36, "int i : arr"),
+				createChange(42, 48, "i")
+		));
+
+		String expected = "int *p = nullptr;\nfor(int i : arr) { f(i); }\n";
+
+		assertEquals(expected, patcher.createPatchedContent(CONTENT));
+		assertTrue(patcher.getConflicts().isEmpty());
+
+		// applying the changes one by one has to give the same result
+		StringBuilder sb = new StringBuilder(CONTENT);
+		patcher.patch(sb, (range, replacement) -> sb.replace(range.getStartOffset(), range.getEndOffset(), replacement));
+		assertEquals(expected, sb.toString());
+	}
+
+
+	@Test
+	public void skipChangesAlreadyApplied() {
+		String content = "int *p = nullptr;\nfor(int i=0; i<n; i++) { f(arr[i]); }\n";
+
+		FixPatcher patcher = new FixPatcher(Arrays.asList(
+				createChange(9, 13, "nullptr"),
+				createChange(42, 48, "i")
+		));
+
+		assertEquals("int *p = nullptr;\nfor(int i=0; i<n; i++) { f(i); }\n", patcher.createPatchedContent(content));
+		assertTrue(patcher.getConflicts().isEmpty());
+	}
+
+
+	@Test
+	public void reportConflicts() {
+		Fix.Change mismatch		= createChange(9, 13, "nullptr", "NONE");
+		Fix.Change overlapping	= createChange(30, 40, "x");
+		Fix.Change outOfRange	= createChange(100, 104, "y", "");
+
+		FixPatcher patcher = new FixPatcher(Arrays.asList(
+				mismatch,
+				createChange(19, 36, "int i : arr"),
+				overlapping,
+				createChange(42, 48, "i"),
+				outOfRange
+		));
+
+		assertEquals("int *p = NULL;\nfor(int i : arr) { f(i); }\n", patcher.createPatchedContent(CONTENT));
+		assertEquals(Arrays.asList(mismatch, overlapping, outOfRange), patcher.getConflicts());
+	}
+
+
+	@Test
+	public void insertions() {
+		FixPatcher patcher = new FixPatcher(Arrays.asList(
+				createChange(0, 0, "// header\n"),
+				createChange(14, 14, " // null")
+		));
+
+		assertEquals("// header\nint *p = NULL; // null\n", patcher.createPatchedContent("int *p = NULL;\n"));
+
+		// insertions already found at their offset won't be inserted again
+		assertEquals("// header\nint *p = NULL; // null\n", patcher.createPatchedContent("// header\nint *p = NULL;\n"));
+	}
+
+
+	@Test
+	public void manyChanges() {
+		StringBuilder sb = new StringBuilder();
+		List<Fix.Change> changes = new ArrayList<>();
+
+		for(int i=0; i<20000; i++) {
+			int offset = sb.length();
+			sb.append("int *p").append(i).append(" = NULL;\n");
+
+			int start = offset + sb.substring(offset).indexOf("NULL");
+			changes.add(createChange(start, start + 4, "nullptr", "NULL"));
+		}
+
+		String content = sb.toString();
+		String patched = new FixPatcher(changes).createPatchedContent(content);
+
+		assertEquals(content.replace("NULL", "nullptr"), patched);
+	}
+
+
+	private static @NotNull Fix.Change createChange(int start, int end, @NotNull String replacement) {
+		return createChange(start, end, replacement, CONTENT.substring(start, end));
+	}
+
+
+	private static @NotNull Fix.Change createChange(int start, int end, @NotNull String replacement, @NotNull String original) {
+		Fix.Change change = new Fix.Change(new File("/path/to/Source.cpp"), TextRange.create(start, end), replacement);
+		change.setOriginal(original);
+
+		return change;
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for selecting the headers to be reported by clang-tidy
+ */
+public class HeaderFilterTest {
+
+	@Test
+	public void includeAllWithoutDirectories() {
+		HeaderFilter filter = new HeaderFilter(Collections.emptyList(), Collections.emptyList());
+
+		assertEquals(".*", filter.getHeaderFilterRegex());
+		assertNull(filter.getExcludeHeaderFilterRegex());
+	}
+
+
+	@Test
+	public void includeDirectories() {
+		HeaderFilter filter = new HeaderFilter(
+				Arrays.asList("/home/me/project/", "/home/me/lib (1.0)", "/home/me/project"),
+				Collections.emptyList()
+		);
+
+		assertEquals(Arrays.asList("/home/me/project", "/home/me/lib (1.0)"), filter.getIncludeDirectories());
+
+		Pattern pattern = Pattern.compile(filter.getHeaderFilterRegex());
+		assertTrue(pattern.matcher("/home/me/project/include/header.h").find());
+		assertTrue(pattern.matcher("/home/me/lib (1.0)/lib.h").find());
+		assertFalse(pattern.matcher("/home/me/project-other/header.h").find());
+		assertFalse(pattern.matcher("/home/me/lib x1.0x/lib.h").find());
+		assertFalse(pattern.matcher("/usr/include/stdio.h").find());
+		assertFalse(pattern.matcher("/backup/home/me/project/include/header.h").find());
+	}
+
+
+	@Test
+	public void relativeHeaders() {
+		HeaderFilter filter = new HeaderFilter(
+				Collections.singletonList("/home/me/project"),
+				Collections.emptyList()
+		);
+
+		// headers found via relative include directories are named by relative paths
+		Pattern pattern = Pattern.compile(filter.getHeaderFilterRegex());
+		assertTrue(pattern.matcher("include/header.h").find());
+		assertTrue(pattern.matcher("../lib/include/lib.h").find());
+		assertTrue(pattern.matcher("header.h").find());
+		assertTrue(pattern.matcher("include\\header.h").find());
+		assertFalse(pattern.matcher("/usr/include/stdio.h").find());
+		assertFalse(pattern.matcher("C:\\Program Files\\include\\stdio.h").find());
+		assertFalse(pattern.matcher("C:/include/stdio.h").find());
+	}
+
+
+	@Test
+	public void windowsSeparators() {
+		HeaderFilter filter = new HeaderFilter(
+				Collections.singletonList("C:\\Projects\\MyProject"),
+				Collections.singletonList("C:/Projects/MyProject/third_party/")
+		);
+
+		Pattern include = Pattern.compile(filter.getHeaderFilterRegex());
+		assertTrue(include.matcher("C:\\Projects\\MyProject\\header.h").find());
+		assertTrue(include.matcher("C:/Projects/MyProject/header.h").find());
+
+		Pattern exclude = Pattern.compile(filter.getExcludeHeaderFilterRegex());
+		assertTrue(exclude.matcher("C:\\Projects\\MyProject\\third_party\\lib.h").find());
+		assertFalse(exclude.matcher("C:\\Projects\\MyProject\\header.h").find());
+	}
+
+
+	@Test
+	public void excludeDirectories() {
+		HeaderFilter filter = new HeaderFilter(
+				Collections.singletonList("/home/me/project"),
+				Arrays.asList("/home/me/project/build", "/")
+		);
+
+		assertTrue(filter.isExcluded("/home/me/project/build/generated.h"));
+		assertTrue(filter.isExcluded("/usr/include/stdio.h"));
+
+		filter = new HeaderFilter(
+				Collections.singletonList("/home/me/project"),
+				Collections.singletonList("/home/me/project/build")
+		);
+
+		assertFalse(filter.isExcluded("/home/me/project/include/header.h"));
+		assertFalse(filter.isExcluded("/home/me/project/build2/header.h"));
+		assertTrue(Pattern.compile(filter.getExcludeHeaderFilterRegex()).matcher("/home/me/project/build/x.h").find());
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for collecting the headers included by translation units
+ */
+public class IncludeGraphTest {
+
+	private File						root;
+	private CompileCommandsDatabase		database;
+	private IncludeGraph				graph;
+
+
+	@Before
+	public void createProject() throws IOException {
+		root = Files.createTempDirectory("clang-tidy-include-graph-test").toFile().getCanonicalFile();
+
+		write("src/main.cpp",
+				"#include \"local.h\"",
+				"#  include <lib/api.h>",
+				"#include \"../shared/common.h\"",
+				"#include <vector>"
+		);
+		write("src/local.h",
+				"#pragma once",
+				"#include \"quoted_only.h\""
+		);
+		write("src/angled.cpp",
+				"#include <local.h>",
+				"#include <quoted_only.h>"
+		);
+		write("src/macro.cpp",
+				"#include \"local.h\"",
+				"#include PLATFORM_HEADER"
+		);
+		write("src/missing.cpp",
+				"#include \"missing.h\""
+		);
+		write("quoted/quoted_only.h");
+		write("shared/common.h");
+		write("include/lib/api.h",
+				"#include <sys/sys.h>"
+		);
+		write("sysroot/sys/sys.h",
+				"#include <sys/deep.h>"
+		);
+		write("sysroot/sys/deep.h");
+
+		StringBuilder json = new StringBuilder("[");
+		for(String unit : Arrays.asList("main.cpp", "angled.cpp", "macro.cpp", "missing.cpp")) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+
+			json.append("{\"directory\": \"").append(path("build")).append("\",");
+			json.append(" \"arguments\": [\"cc\", \"-iquote\", \"../quoted\",");
+			json.append(" \"-I").append(path("include")).append("\",");
+			json.append(" \"-isystem\", \"").append(path("sysroot")).append("\",");
+			json.append(" \"-c\", \"").append(path("src/" + unit)).append("\"],");
+			json.append(" \"file\": \"").append(path("src/" + unit)).append("\"}");
+		}
+		json.append(']');
+
+		File databaseFile = write("build/compile_commands.json", json.toString());
+		database = CompileCommandsDatabase.getInstance(databaseFile);
+		graph = new IncludeGraph();
+	}
+
+
+	@Test
+	public void collectHeaders() throws IOException {
+		List<File> headers = graph.getHeaders(path("src/main.cpp"), database);
+		assertNotNull(headers);
+
+		// headers found via relative include paths keep their '..' components
+		assertEquals(
+				Arrays.asList(
+						key("include/lib/api.h"),
+						key("quoted/quoted_only.h"),
+						key("shared/common.h"),
+						key("src/local.h"),
+						key("sysroot/sys/sys.h")
+				),
+				normalize(headers)
+		);
+	}
+
+
+	@Test
+	public void angledIncludesIgnoreCurrentDirectory() throws IOException {
+		// angled includes are neither searched next to the including file nor in -iquote paths,
+		// so both are expected to be found in the compiler's builtin paths
+		List<File> headers = graph.getHeaders(path("src/angled.cpp"), database);
+		assertNotNull(headers);
+		assertTrue(headers.isEmpty());
+	}
+
+
+	@Test
+	public void systemHeadersNotScanned() throws IOException {
+		List<String> headers = normalize(graph.getHeaders(path("src/main.cpp"), database));
+
+		assertTrue(headers.contains(key("sysroot/sys/sys.h")));
+		assertFalse(headers.contains(key("sysroot/sys/deep.h")));
+	}
+
+
+	@Test
+	public void unresolvedIncludes() throws IOException {
+		assertNull(graph.getHeaders(path("src/macro.cpp"), database));
+		assertNull(graph.getHeaders(path("src/missing.cpp"), database));
+
+		// incomplete units are still known to depend on the headers found
+		assertEquals(
+				Collections.singleton(path("src/macro.cpp")),
+				graph.getDependentUnits(path("src/local.h"))
+		);
+	}
+
+
+	@Test
+	public void dependentUnits() throws IOException {
+		graph.getHeaders(path("src/main.cpp"), database);
+		graph.getHeaders(path("src/macro.cpp"), database);
+
+		assertEquals(
+				Collections.singleton(path("src/main.cpp")),
+				graph.getDependentUnits(path("shared/common.h"))
+		);
+		assertEquals(
+				2,
+				graph.getDependentUnits(path("quoted/quoted_only.h")).size()
+		);
+		assertEquals(
+				Collections.singleton(path("src/main.cpp")),
+				graph.getDependentUnits(path("src/../shared/common.h"))
+		);
+		assertTrue(graph.getDependentUnits(path("sysroot/sys/deep.h")).isEmpty());
+	}
+
+
+	@Test
+	public void invalidateHeader() throws IOException {
+		graph.getHeaders(path("src/main.cpp"), database);
+		graph.getHeaders(path("src/macro.cpp"), database);
+
+		assertEquals(
+				Collections.singleton(key("src/main.cpp")),
+				graph.invalidate(path("shared/common.h"))
+		);
+		assertTrue(graph.getDependentUnits(path("shared/common.h")).isEmpty());
+		assertEquals(
+				Collections.singleton(path("src/macro.cpp")),
+				graph.getDependentUnits(path("src/local.h"))
+		);
+
+		// the changed includes of a header will be found after invalidating it
+		write("shared/common.h", "#include \"added.h\"");
+		write("shared/added.h");
+		graph.invalidate(path("shared/common.h"));
+
+		List<String> headers = normalize(graph.getHeaders(path("src/main.cpp"), database));
+		assertTrue(headers.contains(key("shared/added.h")));
+	}
+
+
+	private @NotNull String path(@NotNull String relativePath) {
+		return new File(root, relativePath).getPath().replace('\\', '/');
+	}
+
+
+	private @NotNull String key(@NotNull String relativePath) {
+		return CompileCommandsDatabase.normalizePath(path(relativePath));
+	}
+
+
+	private @NotNull File write(@NotNull String relativePath, @NotNull String... lines) throws IOException {
+		File file = new File(root, relativePath);
+		assertTrue(file.getParentFile().isDirectory() || file.getParentFile().mkdirs());
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		file.deleteOnExit();
+
+		return file;
+	}
+
+
+	private static @NotNull List<String> normalize(List<File> headers) {
+		assertNotNull(headers);
+
+		String[] paths = new String[headers.size()];
+		for(int i=0; i<paths.length; i++) {
+			paths[i] = CompileCommandsDatabase.normalizePath(headers.get(i).getPath());
+		}
+
+		Arrays.sort(paths);
+
+		return Arrays.asList(paths);
+	}
+}
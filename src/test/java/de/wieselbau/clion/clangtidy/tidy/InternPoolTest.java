@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for sharing strings and files among parsed results
+ */
+public class InternPoolTest
+{
+	@Test
+	public void internStrings() {
+		InternPool pool = new InternPool();
+
+		String first  = pool.intern(new String("modernize-use-override"));
+		String second = pool.intern(new String("modernize-use-override"));
+		String other  = pool.intern(new String("modernize-use-auto"));
+
+		assertSame(first, second);
+		assertNotSame(first, other);
+		assertEquals(1, pool.getHits());
+		assertTrue(pool.getSavedBytes() > 2 * "modernize-use-override".length());
+	}
+
+
+	@Test
+	public void internFiles() {
+		InternPool pool = new InternPool();
+
+		File first  = pool.internFile(new String("/path/to/header.h"));
+		File second = pool.internFile(new String("/path/to/header.h"));
+		File other  = pool.internFile(new String("/path/to/source.cpp"));
+
+		assertSame(first, second);
+		assertEquals(new File("/path/to/header.h"), first);
+		assertNotEquals(first, other);
+		assertEquals(1, pool.getHits());
+
+		// the path is shared with strings interned before
+		assertSame(pool.intern(new String("/path/to/source.cpp")), pool.intern(new String("/path/to/source.cpp")));
+		assertEquals(3, pool.getHits());
+	}
+
+
+	@Test
+	public void internConcurrently() throws Exception {
+		InternPool pool = new InternPool();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<File>> futures = new ArrayList<>();
+			for(int i=0; i<100; i++) {
+				futures.add(executor.submit(() -> pool.internFile(new String("/path/to/header.h"))));
+			}
+
+			File first = futures.get(0).get();
+			for(Future<File> future : futures) {
+				assertSame(first, future.get());
+			}
+
+			assertEquals(99, pool.getHits());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}
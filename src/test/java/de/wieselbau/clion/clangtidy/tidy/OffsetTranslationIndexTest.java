@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for translating byte offsets of clang-tidy into char offsets of documents
+ */
+public class OffsetTranslationIndexTest {
+
+	@Test
+	public void windowsLineBreaks() {
+		byte[] content = "int a;\r\nint b;\r\n\r\nint c;".getBytes(StandardCharsets.UTF_8);
+		OffsetTranslationIndex index = OffsetTranslationIndex.create(content, StandardCharsets.UTF_8);
+
+		assertEquals("int a;\nint b;\n\nint c;", index.getText());
+		assertEquals(4, index.toCharOffset(4));
+		assertEquals(11, index.toCharOffset(12));
+		assertEquals(16, index.toCharOffset(19));
+		assertEquals(index.getText().length(), index.toCharOffset(content.length));
+
+		assertOffsetsMatchDecodedText(content, StandardCharsets.UTF_8);
+	}
+
+
+	@Test
+	public void multiByteCharacters() {
+		byte[] content = "// Grüße 中文 😀\r\nauto x = \"ä\";\rint y;\n".getBytes(StandardCharsets.UTF_8);
+		OffsetTranslationIndex index = OffsetTranslationIndex.create(content, StandardCharsets.UTF_8);
+
+		assertEquals("// Grüße 中文 😀\nauto x = \"ä\";\nint y;\n", index.getText());
+		assertOffsetsMatchDecodedText(content, StandardCharsets.UTF_8);
+	}
+
+
+	@Test
+	public void byteOrderMark() {
+		byte[] content = "\uFEFFint ä;\r\n".getBytes(StandardCharsets.UTF_8);
+		OffsetTranslationIndex index = OffsetTranslationIndex.create(content, StandardCharsets.UTF_8);
+
+		assertEquals("int ä;\n", index.getText());
+		assertEquals(0, index.toCharOffset(3));
+		assertEquals(4, index.toCharOffset(7));
+		assertEquals(6, index.toCharOffset(10));
+	}
+
+
+	@Test
+	public void invalidSequences() {
+		byte[] content = { 'a', (byte)0xC3, 'b', (byte)0xE4, (byte)0xB8, 'c' };
+		OffsetTranslationIndex index = OffsetTranslationIndex.create(content, StandardCharsets.UTF_8);
+
+		assertEquals("a\uFFFDb\uFFFD\uFFFDc", index.getText());
+		assertEquals(5, index.toCharOffset(5));
+	}
+
+
+	@Test
+	public void singleByteCharset() {
+		Charset charset = Charset.forName("windows-1252");
+		byte[] content = "// Grüße\r\nint x;".getBytes(charset);
+		OffsetTranslationIndex index = OffsetTranslationIndex.create(content, charset);
+
+		assertEquals("// Grüße\nint x;", index.getText());
+		assertOffsetsMatchDecodedText(content, charset);
+	}
+
+
+	/**
+	 * Compares the translated offset of each character's start with the length of the decoded text before it.
+	 */
+	private static void assertOffsetsMatchDecodedText(@NotNull byte[] content, @NotNull Charset charset) {
+		OffsetTranslationIndex index = OffsetTranslationIndex.create(content, charset);
+
+		for(int offset=0; offset<=content.length; offset++) {
+			boolean isCharStart =
+					offset == content.length
+				||	(content[offset] & 0xC0) != 0x80
+				||	!StandardCharsets.UTF_8.equals(charset)
+			;
+
+			boolean isWithinLineBreak = offset > 0 && content[offset - 1] == '\r' && offset < content.length && content[offset] == '\n';
+
+			if (isCharStart && !isWithinLineBreak) {
+				String prefix = new String(content, 0, offset, charset).replace("\r\n", "\n").replace('\r', '\n');
+				assertEquals("offset " + offset, prefix.length(), index.toCharOffset(offset));
+			}
+		}
+	}
+}
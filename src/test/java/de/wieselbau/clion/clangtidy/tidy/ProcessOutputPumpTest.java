@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for reading process output with the shared output pump
+ */
+public class ProcessOutputPumpTest {
+
+	@Test
+	public void readLines() throws Exception {
+		List<String> lines = pumpText(new ProcessOutputPump(1), "first\nsecond\r\n\nlast");
+
+		assertEquals(Arrays.asList("first", "second", "", "last"), lines);
+	}
+
+
+	@Test
+	public void readEmptyStream() throws Exception {
+		List<String> lines = pumpText(new ProcessOutputPump(1), "");
+
+		assertEquals(Collections.emptyList(), lines);
+	}
+
+
+	@Test
+	public void readManyStreamsWithBoundedThreads() throws Exception {
+		ProcessOutputPump pump = new ProcessOutputPump(2);
+		List<List<String>> results = new ArrayList<>();
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+		for(int i=0; i<20; i++) {
+			StringBuilder text = new StringBuilder();
+			for(int line=0; line<1000; line++) {
+				text.append("stream ").append(i).append(" line ").append(line).append('\n');
+			}
+
+			List<String> lines = Collections.synchronizedList(new ArrayList<>());
+			results.add(lines);
+			futures.add(pump.pump(asStream(text.toString()), lines::addAll));
+		}
+
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+		for(int i=0; i<20; i++) {
+			assertEquals(1000, results.get(i).size());
+			assertEquals("stream " + i + " line 999", results.get(i).get(999));
+		}
+
+		assertTrue(pump.getPeakThreadCount() <= 2);
+		assertEquals(0, pump.getActiveStreamCount());
+	}
+
+
+	@Test
+	public void blockedStreamDoesNotStallOthers() throws Exception {
+		ProcessOutputPump pump = new ProcessOutputPump(2);
+		PipedOutputStream out = new PipedOutputStream();
+
+		// a stream without any data available blocks one of the threads
+		CompletableFuture<Void> blocked = pump.pump(new PipedInputStream(out), null);
+
+		assertEquals(Collections.singletonList("\u00e4\u20ac"), pumpText(pump, "\u00e4\u20ac\n"));
+		assertFalse(blocked.isDone());
+
+		out.close();
+		blocked.get(10, TimeUnit.SECONDS);
+	}
+
+
+	@Test
+	public void startedOnceThreadAvailable() throws Exception {
+		ProcessOutputPump pump = new ProcessOutputPump(1);
+		PipedOutputStream out = new PipedOutputStream();
+		CountDownLatch started = new CountDownLatch(1);
+
+		// the only thread is blocked, so the second stream has to wait
+		CompletableFuture<Void> blocked = pump.pump(new PipedInputStream(out), null);
+		CompletableFuture<Void> waiting = pump.pump(asStream("line\n"), null, started::countDown);
+
+		assertFalse(started.await(200, TimeUnit.MILLISECONDS));
+
+		out.close();
+		blocked.get(10, TimeUnit.SECONDS);
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		waiting.get(10, TimeUnit.SECONDS);
+	}
+
+
+	private static @NotNull List<String> pumpText(@NotNull ProcessOutputPump pump, @NotNull String text) throws Exception {
+		List<String> lines = Collections.synchronizedList(new ArrayList<>());
+
+		pump.pump(asStream(text), lines::addAll).get(10, TimeUnit.SECONDS);
+
+		return lines;
+	}
+
+
+	private static @NotNull InputStream asStream(@NotNull String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for assigning the errors of a clang-tidy invocation to the files scanned
+ */
+public class ScannerInvocationTest {
+
+	private static final String FILE_A	= "/home/sweet/home/my/a.cpp";
+	private static final String FILE_B	= "/home/sweet/home/my/b.cpp";
+	private static final String FILE_C	= "/home/sweet/home/my/c.cpp";
+
+
+	@Test
+	public void mixedBatch() {
+		Scanner.Invocation invocation = new Scanner.Invocation(Arrays.asList(FILE_A, FILE_B, FILE_C));
+		invocation.onErrorLine("1 warning generated.");
+		invocation.onErrorLine(FILE_B + ":3:10: error: 'missing.h' file not found [clang-diagnostic-error]");
+		invocation.onErrorLine("Error while processing " + FILE_B + ".");
+		invocation.setProcessSuccessful(false);
+
+		assertFalse(invocation.hasFailed(FILE_A));
+		assertTrue(invocation.hasFailed(FILE_B));
+		assertFalse(invocation.hasFailed(FILE_C));
+
+		assertTrue(invocation.getErrorLog(FILE_B).contains("'missing.h' file not found"));
+		assertEquals("", invocation.getErrorLog(FILE_A));
+		assertEquals("", invocation.getErrorLog(FILE_C));
+	}
+
+
+	@Test
+	public void skippedWithoutCompileCommand() {
+		Scanner.Invocation invocation = new Scanner.Invocation(Arrays.asList(FILE_A, FILE_B));
+		invocation.onErrorLine("Skipping " + FILE_A + ". Compile command not found.");
+		invocation.setProcessSuccessful(false);
+
+		assertTrue(invocation.hasFailed(FILE_A));
+		assertFalse(invocation.hasFailed(FILE_B));
+		assertTrue(invocation.getErrorLog(FILE_A).contains("Compile command not found"));
+	}
+
+
+	@Test
+	public void failedWithoutKnownFile() {
+		Scanner.Invocation invocation = new Scanner.Invocation(Arrays.asList(FILE_A, FILE_B));
+		invocation.onErrorLine("LLVM ERROR: out of memory");
+		invocation.setProcessSuccessful(false);
+
+		// no file can be identified, so none of them can be trusted
+		assertTrue(invocation.hasFailed(FILE_A));
+		assertTrue(invocation.hasFailed(FILE_B));
+		assertTrue(invocation.hasErrorLog());
+	}
+
+
+	@Test
+	public void singleFileGetsWholeLog() {
+		Scanner.Invocation invocation = new Scanner.Invocation(Arrays.asList(FILE_A));
+		invocation.onErrorLine("LLVM ERROR: out of memory");
+		invocation.setProcessSuccessful(false);
+
+		assertTrue(invocation.hasFailed(FILE_A));
+		assertEquals("LLVM ERROR: out of memory\n", invocation.getErrorLog(FILE_A));
+	}
+
+
+	@Test
+	public void successfulWithWarnings() {
+		Scanner.Invocation invocation = new Scanner.Invocation(Arrays.asList(FILE_A, FILE_B));
+		invocation.onErrorLine("2 warnings generated.");
+		invocation.setProcessSuccessful(true);
+
+		assertFalse(invocation.hasFailed(FILE_A));
+		assertFalse(invocation.hasFailed(FILE_B));
+	}
+
+
+	@Test
+	public void windowsPaths() {
+		Scanner.Invocation invocation = new Scanner.Invocation(Arrays.asList("C:/my/a.cpp", "C:/my/b.cpp"));
+		invocation.onErrorLine("Error while processing C:\\my\\b.cpp.");
+		invocation.setProcessSuccessful(false);
+
+		assertFalse(invocation.hasFailed("C:\\my\\a.cpp"));
+		assertTrue(invocation.hasFailed("C:\\my\\b.cpp"));
+	}
+
+
+	@Test
+	public void errorReadingFile() {
+		Scanner.Invocation invocation = new Scanner.Invocation(Arrays.asList(FILE_A, FILE_B));
+		invocation.onOutputLine("error: error reading '" + FILE_B + "' [clang-diagnostic-error]");
+		invocation.setProcessSuccessful(false);
+
+		assertFalse(invocation.hasFailed(FILE_A));
+		assertTrue(invocation.hasFailed(FILE_B));
+
+		// a file not passed to clang-tidy can't be assigned to any file
+		invocation.onOutputLine("error: error reading '/home/sweet/home/my/other.h'");
+
+		assertTrue(invocation.hasFailed(FILE_A));
+		assertTrue(invocation.hasFailed(FILE_B));
+	}
+}
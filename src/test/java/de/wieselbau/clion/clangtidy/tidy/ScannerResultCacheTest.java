@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.openapi.util.TextRange;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for storing scanner results on disk
+ */
+public class ScannerResultCacheTest {
+
+	@Test
+	public void storeAndLoad() throws IOException {
+		ScannerResultCache cache = new ScannerResultCache(createTempDirectory(), () -> 1024 * 1024);
+
+		ScannerResult result = new ScannerResult();
+		result.addIssue(createIssue("readability-braces-around-statements", "statement should be inside braces"));
+		result.addFix(new Fix(
+				"modernize-loop-convert",
+				Arrays.asList(
+						new Fix.Change(new File("/home/sweet/home/my/SourceFile.cpp"), TextRange.create(284, 303), "(int i : arr)"),
+						new Fix.Change(new File("/home/sweet/home/my/SourceFile.cpp"), TextRange.create(310, 316), "i")
+				)
+		));
+		result.addFix(new Fix(new Fix.Change(new File("/home/sweet/home/my/Header.h"), TextRange.create(0, 0), "")));
+
+		String key = cache.createKey().add("some input").build();
+		assertNull(cache.load(key));
+
+		cache.store(key, result);
+
+		ScannerResult loaded = cache.load(key);
+		assertNotNull(loaded);
+		assertEquals(result.getIssues(), loaded.getIssues());
+		assertEquals(result.getFixes(), loaded.getFixes());
+	}
+
+
+	@Test
+	public void keysDependOnAllInputs() throws IOException {
+		ScannerResultCache cache = new ScannerResultCache(createTempDirectory(), () -> 1024 * 1024);
+
+		assertEquals(cache.createKey().add("a").add("b").build(), cache.createKey().add("a").add("b").build());
+		assertNotEquals(cache.createKey().add("a").add("b").build(), cache.createKey().add("ab").build());
+		assertNotEquals(cache.createKey().add("a").add(null).build(), cache.createKey().add("a").add("").build());
+	}
+
+
+	@Test
+	public void disabledCache() throws IOException {
+		ScannerResultCache cache = new ScannerResultCache(createTempDirectory(), () -> 0);
+		String key = cache.createKey().add("some input").build();
+
+		cache.store(key, new ScannerResult());
+
+		assertFalse(cache.isEnabled());
+		assertNull(cache.load(key));
+	}
+
+
+	@Test
+	public void evictLeastRecentlyUsed() throws IOException {
+		File directory = createTempDirectory();
+		ScannerResultCache cache = new ScannerResultCache(directory, () -> 2000);
+
+		ScannerResult result = new ScannerResult();
+		for(int i=0; i<4; i++) {
+			result.addIssue(createIssue("check-" + i, "some message of some length"));
+		}
+
+		String[] keys = new String[8];
+		for(int i=0; i<keys.length; i++) {
+			keys[i] = cache.createKey().add("file " + i).build();
+			cache.store(keys[i], result);
+
+			// make sure each entry gets a different time of usage
+			assertTrue(new File(directory, keys[i] + ".bin").setLastModified(1000000L * (i + 1)));
+		}
+
+		cache.evict();
+
+		assertNull(cache.load(keys[0]));
+		assertNotNull(cache.load(keys[keys.length - 1]));
+	}
+
+
+	@Test
+	public void sharedFileModifiedWithSameLengthAndTime() throws IOException {
+		File directory = createTempDirectory();
+		ScannerResultCache cache = new ScannerResultCache(directory, () -> 1024 * 1024);
+
+		File file = new File(directory, "compile_commands.json");
+		file.deleteOnExit();
+		Files.write(file.toPath(), "[ first ]".getBytes(StandardCharsets.UTF_8));
+		assertTrue(file.setLastModified(1000000L));
+		String first = cache.createKey().addSharedFileContent(file).build();
+
+		Files.write(file.toPath(), "[ other ]".getBytes(StandardCharsets.UTF_8));
+		assertTrue(file.setLastModified(1000000L));
+		String other = cache.createKey().addSharedFileContent(file).build();
+
+		assertNotEquals(first, other);
+	}
+
+
+	private static @NotNull Issue createIssue(@NotNull String group, @NotNull String message) {
+		Issue issue = new Issue();
+		issue.type			= ProblemHighlightType.GENERIC_ERROR_OR_WARNING;
+		issue.lineNumber	= 12;
+		issue.lineColumn	= 5;
+		issue.group			= group;
+		issue.message		= message;
+
+		return issue;
+	}
+
+
+	private static @NotNull File createTempDirectory() throws IOException {
+		File directory = Files.createTempDirectory("clang-tidy-cache-test").toFile();
+		directory.deleteOnExit();
+		return directory;
+	}
+}
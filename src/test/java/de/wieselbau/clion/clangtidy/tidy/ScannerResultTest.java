@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.openapi.util.TextRange;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for collecting results of multiple scanner threads
+ */
+public class ScannerResultTest {
+
+	@Test
+	public void removeDuplicates() {
+		ScannerResult result = new ScannerResult();
+
+		result.addIssue(createIssue(1));
+		result.addIssue(createIssue(2));
+		result.addIssue(createIssue(1));
+
+		result.addFix(createFix("/path/to/Header.h", 1));
+		result.addFix(createFix("/path/to/Header.h", 1));
+
+		assertEquals(Arrays.asList(createIssue(1), createIssue(2)), result.getIssues());
+		assertEquals(1, result.getFixes().size());
+	}
+
+
+	@Test
+	public void countReports() {
+		ScannerResult unit1 = new ScannerResult();
+		unit1.addIssue(createIssue(1));
+		unit1.addFix(createFix("/path/to/Header.h", 1));
+
+		ScannerResult unit2 = new ScannerResult();
+		unit2.addIssue(createIssue(1));
+		unit2.addIssue(createIssue(2));
+		unit2.addFix(createFix("/path/to/Header.h", 1));
+
+		ScannerResult result = new ScannerResult();
+		result.addResults(unit1);
+		result.addResults(unit2);
+		result.addIssue(createIssue(1));
+
+		assertEquals(2, result.getIssues().size());
+		assertEquals(3, result.getReportCount(createIssue(1)));
+		assertEquals(1, result.getReportCount(createIssue(2)));
+		assertEquals(0, result.getReportCount(createIssue(3)));
+		assertEquals(2, result.getReportCount(createFix("/path/to/Header.h", 1)));
+		assertEquals(3, result.getDuplicateReportsCount());
+	}
+
+
+	@Test
+	public void fixesPerFile() {
+		ScannerResult result = new ScannerResult();
+
+		Fix fix = new Fix(
+				"modernize-loop-convert",
+				Arrays.asList(
+						new Fix.Change(new File("/path/to/Source.cpp"), TextRange.create(284, 303), "(int i : arr)"),
+						new Fix.Change(new File("/path/to/Source.cpp"), TextRange.create(310, 316), "i"),
+						new Fix.Change(new File("/path/to/Header.h"), TextRange.create(10, 12), "j")
+				)
+		);
+
+		result.addFix(fix);
+		result.addFix(createFix("/path/to/Header.h", 1));
+
+		assertEquals(Arrays.asList(fix), result.getFixes(new File("/path/to/Source.cpp")));
+		assertEquals(2, result.getFixes(new File("/path/to/Header.h")).size());
+		assertTrue(result.getFixes(new File("/path/to/Other.h")).isEmpty());
+	}
+
+
+	@Test
+	public void concurrentInserts() throws InterruptedException {
+		final int threadCount	= 8;
+		final int fixCount		= 20000;
+
+		ScannerResult result = new ScannerResult();
+		List<Thread> threads = new ArrayList<>();
+
+		// all threads add the same fixes, each of them should be stored once
+		for(int t=0; t<threadCount; t++) {
+			Thread thread = new Thread(() -> {
+				for(int i=0; i<fixCount; i++) {
+					result.addFix(createFix("/path/to/Header" + (i % 10) + ".h", i));
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for(Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(fixCount, result.getFixes().size());
+		assertEquals(fixCount, new HashSet<>(result.getFixes()).size());
+		assertEquals(fixCount / 10, result.getFixes(new File("/path/to/Header3.h")).size());
+	}
+
+
+	@Test
+	public void hashCodeMatchesEquals() {
+		assertEquals(createIssue(7).hashCode(), createIssue(7).hashCode());
+		assertEquals(createFix("/path/to/Header.h", 7).hashCode(), createFix("/path/to/Header.h", 7).hashCode());
+
+		// moving a change must not change the hash of a stored fix
+		Fix fix = createFix("/path/to/Header.h", 7);
+		int hash = fix.hashCode();
+		fix.getChanges().get(0).setTextRange(TextRange.create(100, 110));
+		assertEquals(hash, fix.hashCode());
+	}
+
+
+	@Test
+	public void copyFixesIndependently() {
+		ScannerResult result = new ScannerResult();
+		result.addIssue(createIssue(1));
+		result.addFix(createFix("/path/to/Header.h", 1));
+		result.addFix(createFix("/path/to/Header.h", 1));
+
+		ScannerResult copy = result.copy();
+		Fix.Change copiedChange = copy.getFixes().get(0).getChanges().get(0);
+		copiedChange.setTextRange(TextRange.create(10, 14));
+
+		assertEquals(TextRange.create(1, 5), result.getFixes().get(0).getChanges().get(0).getTextRange());
+		assertNotSame(result.getFixes().get(0).getChanges().get(0), copiedChange);
+		assertEquals(2, copy.getReportCount(copy.getFixes().get(0)));
+		assertEquals(result.getIssues(), copy.getIssues());
+	}
+
+
+	private static @NotNull Issue createIssue(int line) {
+		Issue issue = new Issue();
+		issue.type			= ProblemHighlightType.GENERIC_ERROR_OR_WARNING;
+		issue.lineNumber	= line;
+		issue.lineColumn	= 5;
+		issue.group			= "readability-braces-around-statements";
+		issue.message		= "statement should be inside braces";
+
+		return issue;
+	}
+
+
+	private static @NotNull Fix createFix(@NotNull String path, int offset) {
+		return new Fix(
+				"modernize-use-nullptr",
+				Arrays.asList(new Fix.Change(new File(path), TextRange.create(offset, offset + 4), "nullptr"))
+		);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.tidy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Test for sharing executions between concurrent callers
+ */
+public class SingleFlightTest {
+
+	@Test
+	public void shareConcurrentExecution() throws Exception {
+		SingleFlight<String> singleFlight = new SingleFlight<>(result -> true);
+		AtomicInteger executions = new AtomicInteger(0);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<String> first = executor.submit(() -> singleFlight.run(
+					"key",
+					() -> {
+						executions.incrementAndGet();
+						started.countDown();
+						awaitQuietly(release);
+						return "result";
+					},
+					() -> false
+			));
+
+			started.await();
+
+			Future<String> second = executor.submit(() -> singleFlight.run(
+					"key",
+					() -> {
+						executions.incrementAndGet();
+						return "other";
+					},
+					() -> false
+			));
+
+			// give the second caller time to join the first execution
+			Thread.sleep(200);
+			release.countDown();
+
+			assertEquals("result", first.get());
+			assertEquals("result", second.get());
+			assertEquals(1, executions.get());
+			assertEquals(1, singleFlight.getSharedCount());
+
+			// the finished execution won't be shared with later callers
+			assertEquals("later", singleFlight.run("key", () -> "later", () -> false));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	@Test
+	public void retryWhenNotShareable() throws Exception {
+		SingleFlight<String> singleFlight = new SingleFlight<>(result -> !"cancelled".equals(result));
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			Future<String> first = executor.submit(() -> singleFlight.run(
+					"key",
+					() -> {
+						started.countDown();
+						awaitQuietly(release);
+						return "cancelled";
+					},
+					() -> false
+			));
+
+			started.await();
+
+			Future<String> second = executor.submit(() -> singleFlight.run(
+					"key",
+					() -> "own",
+					() -> false
+			));
+
+			Thread.sleep(200);
+			release.countDown();
+
+			assertEquals("cancelled", first.get());
+			assertEquals("own", second.get());
+			assertEquals(0, singleFlight.getSharedCount());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+
+	@Test
+	public void differentKeysRunSeparately() throws IOException {
+		SingleFlight<String> singleFlight = new SingleFlight<>(result -> true);
+
+		assertEquals("a", singleFlight.run("a", () -> "a", () -> false));
+		assertEquals("b", singleFlight.run("b", () -> "b", () -> false));
+		assertEquals(0, singleFlight.getSharedCount());
+	}
+
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
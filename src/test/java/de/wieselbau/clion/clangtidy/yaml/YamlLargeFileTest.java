@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.yaml;
+
+import de.wieselbau.util.yaml.YamlReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test for reading files large enough to be memory mapped
+ */
+public class YamlLargeFileTest
+{
+	@Test
+	public void readLargeFile() throws Exception {
+		StringBuilder sb = new StringBuilder("---\nMainSourceFile: '/path/to/Grüße.cpp'\nDiagnostics:\n");
+		int count = 0;
+
+		while(sb.length() < 3 * 1024 * 1024) {
+			sb.append("  - DiagnosticName:  readability-diagnostic-").append(count).append('\n');
+			sb.append("    Message:         'Übergröße ").append(count).append(" – 中文 😀'\n");
+			sb.append("    FileOffset:      ").append(count).append('\n');
+			++count;
+		}
+
+		sb.append("...\n");
+
+		byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+		File file = File.createTempFile("large", ".yaml");
+
+		try {
+			Files.write(file.toPath(), data);
+
+			List<Object> fromFile   = new ArrayList<>();
+			List<Object> fromStream = new ArrayList<>();
+
+			YamlReader fileReader = new YamlReader(file, (key, record) -> fromFile.add(record));
+			new YamlReader(new ByteArrayInputStream(data), (key, record) -> fromStream.add(record));
+
+			assertEquals(count, fromFile.size());
+			assertEquals(fromStream, fromFile);
+
+			Map last = (Map)fromFile.get(count - 1);
+			assertEquals("Übergröße " + (count - 1) + " – 中文 😀", last.get("Message"));
+			assertEquals("/path/to/Grüße.cpp", ((Map)fileReader.getRootObject()).get("MainSourceFile"));
+		}
+		finally {
+			assertTrue(file.delete());
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.yaml;
+
+import de.wieselbau.util.yaml.YamlReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static de.wieselbau.clion.clangtidy.TestUtils.getTestFile;
+import static org.junit.Assert.*;
+
+/**
+ * Test for reading the elements of lists one by one
+ */
+public class YamlRecordHandlerTest
+{
+	@Test
+	public void streamDiagnostics() throws Exception {
+		List<String> keys    = new ArrayList<>();
+		List<Object> records = new ArrayList<>();
+
+		YamlReader yaml = new YamlReader(
+				getTestFile("yaml/results_windows_4.0.yaml"),
+				(key, record) -> {
+					keys.add(key);
+					records.add(record);
+				}
+		);
+
+		assertEquals(3, records.size());
+		for(String key : keys) {
+			assertEquals("Diagnostics", key);
+		}
+
+		// nested lists will still be read completely
+		assertTrue(records.get(2) instanceof Map);
+		assertEquals("modernize-loop-convert", ((Map)records.get(2)).get("DiagnosticName"));
+		assertEquals(2, ((List)((Map)records.get(2)).get("Replacements")).size());
+
+		// the streamed list remains empty, all other values are kept
+		assertTrue(yaml.getRootObject() instanceof Map);
+		Map root = (Map)yaml.getRootObject();
+		assertEquals("D:\\Path\\to\\my\\SourceFile.cpp", root.get("MainSourceFile"));
+		assertTrue(((List)root.get("Diagnostics")).isEmpty());
+	}
+
+
+	@Test
+	public void streamReplacements() throws Exception {
+		List<Object> records = new ArrayList<>();
+
+		new YamlReader(
+				getTestFile("yaml/results_unix.yaml"),
+				(key, record) -> {
+					assertEquals("Replacements", key);
+					records.add(record);
+				}
+		);
+
+		assertEquals(3, records.size());
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2026
+ * Christian Fischer
+ *
+ * https://bitbucket.org/baldur/clion-clangtidy/
+ *
+ * This plugin is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA 02110-1301 USA
+ */
+
+package de.wieselbau.clion.clangtidy.yaml;
+
+import de.wieselbau.util.yaml.YamlReader;
+import de.wieselbau.util.yaml.YamlSyntaxException;
+import de.wieselbau.util.yaml.YamlTokenizer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static de.wieselbau.clion.clangtidy.TestUtils.getTestFile;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Test for the tokenizer used by the yaml reader
+ */
+public class YamlTokenizerTest
+{
+	/**
+	 * Minimum throughput when reading large result files.
+	 * The tokenizer previously used did read about 15 MB/s.
+	 */
+	private final static double MIN_MEGABYTES_PER_SECOND	= 20.0;
+
+	/**
+	 * System property to enable the throughput test, which depends on the speed
+	 * of the machine and is therefore not part of the default test run.
+	 */
+	private final static String BENCHMARK_PROPERTY			= "clangtidy.yaml.benchmark";
+
+
+	@Test
+	public void tokens() throws Exception {
+		YamlTokenizer tokenizer = new YamlTokenizer(null, new StringReader(
+				"---\r\n  - Key: value-1 # comment\r\n    Offset: -12.5\n..."
+		));
+
+		assertEquals('-', tokenizer.nextToken());
+		assertEquals('-', tokenizer.nextToken());
+		assertEquals('-', tokenizer.nextToken());
+		assertEquals(YamlTokenizer.TT_EOL, tokenizer.nextToken());
+
+		assertEquals('-', tokenizer.nextToken());
+		assertEquals(2, tokenizer.getLine());
+		assertEquals(2, tokenizer.getColumn());
+
+		assertEquals(YamlTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals("Key", tokenizer.sval);
+		assertEquals(4, tokenizer.getColumn());
+
+		tokenizer.pushBack();
+		assertEquals(YamlTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals("Key", tokenizer.sval);
+
+		assertEquals(':', tokenizer.nextToken());
+		assertEquals(YamlTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals("value-1", tokenizer.sval);
+		assertEquals(YamlTokenizer.TT_EOL, tokenizer.nextToken());
+
+		assertEquals(YamlTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals("Offset", tokenizer.sval);
+		assertEquals(3, tokenizer.getLine());
+		assertEquals(':', tokenizer.nextToken());
+		assertEquals(YamlTokenizer.TT_NUMBER, tokenizer.nextToken());
+		assertEquals(-12.5, tokenizer.nval, 0.0);
+		assertEquals(YamlTokenizer.TT_EOL, tokenizer.nextToken());
+
+		assertEquals(YamlTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals("...", tokenizer.sval);
+		assertEquals(4, tokenizer.getLine());
+		assertEquals(YamlTokenizer.TT_EOF, tokenizer.nextToken());
+	}
+
+
+	@Test
+	public void quotedStrings() throws Exception {
+		YamlTokenizer tokenizer = new YamlTokenizer(null, new StringReader(
+				"'it''s \\n' \"tab\\t\\\"\"\n'multi\nline'"
+		));
+
+		assertEquals('\'', tokenizer.nextToken());
+		assertEquals("it's \\n", tokenizer.readQuotedString('\'', false));
+
+		assertEquals('"', tokenizer.nextToken());
+		assertEquals("tab\t\"", tokenizer.readQuotedString('"', true));
+
+		assertEquals(YamlTokenizer.TT_EOL, tokenizer.nextToken());
+		assertEquals('\'', tokenizer.nextToken());
+		assertEquals("multi\nline", tokenizer.readQuotedString('\'', false));
+		assertEquals(YamlTokenizer.TT_EOF, tokenizer.nextToken());
+		assertEquals(3, tokenizer.getLine());
+	}
+
+
+	@Test(expected = YamlSyntaxException.class)
+	public void unterminatedString() throws Exception {
+		YamlTokenizer tokenizer = new YamlTokenizer(null, new StringReader("'open"));
+
+		assertEquals('\'', tokenizer.nextToken());
+		tokenizer.readQuotedString('\'', false);
+	}
+
+
+	@Test
+	public void tokensAcrossBufferBoundaries() throws Exception {
+		StringBuilder longWord = new StringBuilder();
+		StringBuilder longString = new StringBuilder();
+		for(int i=0; i<100000; i++) {
+			longWord.append((char)('a' + (i % 26)));
+			longString.append((char)('A' + (i % 26)));
+		}
+
+		YamlTokenizer tokenizer = new YamlTokenizer(null, new StringReader(
+				longWord + " '" + longString + "'"
+		));
+
+		assertEquals(YamlTokenizer.TT_WORD, tokenizer.nextToken());
+		assertEquals(longWord.toString(), tokenizer.sval);
+		assertEquals('\'', tokenizer.nextToken());
+		assertEquals(100001, tokenizer.getColumn());
+		assertEquals(longString.toString(), tokenizer.readQuotedString('\'', false));
+		assertEquals(YamlTokenizer.TT_EOF, tokenizer.nextToken());
+	}
+
+
+	@Test
+	public void throughput() throws Exception {
+		assumeTrue("enable with -D" + BENCHMARK_PROPERTY + "=true", Boolean.getBoolean(BENCHMARK_PROPERTY));
+
+		// scale up the diagnostics of an existing result file to about 16 MB
+		String source = new String(Files.readAllBytes(getTestFile("yaml/results_windows_4.0.yaml").toPath()), StandardCharsets.UTF_8);
+		String header = source.substring(0, source.indexOf("  - "));
+		String diagnostics = source.substring(header.length(), source.indexOf("..."));
+
+		int diagnosticsPerCopy = countRecords((header + diagnostics + "...").getBytes(StandardCharsets.UTF_8));
+		assertTrue(diagnosticsPerCopy > 0);
+
+		StringBuilder sb = new StringBuilder(header);
+		int diagnosticsCount = 0;
+		while(sb.length() < 16 * 1024 * 1024) {
+			sb.append(diagnostics);
+			diagnosticsCount += diagnosticsPerCopy;
+		}
+
+		sb.append("...");
+
+		byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+		double bestMegabytesPerSecond = 0;
+
+		// take the best out of a few runs, so the first one may warm up the JIT
+		for(int run=0; run<3; run++) {
+			long start = System.nanoTime();
+			int records = countRecords(data);
+			long elapsed = Math.max(1, System.nanoTime() - start);
+
+			assertEquals(diagnosticsCount, records);
+
+			double megabytesPerSecond = (data.length / (1024.0 * 1024.0)) / (elapsed / 1e9);
+			bestMegabytesPerSecond = Math.max(bestMegabytesPerSecond, megabytesPerSecond);
+		}
+
+		assertTrue(
+				"yaml throughput of " + bestMegabytesPerSecond + " MB/s below " + MIN_MEGABYTES_PER_SECOND,
+				bestMegabytesPerSecond >= MIN_MEGABYTES_PER_SECOND
+		);
+	}
+
+
+	private static int countRecords(byte[] data) throws Exception {
+		int[] records = { 0 };
+		new YamlReader(new ByteArrayInputStream(data), (key, record) -> ++records[0]);
+		return records[0];
+	}
+}